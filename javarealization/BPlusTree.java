@@ -0,0 +1,713 @@
+package javarealization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** B+дерево.
+ *
+ * Упорядоченная структура с ключами и значениями типа int. Элементы
+ * хранятся только в листьях, по order штук в массивах ключей и значений
+ * листа; листья связаны в двусвязный список по возрастанию ключей.
+ * Внутренний узел хранит до order сыновей, разделители между ними и
+ * кол-во элементов в поддереве каждого сына. Узел - несколько массивов
+ * int, поэтому за одну строку кэша сравнивается 16 ключей, а глубина
+ * дерева - log_order(n) вместо log_2(n) у двоичного дерева.
+ *
+ * Поддерживает повтор ключей: add ставит элемент после элементов с тем
+ * же ключем (как BinSearchTree), find и delete находят первый из них.
+ * Разделитель sep[i] внутреннего узла - не больше всех ключей сына i+1
+ * и не меньше всех ключей сына i; равные ключи могут лежать по обе
+ * стороны разделителя.
+ *
+ * Переполненный узел (order+1 элементов или сыновей) делится пополам.
+ * Узел, в котором после удаления осталось меньше order/2 элементов или
+ * сыновей, занимает один у соседа, а если у соседа лишних нет -
+ * сливается с ним. Путь от корня до листа запоминается при спуске,
+ * поэтому ссылки на отцов не нужны.
+ *
+ * get_at спускается по кол-вам элементов поддеревьев: O(log n).
+ *
+ * @author Akropon
+ */
+public class BPlusTree implements Struct{
+    protected BNode root;           // корень дерева
+    protected Leaf first_leaf;      // лист с минимальными ключами
+    protected Leaf last_leaf;       // лист с максимальными ключами
+    protected int order;            // наибольшее кол-во элементов листа и сыновей узла
+    protected int min_fill;         // наименьшее кол-во элементов листа и сыновей узла (кроме корня)
+    protected int size;             // кол-во элементов
+    protected int height;           // кол-во уровней (1 - корень - лист)
+    protected int num_of_leaves;    // кол-во листьев
+    protected int num_of_inner;     // кол-во внутренних узлов
+    protected Inner[] path_nodes;   // внутренние узлы пути последнего спуска (от корня)
+    protected int[] path_index;     // номера сыновей на пути последнего спуска
+
+    // порядок по-умолчанию
+    public static final int DEFAULT_ORDER = 64;
+    // наименьший порядок
+    protected static final int MIN_ORDER = 4;
+    // наибольшая высота дерева: при order >= 4 узлы заполнены хотя бы
+    // вдвое, и 2^31 элементов умещаются в 32 уровня
+    protected static final int MAX_HEIGHT = 33;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Конструктор.
+     *
+     * Создает пустое дерево порядка DEFAULT_ORDER.
+     */
+    public BPlusTree() {
+        this(DEFAULT_ORDER);
+    }
+
+    /** Конструктор.
+     *
+     * Создает пустое дерево заданного порядка.
+     *
+     * @param order - наибольшее кол-во элементов листа и сыновей
+     * внутреннего узла (>= MIN_ORDER)
+     */
+    public BPlusTree(int order) {
+        if ( order < MIN_ORDER ) order = MIN_ORDER;
+        this.order = order;
+        this.min_fill = order / 2;
+        this.root = this.first_leaf = this.last_leaf = new Leaf(order);
+        this.size = 0;
+        this.height = 1;
+        this.num_of_leaves = 1;
+        this.num_of_inner = 0;
+        this.path_nodes = new Inner[MAX_HEIGHT];
+        this.path_index = new int[MAX_HEIGHT];
+    }
+
+    /** Кол-во элементов массива меньше заданного
+     *
+     * @param a - массив по неубыванию
+     * @param n - кол-во элементов
+     * @param key - ключ
+     * @return кол-во элементов
+     */
+    protected static int lower(int[] a, int n, int key) {
+        int left_index = 0;
+        int right_index = n;
+        while ( left_index < right_index ) {
+            int mid = (left_index + right_index) >>> 1;
+            if ( a[mid] < key )
+                left_index = mid + 1;
+            else
+                right_index = mid;
+        }
+        return left_index;
+    }
+
+    /** Кол-во элементов массива не больше заданного
+     *
+     * @param a - массив по неубыванию
+     * @param n - кол-во элементов
+     * @param key - ключ
+     * @return кол-во элементов
+     */
+    protected static int upper(int[] a, int n, int key) {
+        int left_index = 0;
+        int right_index = n;
+        while ( left_index < right_index ) {
+            int mid = (left_index + right_index) >>> 1;
+            if ( a[mid] <= key )
+                left_index = mid + 1;
+            else
+                right_index = mid;
+        }
+        return left_index;
+    }
+
+    /** Спуск к листу, в котором может начинаться ключ
+     *
+     * Запоминает путь в path_nodes и path_index.
+     *
+     * @param key - ключ
+     * @return лист
+     */
+    protected Leaf descend_lower(int key) {
+        BNode node = root;
+        int depth = 0;
+        while ( node instanceof Inner ) {
+            Inner inner = (Inner) node;
+            int i = lower(inner.keys, inner.count-1, key);
+            path_nodes[depth] = inner;
+            path_index[depth] = i;
+            depth++;
+            node = inner.children[i];
+        }
+        return (Leaf) node;
+    }
+
+    /** Переход пути последнего спуска к следующему листу
+     *
+     * @return следующий лист (должен существовать)
+     */
+    protected Leaf next_leaf_path() {
+        int depth = height - 1;
+        int d = depth - 1;
+        while ( path_index[d] == path_nodes[d].count - 1 )
+            d--;
+        path_index[d]++;
+        BNode node = path_nodes[d].children[path_index[d]];
+        for ( d++; d<depth; d++ ) {
+            path_nodes[d] = (Inner) node;
+            path_index[d] = 0;
+            node = ((Inner) node).children[0];
+        }
+        return (Leaf) node;
+    }
+
+    /** Поиск по ключу.
+     *
+     * @param key - ключ
+     * @return "key: X, value: Y" - найден (первый элемент с ключем),
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int key) {
+        BNode node = root;
+        while ( node instanceof Inner ) {
+            Inner inner = (Inner) node;
+            node = inner.children[lower(inner.keys, inner.count-1, key)];
+        }
+        Leaf leaf = (Leaf) node;
+        int pos = lower(leaf.keys, leaf.count, key);
+        if ( pos == leaf.count ) {
+            // первый ключ не меньше заданного - в начале следующего листа
+            leaf = leaf.next;
+            pos = 0;
+        }
+        if ( leaf == null || leaf.keys[pos] != key ) return "NOT FOUND";
+        return "key: "+key+", value: "+leaf.values[pos];
+    }
+
+    /** Добавление нового элемента с заданным ключем и значением
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        BNode node = root;
+        int depth = 0;
+        while ( node instanceof Inner ) {
+            Inner inner = (Inner) node;
+            int i = upper(inner.keys, inner.count-1, key);
+            inner.counts[i]++;
+            path_nodes[depth] = inner;
+            path_index[depth] = i;
+            depth++;
+            node = inner.children[i];
+        }
+        Leaf leaf = (Leaf) node;
+        int pos = upper(leaf.keys, leaf.count, key);
+        System.arraycopy(leaf.keys, pos, leaf.keys, pos+1, leaf.count-pos);
+        System.arraycopy(leaf.values, pos, leaf.values, pos+1, leaf.count-pos);
+        leaf.keys[pos] = key;
+        leaf.values[pos] = value;
+        leaf.count++;
+        size++;
+        if ( leaf.count > order )
+            split_leaf(leaf, depth);
+    }
+
+    /** Деление переполненного листа пополам
+     *
+     * @param leaf - лист
+     * @param depth - глубина листа на пути последнего спуска
+     */
+    protected void split_leaf(Leaf leaf, int depth) {
+        Leaf right = new Leaf(order);
+        int half = leaf.count / 2;
+        right.count = leaf.count - half;
+        System.arraycopy(leaf.keys, half, right.keys, 0, right.count);
+        System.arraycopy(leaf.values, half, right.values, 0, right.count);
+        leaf.count = half;
+        right.next = leaf.next;
+        if ( right.next != null )
+            right.next.prev = right;
+        else
+            last_leaf = right;
+        right.prev = leaf;
+        leaf.next = right;
+        num_of_leaves++;
+        insert_child(depth, right.keys[0], right, right.count);
+    }
+
+    /** Деление переполненного внутреннего узла пополам
+     *
+     * Средний разделитель уходит в отца.
+     *
+     * @param node - узел
+     * @param depth - глубина узла на пути последнего спуска
+     */
+    protected void split_inner(Inner node, int depth) {
+        Inner right = new Inner(order);
+        int half = node.count / 2;
+        right.count = node.count - half;
+        int separator = node.keys[half-1];
+        System.arraycopy(node.keys, half, right.keys, 0, right.count-1);
+        System.arraycopy(node.children, half, right.children, 0, right.count);
+        System.arraycopy(node.counts, half, right.counts, 0, right.count);
+        Arrays.fill(node.children, half, node.count, null);
+        node.count = half;
+        int right_items = 0;
+        for ( int i=0; i<right.count; i++ )
+            right_items += right.counts[i];
+        num_of_inner++;
+        insert_child(depth, separator, right, right_items);
+    }
+
+    /** Вставка нового правого соседа узла пути в отца узла
+     *
+     * Если узел - корень, над ним создается новый корень.
+     *
+     * @param depth - глубина узла, у которого появился правый сосед
+     * @param separator - разделитель между узлом и соседом
+     * @param right - новый сосед
+     * @param right_items - кол-во элементов в поддереве соседа
+     */
+    protected void insert_child(int depth, int separator, BNode right, int right_items) {
+        if ( depth == 0 ) {
+            Inner new_root = new Inner(order);
+            new_root.children[0] = root;
+            new_root.children[1] = right;
+            new_root.keys[0] = separator;
+            new_root.counts[0] = size - right_items;
+            new_root.counts[1] = right_items;
+            new_root.count = 2;
+            root = new_root;
+            height++;
+            num_of_inner++;
+            return;
+        }
+        Inner parent = path_nodes[depth-1];
+        int i = path_index[depth-1];
+        System.arraycopy(parent.keys, i, parent.keys, i+1, parent.count-1-i);
+        System.arraycopy(parent.children, i+1, parent.children, i+2, parent.count-1-i);
+        System.arraycopy(parent.counts, i+1, parent.counts, i+2, parent.count-1-i);
+        parent.keys[i] = separator;
+        parent.children[i+1] = right;
+        parent.counts[i+1] = right_items;
+        parent.counts[i] -= right_items;
+        parent.count++;
+        if ( parent.count > order )
+            split_inner(parent, depth-1);
+    }
+
+    /** Удаление элемента по ключу
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален первый элемент с ключем,
+     *         "FAIL" - элемента с таким ключем нет
+     */
+    @Override
+    public String delete(int key) {
+        Leaf leaf = descend_lower(key);
+        int depth = height - 1;
+        int pos = lower(leaf.keys, leaf.count, key);
+        if ( pos == leaf.count ) {
+            // первый ключ не меньше заданного - в начале следующего листа
+            if ( leaf.next == null ) return "FAIL";
+            leaf = next_leaf_path();
+            pos = 0;
+        }
+        if ( leaf.keys[pos] != key ) return "FAIL";
+        for ( int d=0; d<depth; d++ )
+            path_nodes[d].counts[path_index[d]]--;
+        System.arraycopy(leaf.keys, pos+1, leaf.keys, pos, leaf.count-pos-1);
+        System.arraycopy(leaf.values, pos+1, leaf.values, pos, leaf.count-pos-1);
+        leaf.count--;
+        size--;
+        if ( depth > 0 && leaf.count < min_fill )
+            fix_leaf(leaf, depth);
+        return "SUCCESS";
+    }
+
+    /** Восстановление заполнения листа
+     *
+     * Лист занимает элемент у соседа того же отца, если у того есть
+     * лишние, иначе сливается с ним.
+     *
+     * @param leaf - лист
+     * @param depth - глубина листа на пути последнего спуска (> 0)
+     */
+    protected void fix_leaf(Leaf leaf, int depth) {
+        Inner parent = path_nodes[depth-1];
+        int i = path_index[depth-1];
+        if ( i > 0 ) {
+            Leaf left = (Leaf) parent.children[i-1];
+            if ( left.count > min_fill ) {
+                System.arraycopy(leaf.keys, 0, leaf.keys, 1, leaf.count);
+                System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.count);
+                leaf.keys[0] = left.keys[left.count-1];
+                leaf.values[0] = left.values[left.count-1];
+                leaf.count++;
+                left.count--;
+                parent.counts[i-1]--;
+                parent.counts[i]++;
+                parent.keys[i-1] = leaf.keys[0];
+                return;
+            }
+        }
+        if ( i < parent.count-1 ) {
+            Leaf right = (Leaf) parent.children[i+1];
+            if ( right.count > min_fill ) {
+                leaf.keys[leaf.count] = right.keys[0];
+                leaf.values[leaf.count] = right.values[0];
+                leaf.count++;
+                System.arraycopy(right.keys, 1, right.keys, 0, right.count-1);
+                System.arraycopy(right.values, 1, right.values, 0, right.count-1);
+                right.count--;
+                parent.counts[i]++;
+                parent.counts[i+1]--;
+                parent.keys[i] = right.keys[0];
+                return;
+            }
+        }
+        if ( i > 0 )
+            merge_leaves((Leaf) parent.children[i-1], leaf, i-1, depth-1);
+        else
+            merge_leaves(leaf, (Leaf) parent.children[i+1], i, depth-1);
+    }
+
+    /** Слияние листа с правым соседом
+     *
+     * @param left - лист
+     * @param right - правый сосед (того же отца)
+     * @param i - номер листа left у отца
+     * @param parent_depth - глубина отца на пути последнего спуска
+     */
+    protected void merge_leaves(Leaf left, Leaf right, int i, int parent_depth) {
+        System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+        System.arraycopy(right.values, 0, left.values, left.count, right.count);
+        left.count += right.count;
+        left.next = right.next;
+        if ( left.next != null )
+            left.next.prev = left;
+        else
+            last_leaf = left;
+        num_of_leaves--;
+        remove_child(i, parent_depth);
+    }
+
+    /** Восстановление заполнения внутреннего узла
+     *
+     * Узел занимает сына у соседа того же отца (разделитель проходит
+     * через отца), если у того есть лишние, иначе сливается с ним.
+     *
+     * @param node - узел
+     * @param depth - глубина узла на пути последнего спуска (> 0)
+     */
+    protected void fix_inner(Inner node, int depth) {
+        Inner parent = path_nodes[depth-1];
+        int i = path_index[depth-1];
+        if ( i > 0 ) {
+            Inner left = (Inner) parent.children[i-1];
+            if ( left.count > min_fill ) {
+                System.arraycopy(node.keys, 0, node.keys, 1, node.count-1);
+                System.arraycopy(node.children, 0, node.children, 1, node.count);
+                System.arraycopy(node.counts, 0, node.counts, 1, node.count);
+                node.keys[0] = parent.keys[i-1];
+                node.children[0] = left.children[left.count-1];
+                node.counts[0] = left.counts[left.count-1];
+                parent.keys[i-1] = left.keys[left.count-2];
+                left.children[left.count-1] = null;
+                left.count--;
+                node.count++;
+                parent.counts[i-1] -= node.counts[0];
+                parent.counts[i] += node.counts[0];
+                return;
+            }
+        }
+        if ( i < parent.count-1 ) {
+            Inner right = (Inner) parent.children[i+1];
+            if ( right.count > min_fill ) {
+                int moved = right.counts[0];
+                node.keys[node.count-1] = parent.keys[i];
+                node.children[node.count] = right.children[0];
+                node.counts[node.count] = moved;
+                parent.keys[i] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0, right.count-2);
+                System.arraycopy(right.children, 1, right.children, 0, right.count-1);
+                System.arraycopy(right.counts, 1, right.counts, 0, right.count-1);
+                right.children[right.count-1] = null;
+                right.count--;
+                node.count++;
+                parent.counts[i] += moved;
+                parent.counts[i+1] -= moved;
+                return;
+            }
+        }
+        if ( i > 0 )
+            merge_inner((Inner) parent.children[i-1], node, i-1, depth-1);
+        else
+            merge_inner(node, (Inner) parent.children[i+1], i, depth-1);
+    }
+
+    /** Слияние внутреннего узла с правым соседом
+     *
+     * Разделитель между ними спускается из отца.
+     *
+     * @param left - узел
+     * @param right - правый сосед (того же отца)
+     * @param i - номер узла left у отца
+     * @param parent_depth - глубина отца на пути последнего спуска
+     */
+    protected void merge_inner(Inner left, Inner right, int i, int parent_depth) {
+        left.keys[left.count-1] = path_nodes[parent_depth].keys[i];
+        System.arraycopy(right.keys, 0, left.keys, left.count, right.count-1);
+        System.arraycopy(right.children, 0, left.children, left.count, right.count);
+        System.arraycopy(right.counts, 0, left.counts, left.count, right.count);
+        left.count += right.count;
+        num_of_inner--;
+        remove_child(i, parent_depth);
+    }
+
+    /** Удаление из узла пути сына i+1, слитого с сыном i
+     *
+     * Если отец - корень с одним сыном, корнем становится сын. Если отец
+     * не корень и в нем стало мало сыновей, восстанавливается его
+     * заполнение.
+     *
+     * @param i - номер сына, с которым слит сын i+1
+     * @param depth - глубина узла на пути последнего спуска
+     */
+    protected void remove_child(int i, int depth) {
+        Inner node = path_nodes[depth];
+        node.counts[i] += node.counts[i+1];
+        System.arraycopy(node.keys, i+1, node.keys, i, node.count-2-i);
+        System.arraycopy(node.children, i+2, node.children, i+1, node.count-2-i);
+        System.arraycopy(node.counts, i+2, node.counts, i+1, node.count-2-i);
+        node.count--;
+        node.children[node.count] = null;
+        if ( depth == 0 ) {
+            if ( node.count == 1 ) {
+                root = node.children[0];
+                height--;
+                num_of_inner--;
+            }
+        }
+        else if ( node.count < min_fill )
+            fix_inner(node, depth);
+    }
+
+    /** Возвращает элемент по индексу в порядке возрастания ключей
+     *
+     * @param index - индекс
+     * @return "FAIL" - если был введен недопустимый индекс
+     *         "key: X, value: Y", где X - ключ элемента, Y - соотв. значение
+     */
+    @Override
+    public String get_at(int index) {
+        if ( index < 0 || index >= size ) return "FAIL";
+        BNode node = root;
+        while ( node instanceof Inner ) {
+            Inner inner = (Inner) node;
+            int i = 0;
+            while ( index >= inner.counts[i] ) {
+                index -= inner.counts[i];
+                i++;
+            }
+            node = inner.children[i];
+        }
+        Leaf leaf = (Leaf) node;
+        return "key: "+leaf.keys[index]+", value: "+leaf.values[index];
+    }
+
+    /** Кол-во элементов с ключем меньше заданного
+     *
+     * Сумма кол-в элементов сыновей левее пути спуска плюс позиция
+     * ключа в листе.
+     *
+     * @param key - ключ
+     * @return "X", X - кол-во элементов
+     */
+    public String rank(int key) {
+        int result = 0;
+        BNode node = root;
+        while ( node instanceof Inner ) {
+            Inner inner = (Inner) node;
+            int i = lower(inner.keys, inner.count-1, key);
+            for ( int j=0; j<i; j++ )
+                result += inner.counts[j];
+            node = inner.children[i];
+        }
+        Leaf leaf = (Leaf) node;
+        return String.valueOf(result + lower(leaf.keys, leaf.count, key));
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        if ( size == 0 ) return "NOT EXISTS";
+        return "key: "+first_leaf.keys[0]+", value: "+first_leaf.values[0];
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        if ( size == 0 ) return "NOT EXISTS";
+        int last = last_leaf.count - 1;
+        return "key: "+last_leaf.keys[last]+", value: "+last_leaf.values[last];
+    }
+
+    /** Получить текстовое изображение дерева.
+     *
+     * Ключи всех элементов по возрастанию - проход по списку листьев.
+     *
+     * @return строка ключей
+     */
+    @Override
+    public String get_data() {
+        if ( size == 0 ) return "tree is empty";
+        StringBuilder stringB = new StringBuilder();
+        for ( Leaf leaf = first_leaf; leaf != null; leaf = leaf.next )
+            for ( int i=0; i<leaf.count; i++ ) {
+                stringB.append(leaf.keys[i]);
+                stringB.append(' ');
+            }
+        return stringB.toString();
+    }
+
+    /** Получить упрощенное текстовое изображение дерева.
+     *
+     * Узлы по уровням, строка на уровень: внутренний узел - разделители
+     * в круглых скобках, лист - ключи в квадратных.
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data_simple() {
+        if ( size == 0 ) return "tree is empty";
+        StringBuilder stringB = new StringBuilder();
+        List<BNode> level = new ArrayList<>();
+        level.add(root);
+        while ( !level.isEmpty() ) {
+            List<BNode> next_level = new ArrayList<>();
+            for ( BNode node : level ) {
+                if ( node instanceof Inner ) {
+                    Inner inner = (Inner) node;
+                    stringB.append('(');
+                    for ( int i=0; i<inner.count-1; i++ ) {
+                        if ( i > 0 ) stringB.append(' ');
+                        stringB.append(inner.keys[i]);
+                    }
+                    stringB.append(") ");
+                    for ( int i=0; i<inner.count; i++ )
+                        next_level.add(inner.children[i]);
+                }
+                else {
+                    Leaf leaf = (Leaf) node;
+                    stringB.append('[');
+                    for ( int i=0; i<leaf.count; i++ ) {
+                        if ( i > 0 ) stringB.append(' ');
+                        stringB.append(leaf.keys[i]);
+                    }
+                    stringB.append("] ");
+                }
+            }
+            level = next_level;
+            if ( !level.isEmpty() )
+                stringB.append(NL);
+        }
+        return stringB.toString();
+    }
+
+    /** Получить текущее состояние дерева.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        return "size = "+size+"  order = "+order+"  height = "+height
+                + "  leaves = "+num_of_leaves+"  inner_nodes = "+num_of_inner
+                + "  leaf_fill = "+(100L * size / ((long)num_of_leaves * order))+"%";
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "B+tree";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+
+
+    /** Узел B+дерева
+     *
+     * @author Akropon
+     */
+    protected abstract static class BNode {
+        protected int count; // кол-во элементов листа или сыновей внутреннего узла
+    }
+
+    /** Лист B+дерева
+     *
+     * Массивы на один элемент длиннее порядка: элемент вставляется до
+     * деления листа.
+     *
+     * @author Akropon
+     */
+    protected static final class Leaf extends BNode {
+        protected final int[] keys;     // ключи по неубыванию
+        protected final int[] values;   // соотв. значения
+        protected Leaf next;            // следующий лист
+        protected Leaf prev;            // предыдущий лист
+
+        protected Leaf(int order) {
+            keys = new int[order+1];
+            values = new int[order+1];
+        }
+    }
+
+    /** Внутренний узел B+дерева
+     *
+     * Массивы на один элемент длиннее порядка: сын вставляется до
+     * деления узла.
+     *
+     * @author Akropon
+     */
+    protected static final class Inner extends BNode {
+        protected final int[] keys;         // разделители (count-1 штук)
+        protected final BNode[] children;   // сыновья
+        protected final int[] counts;       // кол-во элементов в поддереве каждого сына
+
+        protected Inner(int order) {
+            keys = new int[order];
+            children = new BNode[order+1];
+            counts = new int[order+1];
+        }
+    }
+}
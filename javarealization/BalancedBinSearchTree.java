@@ -0,0 +1,215 @@
+package javarealization;
+
+/** Сбалансированное (АВЛ) двоичное дерево поиска.
+ *
+ * То же двоичное дерево поиска (с повтором ключей и ссылками на отцов),
+ * но после каждой вставки и каждого удаления дерево балансируется: высоты
+ * поддеревьев любого узла отличаются не больше чем на 1. Поэтому глубина
+ * дерева не больше ~1.44 log2(n) при любом порядке ключей, в т.ч. при
+ * возрастающих и убывающих ключах, на которых обычное дерево
+ * вырождается в список.
+ *
+ * Узел хранит высоту своего поддерева (AVLNode). После вставки листа или
+ * исключения узла высоты пересчитываются вверх до корня, и в каждом
+ * узле с разницей высот 2 выполняется малый или большой поворот.
+ * Повороты сохраняют ссылки на отцов и кол-ва узлов поддеревьев.
+ *
+ * Элементы с равными ключами при поворотах могут оказаться по обе
+ * стороны друг от друга; find и delete находят любой из них.
+ *
+ * @author Akropon
+ */
+public class BalancedBinSearchTree extends BinSearchTree{
+    protected long rotations;   // кол-во выполненных поворотов
+
+    /** Конструктор.
+     *
+     * Создает пустое дерево.
+     */
+    public BalancedBinSearchTree() {
+        super();
+        rotations = 0;
+    }
+
+    @Override
+    protected Node new_node(int key, int value, Node father) {
+        return new AVLNode(key, value, father);
+    }
+
+    /** Добавление нового элемента с заданным ключем и значением
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        Node node = insert_node(key, value);
+        rebalance(node.father);
+    }
+
+    /** Удаление элемента по ключу
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int key) {
+        Node node = find_node(key);
+        if ( node == null ) return "FAIL";
+        rebalance(remove_node(node));
+        return "SUCCESS";
+    }
+
+    /** Высота поддерева
+     *
+     * @param node - корень поддерева (может быть null)
+     * @return высота (0 - пустое поддерево)
+     */
+    protected static int height(Node node) {
+        return node == null ? 0 : ((AVLNode) node).height;
+    }
+
+    /** Пересчет высоты узла по высотам сыновей
+     *
+     * @param node - узел
+     */
+    protected static void update_height(Node node) {
+        ((AVLNode) node).height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    /** Разница высот правого и левого поддеревьев
+     *
+     * @param node - узел
+     * @return баланс узла
+     */
+    protected static int balance(Node node) {
+        return height(node.right) - height(node.left);
+    }
+
+    /** Балансировка от узла до корня
+     *
+     * @param node - первый узел, высота которого могла измениться
+     * (null - ничего не делать)
+     */
+    protected void rebalance(Node node) {
+        while ( node != null ) {
+            update_height(node);
+            int node_balance = balance(node);
+            if ( node_balance > 1 ) {
+                if ( balance(node.right) < 0 )
+                    rotate_right(node.right);
+                node = rotate_left(node);
+            }
+            else if ( node_balance < -1 ) {
+                if ( balance(node.left) > 0 )
+                    rotate_left(node.left);
+                node = rotate_right(node);
+            }
+            node = node.father;
+        }
+    }
+
+    /** Малый левый поворот
+     *
+     * Правый сын узла занимает его место, узел становится его левым сыном.
+     *
+     * @param node - узел (с правым сыном)
+     * @return узел, занявший место node
+     */
+    protected Node rotate_left(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        if ( pivot.left != null )
+            pivot.left.father = node;
+        replace_child(node, pivot);
+        pivot.left = node;
+        node.father = pivot;
+        update_height(node);
+        update_height(pivot);
+        update_size(node);
+        update_size(pivot);
+        rotations++;
+        return pivot;
+    }
+
+    /** Малый правый поворот
+     *
+     * Левый сын узла занимает его место, узел становится его правым сыном.
+     *
+     * @param node - узел (с левым сыном)
+     * @return узел, занявший место node
+     */
+    protected Node rotate_right(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        if ( pivot.right != null )
+            pivot.right.father = node;
+        replace_child(node, pivot);
+        pivot.right = node;
+        node.father = pivot;
+        update_height(node);
+        update_height(pivot);
+        update_size(node);
+        update_size(pivot);
+        rotations++;
+        return pivot;
+    }
+
+    /** Получить текущее состояние дерева.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        return "size = "+size(root)+"  height = "+height(root)
+                + "  rotations = "+rotations;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "binary search tree (AVL)";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в упрощенном текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+
+
+    /** Узел АВЛ-дерева
+     *
+     * @author Akropon
+     */
+    public static class AVLNode extends Node {
+        public int height; // высота поддерева с корнем в этом узле
+
+        /** Конструктор
+         *
+         * Создает лист с заданными ключем, значением и отцом.
+         *
+         * @param key - ключ
+         * @param value - значение
+         * @param father - отец
+         */
+        public AVLNode(int key, int value, Node father) {
+            super(key, value, father);
+            height = 1;
+        }
+    }
+}
@@ -8,6 +8,9 @@ package javarealization;
  * Поддерживает возможность повтора элементов (т.е. в структуре могут 
  * одновременно присутствовать элементы с совпадающими ключами и/или значениями).
  * Присутствует внутреклассовая реализация узла дерева "Node".
+ * Каждый узел хранит кол-во узлов своего поддерева, поэтому элемент по
+ * индексу в порядке возрастания ключей (get_at) и кол-во элементов с
+ * меньшим ключем (rank) находятся за один спуск от корня.
  *
  * @author Akropon
  */
@@ -61,24 +64,48 @@ public class BinSearchTree implements Struct{
      */
     @Override
     public void add(int key, int value) {
+        insert_node(key, value);
+    }
+    
+    /** Создание узла
+     * 
+     * Наследники переопределяют, чтобы хранить в узле дополнительные поля.
+     * 
+     * @param key - ключ
+     * @param value - значение
+     * @param father - отец (null - корень)
+     * @return новый узел
+     */
+    protected Node new_node(int key, int value, Node father) {
+        return new Node(key, value, father);
+    }
+    
+    /** Вставка нового листа с заданным ключем и значением
+     * 
+     * @param key - ключ
+     * @param value - значение
+     * @return вставленный узел
+     */
+    protected Node insert_node(int key, int value) {
         if (root == null) {
-            root = new Node(key, value);
-            return;
+            root = new_node(key, value, null);
+            return root;
         }
         
         Node node = root;
         while (true) {
+            node.size++;
             if ( key >= node.key ) {
                 if ( node.right == null ) {
-                    node.right = new Node(key, value, node);
-                    return;
+                    node.right = new_node(key, value, node);
+                    return node.right;
                 }
                 else 
                     node = node.right;
             } else { // key < node.key
                 if ( node.left == null ) {
-                    node.left = new Node(key, value, node);
-                    return;
+                    node.left = new_node(key, value, node);
+                    return node.left;
                 }
                 else 
                     node = node.left;
@@ -93,78 +120,109 @@ public class BinSearchTree implements Struct{
      */
     @Override
     public String delete(int key) {
-        if (root == null) {
-            return "FAIL";
-        }
-        
+        Node node = find_node(key);
+        if ( node == null ) return "FAIL";
+        remove_node(node);
+        return "SUCCESS";
+    }
+    
+    /** Поиск узла по ключу
+     * 
+     * @param key - ключ
+     * @return первый встреченный от корня узел с ключем key, null - нет такого
+     */
+    protected Node find_node(int key) {
         Node node = root;
-        while (true) {
-            if ( key == node.key ) {
-                if ( node.left == null && node.right == null ) {
-                    if ( node == root ) {
-                        root = null;
-                        return "SUCCESS";
-                    }
-                    // node != root
-                    if ( node == node.father.right )
-                        node.father.right = null;
-                    else
-                        node.father.left = null;
-                    return "SUCCESS";
-                }
-                if ( node.left != null && node.right == null) {
-                    if ( node == root ) {
-                        root = node.left;
-                        return "SUCCESS";
-                    }
-                    // node != root
-                    if ( node == node.father.right ) {
-                        node.father.right = node.left;
-                        node.left.father = node.father;
-                    }
-                    else {
-                        node.father.left = node.left;
-                        node.left.father = node.father;
-                    }
-                    return "SUCCESS";
-                }
-                if ( node.left == null && node.right != null) {
-                    if ( node == root ) {
-                        root = node.right;
-                        return "SUCCESS";
-                    }
-                    // node != root
-                    if ( node == node.father.right ) {
-                        node.father.right = node.right;
-                        node.right.father = node.father;
-                    }
-                    else {
-                        node.father.left = node.right;
-                        node.right.father = node.father;
-                    }
-                    return "SUCCESS";
-                }
-                
-                // node.left != null && node.right != null
-                Node rstmn = node.right; // rstmn - RightSonTree-Min-Node
-                while(rstmn.left != null) 
-                    rstmn = rstmn.left;
-                rstmn.father.right = rstmn.right;
-                node.key = rstmn.key;
-                node.value = rstmn.value;
-                return "SUCCESS";
-            }
+        while ( node != null ) {
+            if ( key == node.key )
+                return node;
             if ( key > node.key )
-                if ( node.right == null )
-                    return "FAIL";
-                else 
-                    node = node.right;
+                node = node.right;
             else // key < node.key
-                if ( node.left == null )
-                    return "FAIL";
-                else 
-                    node = node.left;
+                node = node.left;
+        }
+        return null;
+    }
+    
+    /** Замена сына отца узла (или корня) другим узлом
+     * 
+     * @param node - узел, место которого занимается
+     * @param child - узел, занимающий место (может быть null)
+     */
+    protected void replace_child(Node node, Node child) {
+        if ( child != null )
+            child.father = node.father;
+        if ( node.father == null )
+            root = child;
+        else if ( node == node.father.left )
+            node.father.left = child;
+        else
+            node.father.right = child;
+    }
+    
+    /** Исключение узла из дерева
+     * 
+     * Узел с одним сыном (или без сыновей) заменяется этим сыном. У узла с
+     * двумя сыновьями ключ и значение заменяются ключем и значением узла с
+     * минимальным ключем правого поддерева, а исключается тот узел.
+     * 
+     * @param node - узел
+     * @return отец фактически исключенного узла (null - исключен корень)
+     */
+    protected Node remove_node(Node node) {
+        if ( node.left != null && node.right != null ) {
+            Node rstmn = node.right; // rstmn - RightSonTree-Min-Node
+            while(rstmn.left != null) 
+                rstmn = rstmn.left;
+            node.key = rstmn.key;
+            node.value = rstmn.value;
+            node = rstmn;
+        }
+        // у node не больше одного сына
+        Node father = node.father;
+        replace_child(node, node.left != null ? node.left : node.right);
+        for ( Node cur = father; cur != null; cur = cur.father )
+            cur.size--;
+        return father;
+    }
+    
+    /** Кол-во узлов поддерева
+     * 
+     * @param node - корень поддерева (может быть null)
+     * @return кол-во узлов (0 - пустое поддерево)
+     */
+    protected static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+    
+    /** Пересчет кол-ва узлов поддерева по сыновьям
+     * 
+     * @param node - узел
+     */
+    protected static void update_size(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+    
+    /** Кол-во элементов с ключем меньше заданного
+     * 
+     * Это индекс, под которым get_at вернет первый элемент с ключем не 
+     * меньше заданного.
+     * 
+     * @param key - ключ
+     * @return "X", X - кол-во элементов
+     */
+    public String rank(int key) {
+        int res = 0;
+        Node node = root;
+        while ( node != null ) {
+            if ( key <= node.key )
+                node = node.left;
+            else {
+                res += size(node.left) + 1;
+                node = node.right;
+            }
         }
+        return String.valueOf(res);
     }
     
     /** Получить элемент с минимальным ключем
@@ -430,22 +488,38 @@ public class BinSearchTree implements Struct{
         return "binary search tree";
     }
     
-    /** Заглушка для неподдерживаемого метода
+    /** Получить текущее состояние дерева.
+     * 
+     * Высота считается обходом всего дерева.
      * 
-     * @return сообщение об ошибке
+     * @return строка состояния структуры
      */
     @Override
     public String get_state() {
-        return "Command is not supported for this structure";
+        return "size = "+size(root)+"  height = "+get_depth();
     }
     
-    /** Заглушка для неподдерживаемого метода
+    /** Возвращает элемент по индексу в порядке возрастания ключей
      * 
-     * @return сообщение об ошибке
+     * @param index - индекс
+     * @return "FAIL" - если был введен недопустимый индекс
+     *         "key: X, value: Y", где X - ключ элемента, Y - соотв. значение
      */
     @Override
     public String get_at(int index) {
-        return "Command is not supported for this structure";
+        if ( index < 0 || index >= size(root) ) return "FAIL";
+        Node node = root;
+        while ( true ) {
+            int left_size = size(node.left);
+            if ( index == left_size )
+                return "key: "+node.key+", value: "+node.value;
+            if ( index < left_size )
+                node = node.left;
+            else {
+                index -= left_size + 1;
+                node = node.right;
+            }
+        }
     }
     
     /** Метод получения полной информации по структуре.
@@ -474,6 +548,7 @@ public class BinSearchTree implements Struct{
         public Node right;  // Правый сын
         public int key;  // ключ
         public int value;  // значение
+        public int size;  // кол-во узлов в поддереве с корнем в этом узле
         
         /** Конструктор
          * 
@@ -483,6 +558,7 @@ public class BinSearchTree implements Struct{
             father = left = right = null; // нулевые указатели
             key = 0;  // нулевой ключ
             value = 0;  // нулевое значение
+            size = 1;  // только сам узел
         }
         
         /** Конструктор
@@ -496,6 +572,7 @@ public class BinSearchTree implements Struct{
             father = left = right = null;
             this.key = key;  
             this.value = value;
+            this.size = 1;
         }
         
         /** Конструктор
@@ -512,6 +589,7 @@ public class BinSearchTree implements Struct{
             this.father = father;
             this.key = key;  
             this.value = value;
+            this.size = 1;
         }
     }
 }
\ No newline at end of file
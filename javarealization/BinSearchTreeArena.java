@@ -0,0 +1,452 @@
+package javarealization;
+
+import java.util.Arrays;
+
+/** Двоичное дерево поиска в массивах.
+ *
+ * То же двоичное дерево поиска, что и BinSearchTree (левый сын меньше
+ * отца, повтор ключей, get_at и rank по кол-вам узлов поддеревьев), но
+ * узлы - не объекты, а строки параллельных массивов key[], value[],
+ * left[], right[], parent[] и size[]. Узел - это его индекс (номер
+ * строки), отсутствие узла - NIL. Узел занимает 24 байта против ~40
+ * байт объекта Node, в куче лишь несколько массивов, а соседние по
+ * времени вставки узлы лежат рядом в памяти.
+ *
+ * Строки, освобожденные при удалении, собираются в список свободных
+ * строк (связанный через left[]) и используются повторно. При
+ * заполнении массивы расширяются вдвое.
+ *
+ * @author Akropon
+ */
+public class BinSearchTreeArena implements Struct{
+    protected int[] key;        // ключи узлов
+    protected int[] value;      // значения узлов
+    protected int[] left;       // левые сыновья (в свободной строке - следующая свободная)
+    protected int[] right;      // правые сыновья
+    protected int[] parent;     // отцы
+    protected int[] size;       // кол-ва узлов в поддеревьях
+    protected int root;         // корень дерева
+    protected int capacity;     // кол-во строк в массивах
+    protected int rows_used;    // кол-во когда-либо занятых строк
+    protected int free_head;    // первая строка списка свободных строк
+    protected int free_rows;    // кол-во строк в списке свободных строк
+
+    // признак отсутствия узла
+    protected static final int NIL = -1;
+    // начальное кол-во строк
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Конструктор.
+     *
+     * Создает пустое дерево.
+     */
+    public BinSearchTreeArena() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Конструктор.
+     *
+     * Создает пустое дерево с местом под заданное кол-во узлов.
+     *
+     * @param capacity - начальное кол-во строк (>= 1)
+     */
+    public BinSearchTreeArena(int capacity) {
+        if ( capacity < 1 ) capacity = 1;
+        this.capacity = capacity;
+        this.key = new int[capacity];
+        this.value = new int[capacity];
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.parent = new int[capacity];
+        this.size = new int[capacity];
+        this.root = NIL;
+        this.rows_used = 0;
+        this.free_head = NIL;
+        this.free_rows = 0;
+    }
+
+    /** Получение строки под новый узел
+     *
+     * Берется из списка свободных строк, иначе - следующая незанятая,
+     * при необходимости массивы расширяются вдвое.
+     *
+     * @param k - ключ
+     * @param v - значение
+     * @param father - отец (NIL - корень)
+     * @return индекс узла
+     */
+    protected int alloc_node(int k, int v, int father) {
+        int node;
+        if ( free_head != NIL ) {
+            node = free_head;
+            free_head = left[node];
+            free_rows--;
+        }
+        else {
+            if ( rows_used == capacity ) {
+                if ( capacity == Integer.MAX_VALUE )
+                    throw new IllegalStateException("tree arena is full");
+                capacity = (int)Math.min((long)capacity * 2, Integer.MAX_VALUE);
+                key = Arrays.copyOf(key, capacity);
+                value = Arrays.copyOf(value, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                size = Arrays.copyOf(size, capacity);
+            }
+            node = rows_used++;
+        }
+        key[node] = k;
+        value[node] = v;
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = father;
+        size[node] = 1;
+        return node;
+    }
+
+    /** Возврат строки в список свободных строк
+     *
+     * @param node - индекс узла
+     */
+    protected void free_node(int node) {
+        left[node] = free_head;
+        free_head = node;
+        free_rows++;
+    }
+
+    /** Поиск по ключу.
+     *
+     * @param k - ключ
+     * @return "key: X, value: Y" - найден,
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int k) {
+        int node = find_node(k);
+        if ( node == NIL ) return "NOT FOUND";
+        return "key: "+key[node]+", value: "+value[node];
+    }
+
+    /** Поиск узла по ключу
+     *
+     * @param k - ключ
+     * @return первый встреченный от корня узел с ключем k, NIL - нет такого
+     */
+    protected int find_node(int k) {
+        int node = root;
+        while ( node != NIL ) {
+            int node_key = key[node];
+            if ( k == node_key )
+                return node;
+            node = k > node_key ? right[node] : left[node];
+        }
+        return NIL;
+    }
+
+    /** Добавление нового элемента с заданным ключем и значением
+     *
+     * @param k - ключ
+     * @param v - значение
+     */
+    @Override
+    public void add(int k, int v) {
+        if ( root == NIL ) {
+            root = alloc_node(k, v, NIL);
+            return;
+        }
+        int node = root;
+        while (true) {
+            size[node]++;
+            if ( k >= key[node] ) {
+                if ( right[node] == NIL ) {
+                    int child = alloc_node(k, v, node);
+                    right[node] = child;
+                    return;
+                }
+                node = right[node];
+            } else { // k < key[node]
+                if ( left[node] == NIL ) {
+                    int child = alloc_node(k, v, node);
+                    left[node] = child;
+                    return;
+                }
+                node = left[node];
+            }
+        }
+    }
+
+    /** Замена сына отца узла (или корня) другим узлом
+     *
+     * @param node - узел, место которого занимается
+     * @param child - узел, занимающий место (может быть NIL)
+     */
+    protected void replace_child(int node, int child) {
+        int father = parent[node];
+        if ( child != NIL )
+            parent[child] = father;
+        if ( father == NIL )
+            root = child;
+        else if ( node == left[father] )
+            left[father] = child;
+        else
+            right[father] = child;
+    }
+
+    /** Удаление элемента по ключу
+     *
+     * Как в BinSearchTree: у узла с двумя сыновьями ключ и значение
+     * заменяются ключем и значением узла с минимальным ключем правого
+     * поддерева, а исключается тот узел.
+     *
+     * @param k - ключ
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int k) {
+        int node = find_node(k);
+        if ( node == NIL ) return "FAIL";
+        if ( left[node] != NIL && right[node] != NIL ) {
+            int rstmn = right[node]; // rstmn - RightSonTree-Min-Node
+            while ( left[rstmn] != NIL )
+                rstmn = left[rstmn];
+            key[node] = key[rstmn];
+            value[node] = value[rstmn];
+            node = rstmn;
+        }
+        // у node не больше одного сына
+        replace_child(node, left[node] != NIL ? left[node] : right[node]);
+        for ( int cur = parent[node]; cur != NIL; cur = parent[cur] )
+            size[cur]--;
+        free_node(node);
+        return "SUCCESS";
+    }
+
+    /** Кол-во узлов поддерева
+     *
+     * @param node - корень поддерева (может быть NIL)
+     * @return кол-во узлов (0 - пустое поддерево)
+     */
+    protected int size_of(int node) {
+        return node == NIL ? 0 : size[node];
+    }
+
+    /** Возвращает элемент по индексу в порядке возрастания ключей
+     *
+     * @param index - индекс
+     * @return "FAIL" - если был введен недопустимый индекс
+     *         "key: X, value: Y", где X - ключ элемента, Y - соотв. значение
+     */
+    @Override
+    public String get_at(int index) {
+        if ( index < 0 || index >= size_of(root) ) return "FAIL";
+        int node = root;
+        while ( true ) {
+            int left_size = size_of(left[node]);
+            if ( index == left_size )
+                return "key: "+key[node]+", value: "+value[node];
+            if ( index < left_size )
+                node = left[node];
+            else {
+                index -= left_size + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    /** Кол-во элементов с ключем меньше заданного
+     *
+     * @param k - ключ
+     * @return "X", X - кол-во элементов
+     */
+    public String rank(int k) {
+        int res = 0;
+        int node = root;
+        while ( node != NIL ) {
+            if ( k <= key[node] )
+                node = left[node];
+            else {
+                res += size_of(left[node]) + 1;
+                node = right[node];
+            }
+        }
+        return String.valueOf(res);
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        if ( root == NIL ) return "NOT EXISTS";
+        int node = root;
+        while ( left[node] != NIL )
+            node = left[node];
+        return "key: "+key[node]+", value: "+value[node];
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        if ( root == NIL ) return "NOT EXISTS";
+        int node = root;
+        while ( right[node] != NIL )
+            node = right[node];
+        return "key: "+key[node]+", value: "+value[node];
+    }
+
+    /** Получить глубину дерева
+     *
+     * Обход по ссылкам на отцов, без рекурсии.
+     *
+     * @return X >= 0 - глубина
+     */
+    int get_depth() {
+        int max_depth = 0;
+        int depth = 0;
+        int node = root;
+        int from = NIL; // узел, из которого пришли
+        while ( node != NIL ) {
+            int next;
+            if ( from == parent[node] ) {
+                depth++;
+                if ( depth > max_depth ) max_depth = depth;
+                next = left[node] != NIL ? left[node]
+                     : right[node] != NIL ? right[node] : parent[node];
+            }
+            else if ( from == left[node] && right[node] != NIL )
+                next = right[node];
+            else
+                next = parent[node];
+            if ( next == parent[node] ) depth--;
+            from = node;
+            node = next;
+        }
+        return max_depth;
+    }
+
+    /** Получить текстовое изображение дерева
+     *
+     * Изображение строится по временной копии дерева в узлах
+     * BinSearchTree, чтобы не повторять отрисовку.
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data() {
+        return to_node_tree().get_data();
+    }
+
+    /** Копия дерева в узлах BinSearchTree
+     *
+     * @return дерево той же формы
+     */
+    protected BinSearchTree to_node_tree() {
+        BinSearchTree tree = new BinSearchTree();
+        if ( root == NIL ) return tree;
+        BinSearchTree.Node[] nodes = new BinSearchTree.Node[rows_used];
+        // каждый узел создается раньше своих сыновей: обходим от корня
+        int[] stack = new int[size[root]];
+        int top = 0;
+        stack[top++] = root;
+        nodes[root] = new BinSearchTree.Node(key[root], value[root]);
+        tree.root = nodes[root];
+        while ( top > 0 ) {
+            int node = stack[--top];
+            BinSearchTree.Node copy = nodes[node];
+            copy.size = size[node];
+            if ( left[node] != NIL ) {
+                copy.left = nodes[left[node]] =
+                        new BinSearchTree.Node(key[left[node]], value[left[node]], copy);
+                stack[top++] = left[node];
+            }
+            if ( right[node] != NIL ) {
+                copy.right = nodes[right[node]] =
+                        new BinSearchTree.Node(key[right[node]], value[right[node]], copy);
+                stack[top++] = right[node];
+            }
+        }
+        return tree;
+    }
+
+    /** Получить упрощенное текстовое изображение дерева
+     *
+     * Прямой обход в том же формате, что и у BinSearchTree.
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data_simple() {
+        if ( root == NIL ) return "tree is empty";
+        StringBuilder stringB = new StringBuilder();
+        int node = root;
+        int from = NIL; // узел, из которого пришли
+        while ( true ) {
+            if ( from == parent[node] ) {
+                stringB.append(key[node]);
+                if ( left[node] != NIL ) {
+                    stringB.append("L");
+                    from = node;
+                    node = left[node];
+                    continue;
+                }
+                from = left[node]; // как будто вернулись из левого поддерева
+            }
+            if ( from == left[node] && right[node] != NIL ) {
+                stringB.append("R");
+                from = node;
+                node = right[node];
+                continue;
+            }
+            if ( parent[node] == NIL ) return stringB.toString();
+            stringB.append("P");
+            from = node;
+            node = parent[node];
+        }
+    }
+
+    /** Получить текущее состояние дерева.
+     *
+     * Высота считается обходом всего дерева.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        return "size = "+size_of(root)+"  height = "+get_depth()
+                + "  capacity = "+capacity+"  free_rows = "+free_rows;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "binary search tree (node arena)";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры и содержимое структуры
+    * в упрощенном текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+}
@@ -44,9 +44,34 @@ public class Executor {
     protected static final String CMD_DATASIMPLE = "datasimple";
     protected static final String CMD_STATE = "state";
     protected static final String CMD_PRINT = "print";
+    protected static final String CMD_CHAINS = "chains";
+    protected static final String CMD_FREEZE = "freeze";
+    protected static final String CMD_DELKEY = "delkey";
+    protected static final String CMD_DELRANGE = "delrange";
+    protected static final String CMD_ADDBATCH = "addbatch";
+    protected static final String CMD_SYNC = "sync";
+    protected static final String CMD_RANK = "rank";
     protected static final String ARG_HT = "ht";
     protected static final String ARG_SA = "sa";
     protected static final String ARG_BST = "bst";
+    protected static final String ARG_OA = "oa";
+    protected static final String ARG_OH = "oh";
+    protected static final String ARG_CHT = "cht";
+    protected static final String ARG_CK = "ck";
+    protected static final String ARG_POW2 = "pow2";
+    protected static final String ARG_TREE = "tree";
+    protected static final String ARG_POOL = "pool";
+    protected static final String ARG_GAP = "gap";
+    protected static final String ARG_EYTZ = "eytz";
+    protected static final String ARG_LEARN = "learn";
+    protected static final String ARG_VEC = "vec";
+    protected static final String ARG_CONC = "conc";
+    protected static final String ARG_BALANCED = "balanced";
+    protected static final String ARG_ARENA = "arena";
+    protected static final String ARG_SPLAY = "splay";
+    protected static final String ARG_LSM = "lsm";
+    protected static final String ARG_MSA = "msa";
+    protected static final String ARG_BPT = "bpt";
     
     /** Конструктор.
      * 
@@ -71,6 +96,13 @@ public class Executor {
         command_map.put(CMD_DATASIMPLE, (CommandContainer) (String [] words) -> cmd_datasimple(words));
         command_map.put(CMD_STATE, (CommandContainer) (String [] words) -> cmd_state(words));
         command_map.put(CMD_PRINT, (CommandContainer) (String [] words) -> cmd_print(words));
+        command_map.put(CMD_CHAINS, (CommandContainer) (String [] words) -> cmd_chains(words));
+        command_map.put(CMD_FREEZE, (CommandContainer) (String [] words) -> cmd_freeze(words));
+        command_map.put(CMD_DELKEY, (CommandContainer) (String [] words) -> cmd_delkey(words));
+        command_map.put(CMD_DELRANGE, (CommandContainer) (String [] words) -> cmd_delrange(words));
+        command_map.put(CMD_ADDBATCH, (CommandContainer) (String [] words) -> cmd_addbatch(words));
+        command_map.put(CMD_SYNC, (CommandContainer) (String [] words) -> cmd_sync(words));
+        command_map.put(CMD_RANK, (CommandContainer) (String [] words) -> cmd_rank(words));
     }
      
     /** Запуск обработчика.
@@ -117,12 +149,22 @@ public class Executor {
     
     
     /** Закрытия входного и выходного потока.
+     * 
+     * Заодно освобождает ресурсы текущей структуры, если она их держит.
      * 
      * @return true - успех, false - не удалось
      */
     protected boolean closing_files() {
         boolean success = true;      
         
+        try {
+            if ( struct instanceof AutoCloseable )
+                ((AutoCloseable) struct).close();
+        } catch (Exception e) {
+            System.out.println("Error closing structure:\n"+e.toString()+"\n");
+            success = false;
+        }
+        
         try {
             in.close();
         } catch (IOException e) {
@@ -199,18 +241,147 @@ public class Executor {
      * @throws Exception, если команда введена некорректно
      */
     protected String cmd_new(String [] words) throws Exception{
-        if ( words[1].compareTo(ARG_HT) == 0)
-            struct = new HTableChain(Integer.parseInt(words[2]));
-        else if ( words[1].compareTo(ARG_BST) == 0 )
-            struct = new BinSearchTree();
+        Struct old_struct = struct;
+        if ( words[1].compareTo(ARG_HT) == 0) {
+            if ( words.length > 5 ) {
+                HashStrategy strategy = HashStrategy.by_name(words[5]);
+                if ( strategy == null ) throw new Exception();
+                for ( int i=6; i<words.length; i++ )
+                    if ( words[i].compareTo(ARG_POW2) != 0 && words[i].compareTo(ARG_TREE) != 0
+                         && words[i].compareTo(ARG_POOL) != 0 )
+                        throw new Exception();
+                if ( has_flag(words, 6, ARG_POOL) ) {
+                    // цепочки в пуле массивов не превращаются в деревья
+                    if ( has_flag(words, 6, ARG_TREE) ) throw new Exception();
+                    struct = new HTableChainPooled(Integer.parseInt(words[2]),
+                                                   Float.parseFloat(words[3]),
+                                                   Float.parseFloat(words[4]),
+                                                   strategy,
+                                                   has_flag(words, 6, ARG_POW2));
+                }
+                else
+                    struct = new HTableChain(Integer.parseInt(words[2]),
+                                             Float.parseFloat(words[3]),
+                                             Float.parseFloat(words[4]),
+                                             strategy,
+                                             has_flag(words, 6, ARG_POW2),
+                                             has_flag(words, 6, ARG_TREE));
+            }
+            else if ( words.length > 3 )
+                struct = new HTableChain(Integer.parseInt(words[2]),
+                                         Float.parseFloat(words[3]),
+                                         words.length > 4 ? Float.parseFloat(words[4]) : 0);
+            else
+                struct = new HTableChain(Integer.parseInt(words[2]));
+        }
+        else if ( words[1].compareTo(ARG_OA) == 0 )
+            struct = new HTableRobinHood(Integer.parseInt(words[2]));
+        else if ( words[1].compareTo(ARG_OH) == 0 )
+            struct = new HTableOffHeap(Integer.parseInt(words[2]));
+        else if ( words[1].compareTo(ARG_CK) == 0 )
+            struct = new HTableCuckoo(Integer.parseInt(words[2]));
+        else if ( words[1].compareTo(ARG_CHT) == 0 ) {
+            if ( words.length > 3 )
+                struct = new HTableConcurrent(Integer.parseInt(words[2]),
+                                              Integer.parseInt(words[3]));
+            else
+                struct = new HTableConcurrent(Integer.parseInt(words[2]));
+        }
+        else if ( words[1].compareTo(ARG_BST) == 0 ) {
+            if ( words.length > 2 && words[2].compareTo(ARG_BALANCED) == 0 )
+                struct = new BalancedBinSearchTree();
+            else if ( words.length > 2 && words[2].compareTo(ARG_ARENA) == 0 )
+                struct = new BinSearchTreeArena();
+            else if ( words.length > 3 && words[2].compareTo(ARG_SPLAY) == 0 )
+                struct = new SplayBinSearchTree(Integer.parseInt(words[3]));
+            else if ( words.length > 2 && words[2].compareTo(ARG_SPLAY) == 0 )
+                struct = new SplayBinSearchTree();
+            else
+                struct = new BinSearchTree();
+        }
+        else if ( words[1].compareTo(ARG_MSA) == 0 ) {
+            if ( words.length > 4 )
+                struct = new SortedArrayMapped(words[2], Integer.parseInt(words[3]),
+                                               Float.parseFloat(words[4]));
+            else if ( words.length > 3 )
+                struct = new SortedArrayMapped(words[2], Integer.parseInt(words[3]), 2);
+            else
+                struct = new SortedArrayMapped(words[2], 1024, 2);
+        }
+        else if ( words[1].compareTo(ARG_BPT) == 0 ) {
+            if ( words.length > 2 )
+                struct = new BPlusTree(Integer.parseInt(words[2]));
+            else
+                struct = new BPlusTree();
+        }
+        else if ( words[1].compareTo(ARG_LSM) == 0 ) {
+            if ( words.length > 2 )
+                struct = new LSMTree(Integer.parseInt(words[2]));
+            else
+                struct = new LSMTree();
+        }
         else if ( words[1].compareTo(ARG_SA) == 0 ) {
-            struct = new SortedArray(Integer.parseInt(words[2]), 
-                                     Float.parseFloat(words[3]));
+            for ( int i=4; i<words.length; i++ )
+                if ( words[i].compareTo(ARG_GAP) != 0 && words[i].compareTo(ARG_EYTZ) != 0 
+                     && words[i].compareTo(ARG_LEARN) != 0 && words[i].compareTo(ARG_VEC) != 0
+                     && words[i].compareTo(ARG_CONC) != 0 )
+                    throw new Exception();
+            // режимы поиска взаимоисключающие
+            int search_modes = 0;
+            if ( has_flag(words, 4, ARG_GAP) ) search_modes++;
+            if ( has_flag(words, 4, ARG_EYTZ) ) search_modes++;
+            if ( has_flag(words, 4, ARG_LEARN) ) search_modes++;
+            if ( search_modes > 1 ) throw new Exception();
+            // в массиве с промежутками поиск идет по сегментам
+            if ( has_flag(words, 4, ARG_GAP) && has_flag(words, 4, ARG_VEC) ) 
+                throw new Exception();
+            // потокобезопасен только обычный массив без индекса
+            if ( has_flag(words, 4, ARG_CONC) && search_modes > 0 )
+                throw new Exception();
+            if ( has_flag(words, 4, ARG_LEARN) ) {
+                SortedArray array = new SortedArrayLearned(Integer.parseInt(words[2]), 
+                                                           Float.parseFloat(words[3]));
+                array.set_vector_search(has_flag(words, 4, ARG_VEC));
+                struct = array;
+            }
+            else if ( has_flag(words, 4, ARG_GAP) ) {
+                // массив с промежутками всегда расширяется вдвое
+                if ( Float.parseFloat(words[3]) != 2 ) throw new Exception();
+                struct = new SortedArrayGapped(Integer.parseInt(words[2]));
+            }
+            else {
+                SortedArray array;
+                if ( has_flag(words, 4, ARG_CONC) )
+                    array = new SortedArrayConcurrent(Integer.parseInt(words[2]), 
+                                                      Float.parseFloat(words[3]));
+                else
+                    array = new SortedArray(Integer.parseInt(words[2]), 
+                                            Float.parseFloat(words[3]));
+                array.set_search_index(has_flag(words, 4, ARG_EYTZ));
+                array.set_vector_search(has_flag(words, 4, ARG_VEC));
+                struct = array;
+            }
         }
         else throw new Exception();
+        // структуры, держащие ресурсы вне кучи, освобождаем сразу
+        if ( old_struct instanceof AutoCloseable )
+            ((AutoCloseable) old_struct).close();
         return "SUCCESS";
     }
     
+    /** Проверка наличия флага среди аргументов команды
+     * 
+     * @param words - аргументы команды
+     * @param from - индекс первого аргумента-флага
+     * @param flag - флаг
+     * @return true - флаг указан
+     */
+    protected static boolean has_flag(String [] words, int from, String flag) {
+        for ( int i=from; i<words.length; i++ )
+            if ( words[i].compareTo(flag) == 0 ) return true;
+        return false;
+    }
+    
     
     /** Метод добавления нового элемента
      * 
@@ -222,8 +393,13 @@ public class Executor {
      * @throws Exception, если команда введена некорректно
      */
     protected String cmd_add(String [] words) throws Exception{
-        struct.add(Integer.parseInt(words[1]), 
-                   Integer.parseInt(words[2]));
+        try {
+            struct.add(Integer.parseInt(words[1]), 
+                       Integer.parseInt(words[2]));
+        } catch (UnsupportedOperationException exc) {
+            // структура только для чтения (HTableFrozen)
+            return "Command is not supported for this structure";
+        }
         return "SUCCESS";
     }
     
@@ -352,6 +528,134 @@ public class Executor {
     }
     
     
+    /** Метод получения статистики длин цепочек хэш-таблицы
+     * 
+     * Используется в переопределении метода CommandContainer.exec() в 
+     * таблице команд.
+     * 
+     * @param words - аргументы команды
+     * @return HTableChain.get_chain_stats()
+     * @throws Exception, если команда введена некорректно
+     */
+    protected String cmd_chains(String [] words) throws Exception{
+        if ( !(struct instanceof HTableChain) )
+            return "Command is not supported for this structure";
+        return ((HTableChain) struct).get_chain_stats();
+    }
+    
+    
+    /** Метод заморозки хэш-таблицы
+     * 
+     * Заменяет текущую хэш-таблицу ее замороженной копией (HTableFrozen).
+     * Используется в переопределении метода CommandContainer.exec() в 
+     * таблице команд.
+     * 
+     * @param words - аргументы команды
+     * @return "SUCCESS"
+     * @throws Exception, если команда введена некорректно
+     */
+    protected String cmd_freeze(String [] words) throws Exception{
+        if ( !(struct instanceof HTableChain) )
+            return "Command is not supported for this structure";
+        struct = ((HTableChain) struct).freeze();
+        return "SUCCESS";
+    }
+    
+    
+    /** Метод удаления элемента отсортированного массива по ключу
+     * 
+     * Используется в переопределении метода CommandContainer.exec() в 
+     * таблице команд.
+     * 
+     * @param words - аргументы команды
+     * @return SortedArray.delete_key(int key)
+     * @throws Exception, если команда введена некорректно
+     */
+    protected String cmd_delkey(String [] words) throws Exception{
+        if ( !(struct instanceof SortedArray) )
+            return "Command is not supported for this structure";
+        return ((SortedArray) struct).delete_key(Integer.parseInt(words[1]));
+    }
+    
+    
+    /** Метод удаления элементов отсортированного массива по отрезку ключей
+     * 
+     * Используется в переопределении метода CommandContainer.exec() в 
+     * таблице команд.
+     * 
+     * @param words - аргументы команды
+     * @return SortedArray.delete_range(int lo, int hi)
+     * @throws Exception, если команда введена некорректно
+     */
+    protected String cmd_delrange(String [] words) throws Exception{
+        if ( !(struct instanceof SortedArray) )
+            return "Command is not supported for this structure";
+        return ((SortedArray) struct).delete_range(Integer.parseInt(words[1]),
+                                                   Integer.parseInt(words[2]));
+    }
+    
+    
+    /** Метод добавления пакета элементов в отсортированный массив
+     * 
+     * Используется в переопределении метода CommandContainer.exec() в 
+     * таблице команд.
+     * 
+     * @param words - аргументы команды (пары ключ, значение)
+     * @return SortedArray.add_batch(int[] keys, int[] values)
+     * @throws Exception, если команда введена некорректно
+     */
+    protected String cmd_addbatch(String [] words) throws Exception{
+        if ( words.length < 3 || words.length % 2 == 0 ) throw new Exception();
+        if ( !(struct instanceof SortedArray) )
+            return "Command is not supported for this structure";
+        int m = (words.length - 1) / 2;
+        int[] keys = new int[m];
+        int[] values = new int[m];
+        for ( int i=0; i<m; i++ ) {
+            keys[i] = Integer.parseInt(words[1 + 2*i]);
+            values[i] = Integer.parseInt(words[2 + 2*i]);
+        }
+        return ((SortedArray) struct).add_batch(keys, values);
+    }
+    
+    
+    /** Метод записи отображенного в память массива на диск
+     * 
+     * Используется в переопределении метода CommandContainer.exec() в 
+     * таблице команд.
+     * 
+     * @param words - аргументы команды
+     * @return SortedArrayMapped.sync()
+     * @throws Exception, если команда введена некорректно
+     */
+    protected String cmd_sync(String [] words) throws Exception{
+        if ( !(struct instanceof SortedArrayMapped) )
+            return "Command is not supported for this structure";
+        return ((SortedArrayMapped) struct).sync();
+    }
+    
+    
+    /** Метод подсчета элементов дерева с меньшим ключем
+     * 
+     * Используется в переопределении метода CommandContainer.exec() в 
+     * таблице команд.
+     * 
+     * @param words - аргументы команды
+     * @return BinSearchTree.rank(int key), BinSearchTreeArena.rank(int key)
+     *         или BPlusTree.rank(int key)
+     * @throws Exception, если команда введена некорректно
+     */
+    protected String cmd_rank(String [] words) throws Exception{
+        if ( struct instanceof BinSearchTreeArena )
+            return ((BinSearchTreeArena) struct).rank(Integer.parseInt(words[1]));
+        if ( struct instanceof BPlusTree )
+            return ((BPlusTree) struct).rank(Integer.parseInt(words[1]));
+        if ( !(struct instanceof BinSearchTree) )
+            return "Command is not supported for this structure";
+        return ((BinSearchTree) struct).rank(Integer.parseInt(words[1]));
+    }
+    
+    
     /** Интерфейс исполнения команды
      * 
      * Позволяет реализовать объект, реализующий выполнение определенной команды,
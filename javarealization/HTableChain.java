@@ -1,11 +1,37 @@
 package javarealization;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /** Структура - Хэш-таблица
  * 
  * Адресация - цепочная
  * Элементы содержат ключи и значения типа int
  * 
- * Содержит подкласс HChain, реализующий свойства звена цепочки.
+ * Поддерживает автоматическое расширение (и, опционально, сжатие) массива
+ * начальных указателей по коэффициенту заполнения. Перенос звеньев в новый
+ * массив выполняется постепенно: каждая операция add/delete переносит
+ * несколько ячеек старого массива, поэтому ни одна вставка не платит
+ * за полное перехеширование таблицы.
+ * 
+ * Хэш-функция задается хэш-стратегией (см. HashStrategy). Если размер
+ * массива - степень двойки (режим pow2), номер ячейки берется маской
+ * младших битов хэша вместо остатка от деления.
+ * 
+ * Минимум и максимум не ищутся обходом на каждый запрос: таблица хранит
+ * небольшие отсортированные буферы наименьших и наибольших элементов
+ * (ExtremaBuffer) и обновляет их при add/delete. Полный обход нужен лишь,
+ * когда удалениями буфер исчерпан, и выполняется параллельно по 
+ * диапазонам ячеек через fork/join.
+ * 
+ * В режиме treeify цепочка, ставшая длиннее TREEIFY_THRESHOLD, превращается
+ * в корзину-дерево (HTreeBin) - АВЛ-дерево по ключам, поэтому поиск и 
+ * удаление в ячейке даже при массовых коллизиях занимают O(log n). Когда в
+ * корзине остается не больше UNTREEIFY_THRESHOLD звеньев, она снова 
+ * становится цепочкой.
+ * 
+ * Содержит подкласс HChain, реализующий свойства звена цепочки. Режим 
+ * хранения без объекта на каждое звено - подкласс HTableChainPooled.
  *
  * @author Akropon
  */
@@ -15,35 +41,333 @@ public class HTableChain implements Struct{
     protected int num_of_items; // кол-во звеньев в таблице
     protected int table_size; // размер массива начальных указателей на звенья цепочек
     
+    protected HChain[] old_table; // старый массив во время переноса, иначе null
+    protected int old_table_size; // размер старого массива
+    protected int migrate_index; // индекс следующей непереносенной ячейки старого массива
+    protected int min_table_size; // ниже этого размера таблица не сжимается
+    protected float max_load_factor; // порог расширения ( <= 0 - расширение отключено )
+    protected float min_load_factor; // порог сжатия ( <= 0 - сжатие отключено )
+    protected HashStrategy strategy; // хэш-стратегия
+    protected boolean pow2; // размер массива - степень двойки, ячейка - маской
+    protected ExtremaBuffer low; // наименьшие элементы таблицы
+    protected ExtremaBuffer high; // наибольшие элементы таблицы
+    protected boolean treeify; // превращать длинные цепочки в деревья
+    protected int tree_bins; // кол-во корзин-деревьев в обоих массивах
+    
+    // коэффициент заполнения, при превышении которого таблица расширяется по-умолчанию
+    public static final float DEFAULT_MAX_LOAD_FACTOR = 1.0f;
+    // кол-во ячеек старого массива, переносимых за одну операцию add/delete
+    protected static final int MIGRATION_STEP = 8;
+    // последний столбец гистограммы в get_chain_stats() - цепочки этой длины и длиннее
+    protected static final int CHAIN_HISTOGRAM_MAX = 8;
+    // кол-во элементов в буферах наименьших и наибольших элементов
+    protected static final int EXTREMA_BUFFER_SIZE = 16;
+    // кол-во ячеек, обходимых одной задачей при параллельном поиске мин./макс.
+    protected static final int SCAN_CHUNK = 1 << 13;
+    // длина цепочки, превышение которой превращает ее в дерево (режим treeify)
+    protected static final int TREEIFY_THRESHOLD = 8;
+    // размер дерева, при котором оно снова становится цепочкой
+    protected static final int UNTREEIFY_THRESHOLD = 6;
+    
     // перенос строк. Так как он зависит от системы, определяем его во время запуска.
     protected static final String NL = System.getProperty("line.separator");
     
     /** Хэш-фукнция
      * 
-     * Возвращает остаток от деления аргумента на размер массива начальных указателей
-     *   по модулю этого размера.
+     * Возвращает номер ячейки массива начальных указателей для аргумента.
      * 
      * @param argument - аргумент
-     * @return - остаток
+     * @return - номер ячейки
      */
     protected int hFunc(int argument) {
-        int res = argument % table_size;
-        return res < 0 ? res+table_size : res;
+        return hFunc(argument, table_size);
+    }
+    
+    /** Хэш-фукнция для массива заданного размера
+     * 
+     * Вычисляет хэш аргумента по хэш-стратегии и берет от него остаток от 
+     * деления на размер массива (по модулю размера), а в режиме pow2 - 
+     * младшие биты маской.
+     * Используется при переносе звеньев между старым и новым массивами.
+     * 
+     * @param argument - аргумент
+     * @param size - размер массива начальных указателей
+     * @return - номер ячейки
+     */
+    protected int hFunc(int argument, int size) {
+        int h = strategy.hash(argument);
+        if ( pow2 ) return h & (size-1);
+        int res = h % size;
+        return res < 0 ? res+size : res;
     }
     
     /** Конструктор
      * 
-     * Создает пустую хэш-таблицу с заданной длиной массива начальных указателей
+     * Создает пустую хэш-таблицу с заданной длиной массива начальных указателей.
+     * Расширение включено с порогом DEFAULT_MAX_LOAD_FACTOR, сжатие отключено.
      * 
      * @param table_size - длина массива нач. указаелей
      */
     public HTableChain(int table_size) {
+        this(table_size, DEFAULT_MAX_LOAD_FACTOR, 0);
+    }
+    
+    /** Конструктор
+     * 
+     * Создает пустую хэш-таблицу с заданной длиной массива начальных указателей
+     * и заданными порогами расширения и сжатия.
+     * 
+     * @param table_size - длина массива нач. указаелей
+     * @param max_load_factor - коэффициент заполнения, при превышении которого
+     *                          массив расширяется вдвое ( <= 0 - не расширять )
+     * @param min_load_factor - коэффициент заполнения, ниже которого массив
+     *                          сжимается вдвое, но не меньше начального размера
+     *                          ( <= 0 - не сжимать )
+     */
+    public HTableChain(int table_size, float max_load_factor, float min_load_factor) {
+        this(table_size, max_load_factor, min_load_factor, HashStrategy.IDENTITY, false);
+    }
+    
+    /** Конструктор
+     * 
+     * Создает пустую хэш-таблицу с заданными порогами расширения и сжатия,
+     * хэш-стратегией и способом получения номера ячейки.
+     * 
+     * @param table_size - длина массива нач. указаелей (в режиме pow2 
+     *                     округляется вверх до степени двойки)
+     * @param max_load_factor - порог расширения ( <= 0 - не расширять )
+     * @param min_load_factor - порог сжатия ( <= 0 - не сжимать )
+     * @param strategy - хэш-стратегия ( null - HashStrategy.IDENTITY )
+     * @param pow2 - true - размер массива всегда степень двойки, а номер 
+     *               ячейки берется маской вместо остатка от деления
+     */
+    public HTableChain(int table_size, float max_load_factor, float min_load_factor,
+                       HashStrategy strategy, boolean pow2) {
+        this(table_size, max_load_factor, min_load_factor, strategy, pow2, false);
+    }
+    
+    /** Конструктор
+     * 
+     * Создает пустую хэш-таблицу со всеми настройками.
+     * 
+     * @param table_size - длина массива нач. указаелей (в режиме pow2 
+     *                     округляется вверх до степени двойки)
+     * @param max_load_factor - порог расширения ( <= 0 - не расширять )
+     * @param min_load_factor - порог сжатия ( <= 0 - не сжимать )
+     * @param strategy - хэш-стратегия ( null - HashStrategy.IDENTITY )
+     * @param pow2 - true - размер массива всегда степень двойки, а номер 
+     *               ячейки берется маской вместо остатка от деления
+     * @param treeify - true - превращать длинные цепочки в деревья
+     */
+    public HTableChain(int table_size, float max_load_factor, float min_load_factor,
+                       HashStrategy strategy, boolean pow2, boolean treeify) {
         if ( table_size < 1 ) table_size = 1;
+        if ( pow2 ) {
+            int size = 1;
+            while ( size < table_size && size < (1 << 30) )
+                size *= 2;
+            table_size = size;
+        }
+        this.strategy = strategy == null ? HashStrategy.IDENTITY : strategy;
+        this.pow2 = pow2;
+        this.treeify = treeify;
+        this.tree_bins = 0;
+        // порог сжатия должен быть заметно ниже порога расширения,
+        // иначе таблица будет постоянно менять размер туда-обратно
+        if ( max_load_factor > 0 && min_load_factor > max_load_factor/4 )
+            min_load_factor = max_load_factor/4;
         this.table_size = table_size;
+        this.min_table_size = table_size;
+        this.max_load_factor = max_load_factor;
+        this.min_load_factor = min_load_factor;
         this.num_of_items = 0;
-        this.table = new HChain[table_size];
-        for (int i=0; i<table_size; i++)
-            this.table[i] = null;
+        this.low = new ExtremaBuffer(EXTREMA_BUFFER_SIZE, false);
+        this.high = new ExtremaBuffer(EXTREMA_BUFFER_SIZE, true);
+        allocate_table(table_size);
+        this.old_table = null;
+        this.old_table_size = 0;
+        this.migrate_index = 0;
+    }
+    
+    /** Выделение нового пустого массива начальных указателей
+     * 
+     * Переопределяется режимами хранения, которые держат цепочки не в 
+     * массиве звеньев (см. HTableChainPooled).
+     * 
+     * @param size - размер массива
+     */
+    protected void allocate_table(int size) {
+        table = new HChain[size];
+    }
+    
+    /** Получить текущий коэффициент заполнения
+     * 
+     * @return отношение кол-ва звеньев к размеру массива нач. указателей
+     */
+    public float get_load_factor() {
+        return (float)num_of_items / table_size;
+    }
+    
+    /** Идет ли сейчас перенос звеньев в новый массив
+     * 
+     * @return true - перенос идет, false - нет
+     */
+    public boolean is_migrating() {
+        return old_table_size != 0;
+    }
+    
+    /** Проверка необходимости изменения размера массива
+     * 
+     * Вызывается после каждой операции add/delete. Если требуется изменить
+     * размер, а предыдущий перенос еще не закончен, он завершается сразу 
+     * (так бывает лишь при очень низком пороге расширения).
+     */
+    protected void check_resize() {
+        int new_size = table_size;
+        if ( max_load_factor > 0 && num_of_items > max_load_factor * table_size ) {
+            new_size = table_size * 2;
+            if ( new_size < 0 ) return; // дальше расти некуда
+        }
+        else if ( min_load_factor > 0 && table_size > min_table_size
+                  && num_of_items < min_load_factor * table_size ) {
+            new_size = Math.max(table_size / 2, min_table_size);
+        }
+        if ( new_size == table_size ) return;
+        if ( is_migrating() ) finish_migration();
+        start_migration(new_size);
+    }
+    
+    /** Начало переноса звеньев в новый массив заданного размера
+     * 
+     * Текущий массив становится старым, создается новый пустой массив.
+     * Сами звенья переносятся постепенно в migrate_step().
+     * 
+     * @param new_size - размер нового массива
+     */
+    protected void start_migration(int new_size) {
+        old_table = table;
+        old_table_size = table_size;
+        migrate_index = 0;
+        table_size = new_size;
+        allocate_table(new_size);
+    }
+    
+    /** Перенос очередных ячеек старого массива в новый
+     * 
+     * Переносит MIGRATION_STEP ячеек. По окончании переноса старый массив 
+     * освобождается.
+     */
+    protected void migrate_step() {
+        if ( !is_migrating() ) return;
+        int stop_index = Math.min(migrate_index + MIGRATION_STEP, old_table_size);
+        for ( ; migrate_index<stop_index; migrate_index++ )
+            migrate_bucket(migrate_index);
+        if ( migrate_index >= old_table_size )
+            drop_old_table();
+    }
+    
+    /** Освобождение старого массива по окончании переноса
+     */
+    protected void drop_old_table() {
+        old_table = null;
+        old_table_size = 0;
+        migrate_index = 0;
+    }
+    
+    /** Завершение переноса целиком
+     */
+    protected void finish_migration() {
+        while ( is_migrating() ) 
+            migrate_step();
+    }
+    
+    /** Перенос одной ячейки старого массива в новый
+     * 
+     * Звенья не пересоздаются, а перецепляются. Каждое звено добавляется в 
+     * конец цепочки нового массива, чтобы сохранить порядок звеньев с 
+     * совпадающими ключами (find находит последнее добавленное).
+     * 
+     * @param index - индекс ячейки старого массива
+     */
+    protected void migrate_bucket(int index) {
+        HChain cur_chain = old_table[index];
+        old_table[index] = null;
+        if ( cur_chain instanceof HTreeBin ) {
+            tree_bins--;
+            HChain[] entries = ((HTreeBin) cur_chain).to_array();
+            for ( int i=0; i<entries.length; i++ )
+                append_last(entries[i]);
+            return;
+        }
+        while ( cur_chain != null ) {
+            HChain next_chain = cur_chain.next;
+            append_last(cur_chain);
+            cur_chain = next_chain;
+        }
+    }
+    
+    /** Добавление звена в конец цепочки (корзины) текущего массива
+     * 
+     * Звено становится самым старым среди звеньев с тем же ключем.
+     * 
+     * @param entry - звено
+     */
+    protected void append_last(HChain entry) {
+        entry.next = null;
+        int target_index = hFunc(entry.key);
+        HChain head = table[target_index];
+        if ( head == null ) {
+            table[target_index] = entry;
+            return;
+        }
+        if ( head instanceof HTreeBin ) {
+            ((HTreeBin) head).add_last(entry);
+            return;
+        }
+        int length = 2;
+        HChain tail = head;
+        while ( tail.next != null ) {
+            tail = tail.next;
+            length++;
+        }
+        tail.next = entry;
+        if ( treeify && length > TREEIFY_THRESHOLD )
+            treeify_bucket(table, target_index);
+    }
+    
+    /** Превращение цепочки в корзину-дерево
+     * 
+     * @param tbl - массив начальных указателей
+     * @param index - индекс цепочки
+     */
+    protected void treeify_bucket(HChain[] tbl, int index) {
+        HTreeBin bin = new HTreeBin();
+        HChain cur_chain = tbl[index];
+        while ( cur_chain != null ) {
+            HChain next_chain = cur_chain.next;
+            bin.add_last(cur_chain);
+            cur_chain = next_chain;
+        }
+        tbl[index] = bin;
+        tree_bins++;
+    }
+    
+    /** Превращение корзины-дерева обратно в цепочку
+     * 
+     * Звенья с одинаковым ключем сохраняют свой порядок.
+     * 
+     * @param tbl - массив начальных указателей
+     * @param index - индекс корзины
+     */
+    protected void untreeify_bucket(HChain[] tbl, int index) {
+        HChain[] entries = ((HTreeBin) tbl[index]).to_array();
+        HChain head = null;
+        for ( int i=entries.length-1; i>=0; i-- ) {
+            entries[i].next = head;
+            head = entries[i];
+        }
+        tbl[index] = head;
+        tree_bins--;
     }
     
     /** Добавление звена в хэш-таблицу по ключу
@@ -54,9 +378,19 @@ public class HTableChain implements Struct{
     @Override
     public void add(int key, int value) {
         int target_index = hFunc(key);
-        HChain new_chain = new HChain(key, value, table[target_index]);
-        table[target_index] = new_chain;
+        HChain head = table[target_index];
+        if ( head instanceof HTreeBin ) {
+            ((HTreeBin) head).add_first(new HChain(key, value));
+        } else {
+            table[target_index] = new HChain(key, value, head);
+            if ( treeify && head != null && chain_longer_than(head, TREEIFY_THRESHOLD-1) )
+                treeify_bucket(table, target_index);
+        }
+        low.on_add(key, value, num_of_items);
+        high.on_add(key, value, num_of_items);
         num_of_items++;
+        migrate_step();
+        check_resize();
     }
     
     /** Удаление звена из хэш-таблицы по ключу
@@ -66,20 +400,61 @@ public class HTableChain implements Struct{
      */
     @Override
     public String delete(int key) {
-        int target_index = hFunc(key);
-        if (table[target_index] == null)  return "FAIL";
-        if (table[target_index].key == key) {
-            table[target_index] = table[target_index].next;
-            num_of_items--;
-            return "SUCCESS";
+        HChain deleted = delete_from(table, hFunc(key), key);
+        // во время переноса звено может оставаться в старом массиве
+        if ( deleted == null && old_table != null )
+            deleted = delete_from(old_table, hFunc(key, old_table_size), key);
+        if ( deleted == null ) return "FAIL";
+        low.on_delete(deleted.key, deleted.value);
+        high.on_delete(deleted.key, deleted.value);
+        num_of_items--;
+        migrate_step();
+        check_resize();
+        return "SUCCESS";
+    }
+    
+    /** Длиннее ли цепочка заданной длины
+     * 
+     * @param cur_chain - первое звено цепочки
+     * @param length - длина
+     * @return true - длиннее
+     */
+    protected static boolean chain_longer_than(HChain cur_chain, int length) {
+        for ( int i=0; i<length; i++ ) {
+            if ( cur_chain == null ) return false;
+            cur_chain = cur_chain.next;
+        }
+        return cur_chain != null;
+    }
+    
+    /** Удаление звена из цепочки (корзины) заданного массива
+     * 
+     * @param tbl - массив начальных указателей
+     * @param target_index - индекс цепочки
+     * @param key - ключ
+     * @return удаленное звено или null, если не найдено
+     */
+    protected HChain delete_from(HChain[] tbl, int target_index, int key) {
+        if (tbl[target_index] == null)  return null;
+        if (tbl[target_index] instanceof HTreeBin) {
+            HTreeBin bin = (HTreeBin) tbl[target_index];
+            HChain deleted = bin.remove(key);
+            if ( deleted != null && bin.size <= UNTREEIFY_THRESHOLD )
+                untreeify_bucket(tbl, target_index);
+            return deleted;
+        }
+        HChain deleted = tbl[target_index];
+        if (deleted.key == key) {
+            tbl[target_index] = deleted.next;
+            return deleted;
         }
-        HChain cur_chain = table[target_index];
+        HChain cur_chain = tbl[target_index];
         while(true) {
-            if (cur_chain.next == null)  return "FAIL";
+            if (cur_chain.next == null)  return null;
             if (cur_chain.next.key == key) { 
-                cur_chain.next = cur_chain.next.next;
-                num_of_items--;
-                return "SUCCESS";
+                deleted = cur_chain.next;
+                cur_chain.next = deleted.next;
+                return deleted;
             }
             cur_chain = cur_chain.next;
         }
@@ -93,63 +468,166 @@ public class HTableChain implements Struct{
      */
     @Override
     public String find(int key) {
-        HChain cur_chain = table[hFunc(key)];
+        HChain found = find_in(table[hFunc(key)], key);
+        // во время переноса звено может оставаться в старом массиве
+        if ( found == null && old_table != null )
+            found = find_in(old_table[hFunc(key, old_table_size)], key);
+        if ( found == null )  return "NOT FOUND";
+        return "key: "+found.key+", value: "+found.value;
+    }
+    
+    /** Поиск звена в цепочке (корзине)
+     * 
+     * @param cur_chain - первое звено цепочки или корзина-дерево
+     * @param key - ключ
+     * @return найденное звено или null
+     */
+    protected HChain find_in(HChain cur_chain, int key) {
+        if ( cur_chain instanceof HTreeBin )
+            return ((HTreeBin) cur_chain).find(key);
         while(true) {
-            if (cur_chain == null)  return "NOT FOUND";
-            if (cur_chain.key == key)
-                return "key: "+cur_chain.key+", value: "+cur_chain.value;
+            if (cur_chain == null)  return null;
+            if (cur_chain.key == key)  return cur_chain;
             cur_chain = cur_chain.next;
         }
     }
     
     /** Получить элемент с максимальным ключем
+     * 
+     * Берется из буфера наибольших элементов, при необходимости буфер 
+     * заполняется заново обходом таблицы.
      * 
      * @return "NOT EXISTS" - такого нет
      *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
      */
     @Override
     public String get_max() {
-        HChain max_chain = null;
-        HChain cur_chain;
-        for ( int i=0; i<table_size; i++ ) {
-            cur_chain = table[i];
-            while ( cur_chain != null ) {
-                if ( max_chain == null ) max_chain = cur_chain;
-                else 
-                    if (cur_chain.key > max_chain.key) 
-                        max_chain = cur_chain;
-                cur_chain = cur_chain.next;
-            }
-        }
-        if (max_chain != null )
-            return "key: "+max_chain.key+", value: "+max_chain.value;
-        else
-            return "NOT EXISTS";
+        if ( num_of_items == 0 ) return "NOT EXISTS";
+        if ( high.count == 0 ) refill_extrema();
+        return "key: "+high.keys[0]+", value: "+high.values[0];
     }
     
     /** Получить элемент с минимальным ключем
+     * 
+     * Берется из буфера наименьших элементов, при необходимости буфер 
+     * заполняется заново обходом таблицы.
      * 
      * @return "NOT EXISTS" - такого нет
      *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
      */
     @Override
     public String get_min() {
-        HChain min_chain = null;
-        HChain cur_chain;
-        for ( int i=0; i<table_size; i++ ) {
-            cur_chain = table[i];
-            while ( cur_chain != null ) {
-                if ( min_chain == null ) min_chain = cur_chain;
-                else 
-                    if (min_chain.key < min_chain.key) 
-                        min_chain = cur_chain;
-                cur_chain = cur_chain.next;
+        if ( num_of_items == 0 ) return "NOT EXISTS";
+        if ( low.count == 0 ) refill_extrema();
+        return "key: "+low.keys[0]+", value: "+low.values[0];
+    }
+    
+    /** Заполнение буферов наименьших и наибольших элементов обходом таблицы
+     * 
+     * Большие таблицы обходятся параллельно: диапазоны по SCAN_CHUNK ячеек 
+     * обрабатываются задачами fork/join, буферы задач затем сливаются.
+     */
+    protected void refill_extrema() {
+        ExtremaBuffer[] res;
+        if ( get_scan_size(false) + get_scan_size(true) <= SCAN_CHUNK ) {
+            res = new ExtremaScan(this, false, 0, get_scan_size(false)).compute();
+            if ( is_migrating() )
+                merge_extrema(res, new ExtremaScan(this, true, 0, get_scan_size(true)).compute());
+        } else {
+            res = ForkJoinPool.commonPool().invoke(new ExtremaScan(this, false, 0, get_scan_size(false)));
+            if ( is_migrating() )
+                merge_extrema(res, ForkJoinPool.commonPool().invoke(
+                        new ExtremaScan(this, true, 0, get_scan_size(true))));
+        }
+        low = res[0];
+        high = res[1];
+    }
+    
+    /** Слияние буферов наименьших и наибольших элементов
+     * 
+     * @param dest - {наименьшие, наибольшие}, куда сливать
+     * @param src - {наименьшие, наибольшие}, что сливать
+     */
+    protected static void merge_extrema(ExtremaBuffer[] dest, ExtremaBuffer[] src) {
+        dest[0].merge(src[0]);
+        dest[1].merge(src[1]);
+    }
+    
+    /** Получить кол-во ячеек, обходимых при поиске мин./макс.
+     * 
+     * @param old - true - старый массив (во время переноса), false - текущий
+     * @return кол-во ячеек
+     */
+    protected int get_scan_size(boolean old) {
+        return old ? (is_migrating() ? old_table_size : 0) : table_size;
+    }
+    
+    /** Предложить буферам все звенья диапазона ячеек
+     * 
+     * @param old - true - старый массив (во время переноса), false - текущий
+     * @param from - первая ячейка диапазона
+     * @param to - ячейка за последней ячейкой диапазона
+     * @param low_buf - буфер наименьших элементов
+     * @param high_buf - буфер наибольших элементов
+     */
+    protected void offer_buckets(boolean old, int from, int to,
+                                 ExtremaBuffer low_buf, ExtremaBuffer high_buf) {
+        HChain[] tbl = old ? old_table : table;
+        for ( int i=from; i<to; i++ ) {
+            if ( tbl[i] instanceof HTreeBin ) {
+                HChain[] entries = ((HTreeBin) tbl[i]).to_array();
+                for ( int j=0; j<entries.length; j++ ) {
+                    low_buf.offer(entries[j].key, entries[j].value);
+                    high_buf.offer(entries[j].key, entries[j].value);
+                }
+                continue;
+            }
+            for ( HChain cur_chain = tbl[i]; cur_chain != null; cur_chain = cur_chain.next ) {
+                low_buf.offer(cur_chain.key, cur_chain.value);
+                high_buf.offer(cur_chain.key, cur_chain.value);
+            }
+        }
+    }
+    
+    /** Заморозка таблицы
+     * 
+     * Строит по текущему содержимому неизменяемую таблицу с минимальным 
+     * совершенным хэшированием (см. HTableFrozen). Сама таблица не меняется.
+     * 
+     * @return замороженная таблица
+     */
+    public HTableFrozen freeze() {
+        int[] keys = new int[num_of_items];
+        int[] values = new int[num_of_items];
+        collect_entries(keys, values);
+        return new HTableFrozen(keys, values, num_of_items);
+    }
+    
+    /** Выписать все звенья в порядке поиска
+     * 
+     * Сначала текущий массив, затем старый (во время переноса), каждая 
+     * цепочка - от начала. Так из звеньев с одинаковым ключем первым 
+     * выписывается то, которое нашел бы find.
+     * 
+     * @param keys - куда писать ключи (не короче num_of_items)
+     * @param values - куда писать значения
+     */
+    protected void collect_entries(int[] keys, int[] values) {
+        int pos = 0;
+        for ( int t=0; t<2; t++ ) {
+            HChain[] tbl = t == 0 ? table : old_table;
+            int size = t == 0 ? table_size : get_scan_size(true);
+            for ( int i=0; i<size; i++ ) {
+                HChain cur_chain = tbl[i];
+                if ( cur_chain instanceof HTreeBin ) 
+                    cur_chain = chain_of(cur_chain);
+                for ( ; cur_chain != null; cur_chain = cur_chain.next ) {
+                    keys[pos] = cur_chain.key;
+                    values[pos] = cur_chain.value;
+                    pos++;
+                }
             }
         }
-        if (min_chain != null )
-            return "key: "+min_chain.key+", value: "+min_chain.value;
-        else
-            return "NOT EXISTS";
     }
     
     /** Получить тектовое изображение таблицы
@@ -159,12 +637,31 @@ public class HTableChain implements Struct{
     @Override
     public String get_data() {
         StringBuilder stringB = new StringBuilder();
+        append_data(stringB, table, table_size);
+        if ( old_table != null ) {
+            stringB.append("  (old table, migration in progress)"+NL);
+            append_data(stringB, old_table, old_table_size);
+        }
+        return stringB.toString();
+    }
+    
+    /** Добавить тектовое изображение массива начальных указателей
+     * 
+     * @param stringB - куда добавлять
+     * @param tbl - массив начальных указателей
+     * @param size - размер массива
+     */
+    protected void append_data(StringBuilder stringB, HChain[] tbl, int size) {
         HChain cur_chain;
-        for ( int i=0; i<table_size; i++ ) {
+        for ( int i=0; i<size; i++ ) {
             stringB.append("  [");
             stringB.append(i);
             stringB.append("] -> ");
-            cur_chain = table[i];
+            cur_chain = tbl[i];
+            if ( cur_chain instanceof HTreeBin ) {
+                stringB.append("TREE ");
+                cur_chain = chain_of(cur_chain);
+            }
             while ( true ) {
                 if ( cur_chain == null ) {
                     stringB.append("NULL"+NL);
@@ -177,7 +674,6 @@ public class HTableChain implements Struct{
                 }
             }
         }
-        return stringB.toString();
     }
     
     /** Получить упрощенное тектовое изображение таблицы
@@ -187,12 +683,31 @@ public class HTableChain implements Struct{
     @Override
     public String get_data_simple() {
         StringBuilder stringB = new StringBuilder();
+        append_data_simple(stringB, table, table_size);
+        if ( old_table != null ) {
+            stringB.append("(old)");
+            append_data_simple(stringB, old_table, old_table_size);
+        }
+        return stringB.toString();
+    }
+    
+    /** Добавить упрощенное тектовое изображение массива начальных указателей
+     * 
+     * @param stringB - куда добавлять
+     * @param tbl - массив начальных указателей
+     * @param size - размер массива
+     */
+    protected void append_data_simple(StringBuilder stringB, HChain[] tbl, int size) {
         HChain cur_chain;
-        for ( int i=0; i<table_size; i++ ) {
+        for ( int i=0; i<size; i++ ) {
             stringB.append("[");
             stringB.append(i);
             stringB.append("]-");
-            cur_chain = table[i];
+            cur_chain = tbl[i];
+            if ( cur_chain instanceof HTreeBin ) {
+                stringB.append("T-");
+                cur_chain = chain_of(cur_chain);
+            }
             while ( true ) {
                 if ( cur_chain == null ) {
                     stringB.append("N ");
@@ -205,7 +720,22 @@ public class HTableChain implements Struct{
                 }
             }
         }
-        return stringB.toString();
+    }
+    
+    /** Получить звенья корзины-дерева в виде отдельной цепочки
+     * 
+     * Звенья копируются, сама корзина не меняется. Используется для 
+     * текстовых изображений.
+     * 
+     * @param bin - корзина-дерево
+     * @return первое звено цепочки-копии в порядке возрастания ключей
+     */
+    protected static HChain chain_of(HChain bin) {
+        HChain[] entries = ((HTreeBin) bin).to_array();
+        HChain head = null;
+        for ( int i=entries.length-1; i>=0; i-- )
+            head = new HChain(entries[i].key, entries[i].value, head);
+        return head;
     }
     
     /**Получить основные параметры хэш-таблицы без данных в виде строки
@@ -214,9 +744,73 @@ public class HTableChain implements Struct{
      */
     @Override
     public String get_state() {
-        return "num_of_items = "+num_of_items+" || table_size = "+table_size;
+        String migration = !is_migrating() ? "none"
+                : "in progress ("+migrate_index+" of "+old_table_size+" buckets moved)";
+        return "num_of_items = "+num_of_items+" || table_size = "+table_size
+                + " || hash = "+strategy.get_name()+(pow2 ? " (pow2 mask)" : " (mod)")
+                + " || load_factor = "+get_load_factor()
+                + " || max_load_factor = "+max_load_factor
+                + " || min_load_factor = "+min_load_factor
+                + " || treeify = "+treeify+" || treeified_bins = "+tree_bins
+                + " || migration: "+migration;
+    }
+    
+    
+    /** Получить статистику длин цепочек
+     * 
+     * Помогает выбрать хэш-стратегию под конкретный набор ключей.
+     * Во время переноса статистика считается по новому массиву, а 
+     * непереносенные звенья старого массива указываются отдельно.
+     * 
+     * @return строка: кол-во пустых ячеек, макс. длина цепочки, средняя 
+     *         длина непустой цепочки и гистограмма заполнения ячеек
+     *         ("длина:кол-во ячеек", последний столбец - CHAIN_HISTOGRAM_MAX
+     *         и более)
+     */
+    public String get_chain_stats() {
+        int[] histogram = new int[CHAIN_HISTOGRAM_MAX+1];
+        int max_chain = 0;
+        int non_empty = 0;
+        int items = 0;
+        for ( int i=0; i<table_size; i++ ) {
+            int length = chain_length(i);
+            histogram[Math.min(length, CHAIN_HISTOGRAM_MAX)]++;
+            if ( length > max_chain ) max_chain = length;
+            if ( length > 0 ) non_empty++;
+            items += length;
+        }
+        StringBuilder stringB = new StringBuilder();
+        stringB.append("buckets = ").append(table_size);
+        stringB.append(" || empty = ").append(histogram[0]);
+        stringB.append(" || max_chain = ").append(max_chain);
+        stringB.append(" || avg_chain = ").append(non_empty == 0 ? 0 : (float)items / non_empty);
+        stringB.append(" || histogram:");
+        for ( int i=0; i<=CHAIN_HISTOGRAM_MAX; i++ ) {
+            stringB.append(' ').append(i);
+            if ( i == CHAIN_HISTOGRAM_MAX ) stringB.append('+');
+            stringB.append(':').append(histogram[i]);
+        }
+        if ( is_migrating() )
+            stringB.append(" || not migrated = ").append(num_of_items - items);
+        return stringB.toString();
     }
     
+    /** Кол-во звеньев в ячейке текущего массива нач. указателей
+     * 
+     * Переопределяется режимами хранения, которые держат цепочки не в 
+     * массиве звеньев (см. HTableChainPooled).
+     * 
+     * @param bucket - номер ячейки
+     * @return длина цепочки (размер дерева для ячейки-дерева)
+     */
+    protected int chain_length(int bucket) {
+        if ( table[bucket] instanceof HTreeBin )
+            return ((HTreeBin) table[bucket]).size;
+        int length = 0;
+        for ( HChain cur_chain = table[bucket]; cur_chain != null; cur_chain = cur_chain.next )
+            length++;
+        return length;
+    }
     
     /** Получить тип структуры
      * 
@@ -254,6 +848,429 @@ public class HTableChain implements Struct{
     }
     
     
+    /** Задача поиска наименьших и наибольших элементов в диапазоне ячеек
+     * 
+     * Диапазон больше SCAN_CHUNK делится пополам, половины обрабатываются
+     * параллельно, их буферы сливаются.
+     * 
+     * @author Akropon
+     */
+    protected static class ExtremaScan extends RecursiveTask<ExtremaBuffer[]> {
+        private static final long serialVersionUID = 1L;
+        protected final HTableChain table; // обходимая таблица
+        protected final boolean old; // обходить старый массив
+        protected final int from; // первая ячейка диапазона
+        protected final int to; // ячейка за последней ячейкой диапазона
+        
+        /** Конструктор
+         * 
+         * @param table - обходимая таблица
+         * @param old - true - старый массив (во время переноса), false - текущий
+         * @param from - первая ячейка диапазона
+         * @param to - ячейка за последней ячейкой диапазона
+         */
+        protected ExtremaScan(HTableChain table, boolean old, int from, int to) {
+            this.table = table;
+            this.old = old;
+            this.from = from;
+            this.to = to;
+        }
+        
+        /** Поиск
+         * 
+         * @return {наименьшие, наибольшие}
+         */
+        @Override
+        protected ExtremaBuffer[] compute() {
+            if ( to - from <= SCAN_CHUNK ) {
+                ExtremaBuffer[] res = { new ExtremaBuffer(EXTREMA_BUFFER_SIZE, false),
+                                        new ExtremaBuffer(EXTREMA_BUFFER_SIZE, true) };
+                table.offer_buckets(old, from, to, res[0], res[1]);
+                return res;
+            }
+            int mid = (from + to) >>> 1;
+            ExtremaScan left = new ExtremaScan(table, old, from, mid);
+            left.fork();
+            ExtremaBuffer[] res = new ExtremaScan(table, old, mid, to).compute();
+            merge_extrema(res, left.join());
+            return res;
+        }
+    }
+    
+    
+    /** Буфер наименьших (или наибольших) элементов
+     * 
+     * Отсортированный массив не более чем из capacity элементов, keys[0] - 
+     * самый крайний (наименьший или наибольший). Инвариант: все элементы 
+     * таблицы, не попавшие в буфер, не ближе к краю, чем последний элемент 
+     * буфера. Поэтому удаление из буфера оставляет его верным, и пока буфер
+     * не пуст, его первый элемент - искомый минимум (максимум).
+     * 
+     * @author Akropon
+     */
+    public static class ExtremaBuffer {
+        public final int[] keys; // ключи
+        public final int[] values; // значения
+        public int count; // кол-во элементов в буфере
+        protected final boolean keep_max; // false - наименьшие, true - наибольшие
+        
+        /** Конструктор
+         * 
+         * Создает пустой буфер.
+         * 
+         * @param capacity - макс. кол-во элементов
+         * @param keep_max - false - хранить наименьшие, true - наибольшие
+         */
+        public ExtremaBuffer(int capacity, boolean keep_max) {
+            this.keys = new int[capacity];
+            this.values = new int[capacity];
+            this.count = 0;
+            this.keep_max = keep_max;
+        }
+        
+        /** Ближе ли ключ a к краю, чем ключ b
+         * 
+         * @param a - ключ
+         * @param b - ключ
+         * @return true - строго ближе
+         */
+        protected boolean closer(int a, int b) {
+            return keep_max ? a > b : a < b;
+        }
+        
+        /** Учесть добавление элемента в таблицу
+         * 
+         * @param key - ключ
+         * @param value - значение
+         * @param items_before - кол-во элементов в таблице до добавления
+         */
+        public void on_add(int key, int value, int items_before) {
+            // буфер содержит все элементы таблицы, либо новый элемент ближе к
+            // краю, чем последний элемент буфера
+            if ( count == items_before || (count > 0 && closer(key, keys[count-1])) )
+                insert(key, value);
+        }
+        
+        /** Учесть удаление элемента из таблицы
+         * 
+         * @param key - ключ
+         * @param value - значение
+         */
+        public void on_delete(int key, int value) {
+            for ( int i=0; i<count; i++ )
+                if ( keys[i] == key && values[i] == value ) {
+                    System.arraycopy(keys, i+1, keys, i, count-i-1);
+                    System.arraycopy(values, i+1, values, i, count-i-1);
+                    count--;
+                    return;
+                }
+        }
+        
+        /** Предложить элемент при заполнении буфера обходом
+         * 
+         * @param key - ключ
+         * @param value - значение
+         */
+        public void offer(int key, int value) {
+            if ( count < keys.length || closer(key, keys[count-1]) )
+                insert(key, value);
+        }
+        
+        /** Слить с другим буфером
+         * 
+         * @param other - буфер, заполненный обходом другой части таблицы
+         */
+        public void merge(ExtremaBuffer other) {
+            for ( int i=0; i<other.count; i++ )
+                offer(other.keys[i], other.values[i]);
+        }
+        
+        /** Вставка элемента на свое место
+         * 
+         * Если буфер переполнен, последний элемент выбрасывается.
+         * 
+         * @param key - ключ
+         * @param value - значение
+         */
+        protected void insert(int key, int value) {
+            int pos = count;
+            while ( pos > 0 && closer(key, keys[pos-1]) )
+                pos--;
+            if ( pos >= keys.length ) return;
+            int moved = Math.min(count, keys.length-1) - pos;
+            System.arraycopy(keys, pos, keys, pos+1, moved);
+            System.arraycopy(values, pos, values, pos+1, moved);
+            keys[pos] = key;
+            values[pos] = value;
+            if ( count < keys.length ) count++;
+        }
+    }
+    
+    
+    /** Корзина-дерево
+     * 
+     * Ставится в ячейку массива начальных указателей вместо длинной цепочки
+     * (режим treeify). Наследует HChain лишь для того, чтобы лежать в том же
+     * массиве; собственные key, value и next не используются.
+     * Внутри - АВЛ-дерево, по узлу на каждый различный ключ. Звенья с 
+     * одинаковым ключем висят на узле цепочкой от последнего добавленного
+     * к первому, поэтому find и delete, как и в обычной цепочке, находят 
+     * последнее добавленное.
+     * 
+     * @author Akropon
+     */
+    public static class HTreeBin extends HChain {
+        public HTreeNode root; // корень дерева
+        public int size; // кол-во звеньев в корзине
+        
+        // звено, удаленное последним вызовом remove_node()
+        protected HChain removed;
+        
+        /** Конструктор
+         * 
+         * Создает пустую корзину.
+         */
+        public HTreeBin() {
+            root = null;
+            size = 0;
+        }
+        
+        /** Поиск последнего добавленного звена с заданным ключем
+         * 
+         * @param key - ключ
+         * @return звено или null
+         */
+        public HChain find(int key) {
+            HTreeNode node = root;
+            while ( node != null ) {
+                if ( key == node.key ) return node.entries;
+                node = key < node.key ? node.left : node.right;
+            }
+            return null;
+        }
+        
+        /** Добавление звена как последнего добавленного
+         * 
+         * @param entry - звено
+         */
+        public void add_first(HChain entry) {
+            root = insert(root, entry, true);
+            size++;
+        }
+        
+        /** Добавление звена как самого старого среди звеньев с тем же ключем
+         * 
+         * @param entry - звено
+         */
+        public void add_last(HChain entry) {
+            root = insert(root, entry, false);
+            size++;
+        }
+        
+        /** Удаление последнего добавленного звена с заданным ключем
+         * 
+         * @param key - ключ
+         * @return удаленное звено или null
+         */
+        public HChain remove(int key) {
+            removed = null;
+            root = remove_node(root, key);
+            if ( removed != null ) size--;
+            HChain res = removed;
+            removed = null;
+            return res;
+        }
+        
+        /** Получить все звенья по возрастанию ключей
+         * 
+         * Звенья с одинаковым ключем - от последнего добавленного.
+         * 
+         * @return массив звеньев
+         */
+        public HChain[] to_array() {
+            HChain[] res = new HChain[size];
+            collect(root, res, 0);
+            return res;
+        }
+        
+        /** Сбор звеньев поддерева в массив (симметричный обход)
+         * 
+         * @param node - корень поддерева
+         * @param res - массив
+         * @param pos - первая свободная позиция массива
+         * @return первая свободная позиция после сбора
+         */
+        protected static int collect(HTreeNode node, HChain[] res, int pos) {
+            if ( node == null ) return pos;
+            pos = collect(node.left, res, pos);
+            for ( HChain cur_chain = node.entries; cur_chain != null; cur_chain = cur_chain.next )
+                res[pos++] = cur_chain;
+            return collect(node.right, res, pos);
+        }
+        
+        /** Вставка звена в поддерево
+         * 
+         * @param node - корень поддерева
+         * @param entry - звено
+         * @param first - true - в начало цепочки узла, false - в конец
+         * @return новый корень поддерева
+         */
+        protected static HTreeNode insert(HTreeNode node, HChain entry, boolean first) {
+            if ( node == null ) {
+                entry.next = null;
+                return new HTreeNode(entry);
+            }
+            if ( entry.key == node.key ) {
+                if ( first ) {
+                    entry.next = node.entries;
+                    node.entries = entry;
+                } else {
+                    entry.next = null;
+                    HChain tail = node.entries;
+                    while ( tail.next != null )
+                        tail = tail.next;
+                    tail.next = entry;
+                }
+                return node;
+            }
+            if ( entry.key < node.key )
+                node.left = insert(node.left, entry, first);
+            else
+                node.right = insert(node.right, entry, first);
+            return balance(node);
+        }
+        
+        /** Удаление последнего добавленного звена с ключем из поддерева
+         * 
+         * Удаленное звено записывается в removed.
+         * 
+         * @param node - корень поддерева
+         * @param key - ключ
+         * @return новый корень поддерева
+         */
+        protected HTreeNode remove_node(HTreeNode node, int key) {
+            if ( node == null ) return null;
+            if ( key < node.key ) {
+                node.left = remove_node(node.left, key);
+                return balance(node);
+            }
+            if ( key > node.key ) {
+                node.right = remove_node(node.right, key);
+                return balance(node);
+            }
+            removed = node.entries;
+            node.entries = removed.next;
+            removed.next = null;
+            if ( node.entries != null ) return node;
+            // звеньев с этим ключем не осталось - удаляем узел
+            if ( node.left == null ) return node.right;
+            if ( node.right == null ) return node.left;
+            HTreeNode min_node = node.right;
+            while ( min_node.left != null )
+                min_node = min_node.left;
+            node.right = remove_min(node.right);
+            min_node.left = node.left;
+            min_node.right = node.right;
+            return balance(min_node);
+        }
+        
+        /** Отцепление узла с минимальным ключем от поддерева
+         * 
+         * @param node - корень поддерева
+         * @return новый корень поддерева
+         */
+        protected static HTreeNode remove_min(HTreeNode node) {
+            if ( node.left == null ) return node.right;
+            node.left = remove_min(node.left);
+            return balance(node);
+        }
+        
+        /** Высота поддерева
+         * 
+         * @param node - корень поддерева
+         * @return высота (0 - пустое)
+         */
+        protected static int height(HTreeNode node) {
+            return node == null ? 0 : node.height;
+        }
+        
+        /** Балансировка узла поворотами
+         * 
+         * @param node - узел, поддеревья которого уже сбалансированы
+         * @return новый корень поддерева
+         */
+        protected static HTreeNode balance(HTreeNode node) {
+            int diff = height(node.left) - height(node.right);
+            if ( diff > 1 ) {
+                if ( height(node.left.left) < height(node.left.right) )
+                    node.left = rotate_left(node.left);
+                return rotate_right(node);
+            }
+            if ( diff < -1 ) {
+                if ( height(node.right.right) < height(node.right.left) )
+                    node.right = rotate_right(node.right);
+                return rotate_left(node);
+            }
+            node.height = Math.max(height(node.left), height(node.right)) + 1;
+            return node;
+        }
+        
+        /** Правый поворот
+         * 
+         * @param node - корень поддерева
+         * @return новый корень поддерева
+         */
+        protected static HTreeNode rotate_right(HTreeNode node) {
+            HTreeNode left = node.left;
+            node.left = left.right;
+            left.right = node;
+            node.height = Math.max(height(node.left), height(node.right)) + 1;
+            left.height = Math.max(height(left.left), height(left.right)) + 1;
+            return left;
+        }
+        
+        /** Левый поворот
+         * 
+         * @param node - корень поддерева
+         * @return новый корень поддерева
+         */
+        protected static HTreeNode rotate_left(HTreeNode node) {
+            HTreeNode right = node.right;
+            node.right = right.left;
+            right.left = node;
+            node.height = Math.max(height(node.left), height(node.right)) + 1;
+            right.height = Math.max(height(right.left), height(right.right)) + 1;
+            return right;
+        }
+    }
+    
+    
+    /** Узел корзины-дерева HTreeBin
+     * 
+     * @author Akropon
+     */
+    public static class HTreeNode {
+        public int key; // ключ
+        public HChain entries; // звенья с этим ключем, от последнего добавленного
+        public HTreeNode left; // левый сын
+        public HTreeNode right; // правый сын
+        public int height; // высота поддерева
+        
+        /** Конструктор
+         * 
+         * Создает лист с одним звеном.
+         * 
+         * @param entry - звено
+         */
+        public HTreeNode(HChain entry) {
+            this.key = entry.key;
+            this.entries = entry;
+            this.left = this.right = null;
+            this.height = 1;
+        }
+    }
+    
+    
     /** Звено
      * 
      * Звено для цепочек в хэш-таблице с цепочной адресацией HTableChain
@@ -0,0 +1,391 @@
+package javarealization;
+
+import java.util.Arrays;
+
+/** Структура - Хэш-таблица с цепочками в пуле массивов
+ *
+ * Тот же HTableChain (цепочная адресация, повтор ключей, постепенный
+ * перенос при изменении размера, буферы мин./макс.), но звенья - не
+ * объекты HChain, а номера ячеек пула: параллельных массивов keys[],
+ * values[] и next[]. Ячейка массива начальных указателей хранит номер
+ * первого звена, next[] - номер следующего, NIL - конец цепочки.
+ * Ячейки, освобожденные delete, собираются в список свободных (через тот же
+ * next[]) и отдаются следующим add, поэтому add не создает объектов, а
+ * звено занимает 12 байт вместо объекта HChain со ссылкой на него.
+ *
+ * Пул растет вдвое, когда свободных ячеек не осталось, и не сжимается.
+ * Режим treeify не поддерживается.
+ *
+ * @author Akropon
+ */
+public class HTableChainPooled extends HTableChain{
+
+    protected int[] heads; // номера первых звеньев цепочек ( NIL - пусто )
+    protected int[] old_heads; // старый массив во время переноса, иначе null
+
+    protected int[] keys; // ключи звеньев пула
+    protected int[] values; // значения звеньев пула
+    protected int[] next; // номер следующего звена ( NIL - конец цепочки )
+    protected int pool_used; // кол-во когда-либо занятых ячеек пула
+    protected int free_head; // первая свободная ячейка ( NIL - нет )
+
+    // "пустой" номер звена
+    protected static final int NIL = -1;
+    // начальный размер пула
+    protected static final int MIN_POOL_SIZE = 16;
+
+    /** Конструктор
+     *
+     * Создает пустую хэш-таблицу с заданной длиной массива начальных указателей.
+     * Расширение включено с порогом DEFAULT_MAX_LOAD_FACTOR, сжатие отключено.
+     *
+     * @param table_size - длина массива нач. указаелей
+     */
+    public HTableChainPooled(int table_size) {
+        this(table_size, DEFAULT_MAX_LOAD_FACTOR, 0, HashStrategy.IDENTITY, false);
+    }
+
+    /** Конструктор
+     *
+     * Создает пустую хэш-таблицу со всеми настройками, кроме treeify.
+     *
+     * @param table_size - длина массива нач. указаелей (в режиме pow2
+     *                     округляется вверх до степени двойки)
+     * @param max_load_factor - порог расширения ( <= 0 - не расширять )
+     * @param min_load_factor - порог сжатия ( <= 0 - не сжимать )
+     * @param strategy - хэш-стратегия ( null - HashStrategy.IDENTITY )
+     * @param pow2 - true - размер массива всегда степень двойки, а номер
+     *               ячейки берется маской вместо остатка от деления
+     */
+    public HTableChainPooled(int table_size, float max_load_factor, float min_load_factor,
+                             HashStrategy strategy, boolean pow2) {
+        super(table_size, max_load_factor, min_load_factor, strategy, pow2, false);
+        int pool_size = Math.max(MIN_POOL_SIZE, this.table_size);
+        if ( max_load_factor > 0 )
+            pool_size = (int)Math.min(Integer.MAX_VALUE - 8L,
+                                      Math.max(MIN_POOL_SIZE, (long)(max_load_factor * this.table_size)));
+        keys = new int[pool_size];
+        values = new int[pool_size];
+        next = new int[pool_size];
+        pool_used = 0;
+        free_head = NIL;
+    }
+
+    /** Выделение нового пустого массива начальных указателей
+     *
+     * @param size - размер массива
+     */
+    @Override
+    protected void allocate_table(int size) {
+        heads = new int[size];
+        Arrays.fill(heads, NIL);
+    }
+
+    /** Начало переноса звеньев в новый массив заданного размера
+     *
+     * @param new_size - размер нового массива
+     */
+    @Override
+    protected void start_migration(int new_size) {
+        old_heads = heads;
+        super.start_migration(new_size);
+    }
+
+    /** Освобождение старого массива по окончании переноса
+     */
+    @Override
+    protected void drop_old_table() {
+        super.drop_old_table();
+        old_heads = null;
+    }
+
+    /** Перенос одной ячейки старого массива в новый
+     *
+     * Звенья перецепляются в конец цепочек нового массива, чтобы сохранить
+     * порядок звеньев с совпадающими ключами.
+     *
+     * @param index - индекс ячейки старого массива
+     */
+    @Override
+    protected void migrate_bucket(int index) {
+        int cur = old_heads[index];
+        old_heads[index] = NIL;
+        while ( cur != NIL ) {
+            int next_cur = next[cur];
+            next[cur] = NIL;
+            int target_index = hFunc(keys[cur]);
+            if ( heads[target_index] == NIL )
+                heads[target_index] = cur;
+            else {
+                int tail = heads[target_index];
+                while ( next[tail] != NIL )
+                    tail = next[tail];
+                next[tail] = cur;
+            }
+            cur = next_cur;
+        }
+    }
+
+    /** Получить свободную ячейку пула
+     *
+     * Сначала берется ячейка из списка свободных, затем - еще не занятая,
+     * при нехватке пул расширяется вдвое.
+     *
+     * @return номер ячейки
+     */
+    protected int alloc_slot() {
+        if ( free_head != NIL ) {
+            int slot = free_head;
+            free_head = next[slot];
+            return slot;
+        }
+        if ( pool_used == keys.length ) {
+            int new_size = (int)Math.min(Integer.MAX_VALUE - 8L, 2L * keys.length);
+            keys = Arrays.copyOf(keys, new_size);
+            values = Arrays.copyOf(values, new_size);
+            next = Arrays.copyOf(next, new_size);
+        }
+        return pool_used++;
+    }
+
+    /** Добавление элемента в хэш-таблицу
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        int target_index = hFunc(key);
+        int slot = alloc_slot();
+        keys[slot] = key;
+        values[slot] = value;
+        next[slot] = heads[target_index];
+        heads[target_index] = slot;
+        low.on_add(key, value, num_of_items);
+        high.on_add(key, value, num_of_items);
+        num_of_items++;
+        migrate_step();
+        check_resize();
+    }
+
+    /** Удаление звена из хэш-таблицы по ключу
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int key) {
+        int deleted = delete_from(heads, hFunc(key), key);
+        // во время переноса звено может оставаться в старом массиве
+        if ( deleted == NIL && old_heads != null )
+            deleted = delete_from(old_heads, hFunc(key, old_table_size), key);
+        if ( deleted == NIL ) return "FAIL";
+        low.on_delete(keys[deleted], values[deleted]);
+        high.on_delete(keys[deleted], values[deleted]);
+        next[deleted] = free_head;
+        free_head = deleted;
+        num_of_items--;
+        migrate_step();
+        check_resize();
+        return "SUCCESS";
+    }
+
+    /** Удаление звена из цепочки заданного массива
+     *
+     * Звено отцепляется, но в список свободных не добавляется.
+     *
+     * @param tbl - массив номеров первых звеньев
+     * @param target_index - индекс цепочки
+     * @param key - ключ
+     * @return номер удаленного звена или NIL, если не найдено
+     */
+    protected int delete_from(int[] tbl, int target_index, int key) {
+        int cur = tbl[target_index];
+        if ( cur == NIL ) return NIL;
+        if ( keys[cur] == key ) {
+            tbl[target_index] = next[cur];
+            return cur;
+        }
+        while ( true ) {
+            int following = next[cur];
+            if ( following == NIL ) return NIL;
+            if ( keys[following] == key ) {
+                next[cur] = next[following];
+                return following;
+            }
+            cur = following;
+        }
+    }
+
+    /** Поиск элемента в хэш-таблице по ключу
+     *
+     * @param key - ключ
+     * @return "key: X, value: Y" - найден,
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int key) {
+        int found = find_in(heads[hFunc(key)], key);
+        // во время переноса звено может оставаться в старом массиве
+        if ( found == NIL && old_heads != null )
+            found = find_in(old_heads[hFunc(key, old_table_size)], key);
+        if ( found == NIL ) return "NOT FOUND";
+        return "key: "+keys[found]+", value: "+values[found];
+    }
+
+    /** Поиск звена в цепочке
+     *
+     * @param cur - номер первого звена цепочки
+     * @param key - ключ
+     * @return номер найденного звена или NIL
+     */
+    protected int find_in(int cur, int key) {
+        while ( cur != NIL && keys[cur] != key )
+            cur = next[cur];
+        return cur;
+    }
+
+    /** Предложить буферам все звенья диапазона ячеек
+     *
+     * @param old - true - старый массив (во время переноса), false - текущий
+     * @param from - первая ячейка диапазона
+     * @param to - ячейка за последней ячейкой диапазона
+     * @param low_buf - буфер наименьших элементов
+     * @param high_buf - буфер наибольших элементов
+     */
+    @Override
+    protected void offer_buckets(boolean old, int from, int to,
+                                 ExtremaBuffer low_buf, ExtremaBuffer high_buf) {
+        int[] tbl = old ? old_heads : heads;
+        for ( int i=from; i<to; i++ )
+            for ( int cur = tbl[i]; cur != NIL; cur = next[cur] ) {
+                low_buf.offer(keys[cur], values[cur]);
+                high_buf.offer(keys[cur], values[cur]);
+            }
+    }
+
+    /** Выписать все звенья в порядке поиска
+     *
+     * @param keys - куда писать ключи (не короче num_of_items)
+     * @param values - куда писать значения
+     */
+    @Override
+    protected void collect_entries(int[] keys, int[] values) {
+        int pos = 0;
+        for ( int t=0; t<2; t++ ) {
+            int[] tbl = t == 0 ? heads : old_heads;
+            int size = t == 0 ? table_size : get_scan_size(true);
+            for ( int i=0; i<size; i++ )
+                for ( int cur = tbl[i]; cur != NIL; cur = next[cur] ) {
+                    keys[pos] = this.keys[cur];
+                    values[pos] = this.values[cur];
+                    pos++;
+                }
+        }
+    }
+
+    /** Получить тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data() {
+        StringBuilder stringB = new StringBuilder();
+        append_data(stringB, heads, table_size);
+        if ( old_heads != null ) {
+            stringB.append("  (old table, migration in progress)"+NL);
+            append_data(stringB, old_heads, old_table_size);
+        }
+        return stringB.toString();
+    }
+
+    /** Добавить тектовое изображение массива начальных указателей
+     *
+     * Для каждого звена выводится ключ и номер ячейки пула.
+     *
+     * @param stringB - куда добавлять
+     * @param tbl - массив номеров первых звеньев
+     * @param size - размер массива
+     */
+    protected void append_data(StringBuilder stringB, int[] tbl, int size) {
+        for ( int i=0; i<size; i++ ) {
+            stringB.append("  [");
+            stringB.append(i);
+            stringB.append("] -> ");
+            for ( int cur = tbl[i]; cur != NIL; cur = next[cur] ) {
+                stringB.append(keys[cur]);
+                stringB.append(" #");
+                stringB.append(cur);
+                stringB.append(" -> ");
+            }
+            stringB.append("NULL"+NL);
+        }
+    }
+
+    /** Получить упрощенное тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data_simple() {
+        StringBuilder stringB = new StringBuilder();
+        append_data_simple(stringB, heads, table_size);
+        if ( old_heads != null ) {
+            stringB.append("(old)");
+            append_data_simple(stringB, old_heads, old_table_size);
+        }
+        return stringB.toString();
+    }
+
+    /** Добавить упрощенное тектовое изображение массива начальных указателей
+     *
+     * @param stringB - куда добавлять
+     * @param tbl - массив номеров первых звеньев
+     * @param size - размер массива
+     */
+    protected void append_data_simple(StringBuilder stringB, int[] tbl, int size) {
+        for ( int i=0; i<size; i++ ) {
+            stringB.append("[");
+            stringB.append(i);
+            stringB.append("]-");
+            for ( int cur = tbl[i]; cur != NIL; cur = next[cur] ) {
+                stringB.append(keys[cur]);
+                stringB.append("-");
+            }
+            stringB.append("N ");
+        }
+    }
+
+    /**Получить основные параметры хэш-таблицы без данных в виде строки
+     *
+     * @return строка
+     */
+    @Override
+    public String get_state() {
+        return super.get_state()
+                + " || pool_size = "+keys.length
+                + " || pool_free = "+(keys.length - num_of_items);
+    }
+
+    /** Кол-во звеньев в ячейке текущего массива нач. указателей
+     *
+     * @param bucket - номер ячейки
+     * @return длина цепочки
+     */
+    @Override
+    protected int chain_length(int bucket) {
+        int length = 0;
+        for ( int cur = heads[bucket]; cur != NIL; cur = next[cur] )
+            length++;
+        return length;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "hash-table (pooled chains)";
+    }
+}
@@ -0,0 +1,380 @@
+package javarealization;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** Структура - Потокобезопасная хэш-таблица
+ *
+ * Адресация - цепочная, как в HTableChain. Ячейки массива начальных
+ * указателей разбиты на полосы (stripes), каждую полосу охраняет свой замок.
+ * add и delete берут замок только своей полосы, поэтому записи в разные
+ * полосы идут параллельно. find замков не берет вовсе: массив начальных
+ * указателей - AtomicReferenceArray, ссылки на следующие звенья - volatile,
+ * ключ и значение звена неизменяемы.
+ *
+ * Размер массива и кол-во полос - степени двойки, ячейка определяется
+ * младшими битами хэша, полоса - младшими битами номера ячейки. Поэтому
+ * полоса ключа не зависит от размера массива. При превышении коэффициента
+ * заполнения в полосе массив расширяется вдвое под всеми замками сразу;
+ * звенья при этом копируются, и читатели, обходящие старый массив,
+ * продолжают видеть его целиком.
+ *
+ * Кол-во элементов считается в LongAdder, чтобы счетчик не становился
+ * общей точкой конкуренции.
+ *
+ * get_min, get_max и изображения данных слабо согласованы: они не
+ * блокируют запись и видят каждое звено, которое было в таблице все время
+ * обхода, а звенья, добавленные или удаленные во время обхода, - как повезет.
+ *
+ * Повтор ключей поддерживается так же, как в HTableChain.
+ *
+ * @author Akropon
+ */
+public class HTableConcurrent implements Struct{
+
+    protected volatile AtomicReferenceArray<CChain> table; // массив начальных указателей
+    protected final ReentrantLock[] locks; // замки полос
+    protected final int[] stripe_items; // кол-во звеньев в каждой полосе (под замком полосы)
+    protected final LongAdder num_of_items; // кол-во звеньев в таблице
+
+    // коэффициент заполнения, при превышении которого таблица расширяется
+    protected static final float MAX_LOAD_FACTOR = 1.0f;
+    // кол-во полос по-умолчанию
+    public static final int DEFAULT_STRIPES = 16;
+    // предельный размер массива начальных указателей
+    protected static final int MAX_TABLE_SIZE = 1 << 30;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Хэш-фукнция
+     *
+     * Перемешивает биты ключа, чтобы младшие биты зависели от всех битов.
+     *
+     * @param key - ключ
+     * @return хэш
+     */
+    protected static int hFunc(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Округление вверх до степени двойки
+     *
+     * @param x - число
+     * @return степень двойки, не меньше x (в пределах MAX_TABLE_SIZE)
+     */
+    protected static int ceil_pow2(int x) {
+        int res = 1;
+        while ( res < x && res < MAX_TABLE_SIZE )
+            res *= 2;
+        return res;
+    }
+
+    /** Конструктор
+     *
+     * Создает пустую таблицу с DEFAULT_STRIPES полосами.
+     *
+     * @param table_size - длина массива нач. указаелей (округляется вверх до
+     *                     степени двойки, не меньше кол-ва полос)
+     */
+    public HTableConcurrent(int table_size) {
+        this(table_size, DEFAULT_STRIPES);
+    }
+
+    /** Конструктор
+     *
+     * Создает пустую таблицу с заданным кол-вом полос.
+     *
+     * @param table_size - длина массива нач. указаелей (округляется вверх до
+     *                     степени двойки, не меньше кол-ва полос)
+     * @param stripes - кол-во полос (округляется вверх до степени двойки)
+     */
+    public HTableConcurrent(int table_size, int stripes) {
+        if ( stripes < 1 ) stripes = 1;
+        stripes = ceil_pow2(stripes);
+        if ( table_size < stripes ) table_size = stripes;
+        this.table = new AtomicReferenceArray<>(ceil_pow2(table_size));
+        this.locks = new ReentrantLock[stripes];
+        for (int i=0; i<stripes; i++)
+            this.locks[i] = new ReentrantLock();
+        this.stripe_items = new int[stripes];
+        this.num_of_items = new LongAdder();
+    }
+
+    /** Добавление звена в хэш-таблицу по ключу
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        int h = hFunc(key);
+        int stripe = h & (locks.length-1);
+        boolean need_resize;
+        locks[stripe].lock();
+        try {
+            // под замком полосы массив не может смениться
+            AtomicReferenceArray<CChain> tbl = table;
+            int target_index = h & (tbl.length()-1);
+            tbl.set(target_index, new CChain(key, value, tbl.get(target_index)));
+            stripe_items[stripe]++;
+            need_resize = stripe_items[stripe] > MAX_LOAD_FACTOR * tbl.length() / locks.length;
+        } finally {
+            locks[stripe].unlock();
+        }
+        num_of_items.increment();
+        if ( need_resize )
+            resize();
+    }
+
+    /** Расширение массива начальных указателей вдвое
+     *
+     * Берет все замки по порядку. Звенья копируются в новые цепочки с
+     * сохранением порядка, старый массив не меняется.
+     */
+    protected void resize() {
+        for (int i=0; i<locks.length; i++)
+            locks[i].lock();
+        try {
+            AtomicReferenceArray<CChain> old_tbl = table;
+            int old_size = old_tbl.length();
+            // пока ждали замки, таблицу мог расширить другой поток
+            int max_stripe_items = 0;
+            for (int i=0; i<stripe_items.length; i++)
+                max_stripe_items = Math.max(max_stripe_items, stripe_items[i]);
+            if ( max_stripe_items <= MAX_LOAD_FACTOR * old_size / locks.length
+                 || old_size >= MAX_TABLE_SIZE )
+                return;
+            int new_size = old_size * 2;
+            CChain[] heads = new CChain[new_size];
+            CChain[] tails = new CChain[new_size];
+            for (int i=0; i<old_size; i++) {
+                for (CChain cur = old_tbl.get(i); cur != null; cur = cur.next) {
+                    int target_index = hFunc(cur.key) & (new_size-1);
+                    CChain copy = new CChain(cur.key, cur.value, null);
+                    if ( tails[target_index] == null )
+                        heads[target_index] = copy;
+                    else
+                        tails[target_index].next = copy;
+                    tails[target_index] = copy;
+                }
+            }
+            table = new AtomicReferenceArray<>(heads);
+        } finally {
+            for (int i=locks.length-1; i>=0; i--)
+                locks[i].unlock();
+        }
+    }
+
+    /** Удаление звена из хэш-таблицы по ключу
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int key) {
+        int h = hFunc(key);
+        int stripe = h & (locks.length-1);
+        locks[stripe].lock();
+        try {
+            AtomicReferenceArray<CChain> tbl = table;
+            int target_index = h & (tbl.length()-1);
+            CChain head = tbl.get(target_index);
+            if ( head == null ) return "FAIL";
+            if ( head.key == key ) {
+                tbl.set(target_index, head.next);
+            } else {
+                CChain cur_chain = head;
+                while ( true ) {
+                    if ( cur_chain.next == null ) return "FAIL";
+                    if ( cur_chain.next.key == key ) {
+                        cur_chain.next = cur_chain.next.next;
+                        break;
+                    }
+                    cur_chain = cur_chain.next;
+                }
+            }
+            stripe_items[stripe]--;
+        } finally {
+            locks[stripe].unlock();
+        }
+        num_of_items.decrement();
+        return "SUCCESS";
+    }
+
+    /** Поиск элемента в хэш-таблице по ключу
+     *
+     * Без блокировок.
+     *
+     * @param key - ключ
+     * @return "key: X, value: Y" - найден,
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int key) {
+        AtomicReferenceArray<CChain> tbl = table;
+        CChain cur_chain = tbl.get(hFunc(key) & (tbl.length()-1));
+        while ( cur_chain != null ) {
+            if ( cur_chain.key == key )
+                return "key: "+cur_chain.key+", value: "+cur_chain.value;
+            cur_chain = cur_chain.next;
+        }
+        return "NOT FOUND";
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * Без блокировок, слабо согласовано.
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        AtomicReferenceArray<CChain> tbl = table;
+        CChain max_chain = null;
+        for ( int i=0; i<tbl.length(); i++ )
+            for ( CChain cur = tbl.get(i); cur != null; cur = cur.next )
+                if ( max_chain == null || cur.key > max_chain.key )
+                    max_chain = cur;
+        if ( max_chain == null ) return "NOT EXISTS";
+        return "key: "+max_chain.key+", value: "+max_chain.value;
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * Без блокировок, слабо согласовано.
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        AtomicReferenceArray<CChain> tbl = table;
+        CChain min_chain = null;
+        for ( int i=0; i<tbl.length(); i++ )
+            for ( CChain cur = tbl.get(i); cur != null; cur = cur.next )
+                if ( min_chain == null || cur.key < min_chain.key )
+                    min_chain = cur;
+        if ( min_chain == null ) return "NOT EXISTS";
+        return "key: "+min_chain.key+", value: "+min_chain.value;
+    }
+
+    /** Получить тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data() {
+        AtomicReferenceArray<CChain> tbl = table;
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<tbl.length(); i++ ) {
+            stringB.append("  [");
+            stringB.append(i);
+            stringB.append("] -> ");
+            for ( CChain cur = tbl.get(i); cur != null; cur = cur.next ) {
+                stringB.append(cur.key);
+                stringB.append(" -> ");
+            }
+            stringB.append("NULL"+NL);
+        }
+        return stringB.toString();
+    }
+
+    /** Получить упрощенное тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data_simple() {
+        AtomicReferenceArray<CChain> tbl = table;
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<tbl.length(); i++ ) {
+            stringB.append("[");
+            stringB.append(i);
+            stringB.append("]-");
+            for ( CChain cur = tbl.get(i); cur != null; cur = cur.next ) {
+                stringB.append(cur.key);
+                stringB.append("-");
+            }
+            stringB.append("N ");
+        }
+        return stringB.toString();
+    }
+
+    /**Получить основные параметры хэш-таблицы без данных в виде строки
+     *
+     * @return строка
+     */
+    @Override
+    public String get_state() {
+        return "num_of_items = "+num_of_items.sum()+" || table_size = "+table.length()
+                + " || stripes = "+locks.length;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "hash-table (concurrent, lock-striped)";
+    }
+
+    /** Заглушка для неподдерживаемого метода
+     *
+     * @return сообщение об ошибке
+     */
+    @Override
+    public String get_at(int index) {
+        return "Command is not supported for this structure";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в упрощенном текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+
+
+    /** Звено
+     *
+     * Звено для цепочек в потокобезопасной хэш-таблице HTableConcurrent.
+     * Ключ и значение неизменяемы, ссылка на следующее звено - volatile,
+     * чтобы читатели без замков видели целые цепочки.
+     *
+     * @author Akropon
+     */
+    public static class CChain {
+        public final int key; // Ключ
+        public final int value; // Значение
+        public volatile CChain next; // Указатель на след. звено
+
+        /** Конструктор
+         *
+         * Создает звено с заданными ключем и указателем на след звено
+         *
+         * @param key - ключ
+         * @param value - значение
+         * @param next - указатель на след звено
+         */
+        public CChain(int key, int value, CChain next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package javarealization;
+
+/** Структура - Хэш-таблица с кукушкиным хэшированием
+ *
+ * Каждый ключ может лежать только в одной из двух корзин (по двум
+ * хэш-функциям) по SLOTS ячеек или в небольшом общем тайнике (stash) на
+ * STASH_SIZE элементов. Поэтому find проверяет не больше
+ * 2*SLOTS+STASH_SIZE ячеек при любом заполнении - время поиска не зависит
+ * от длины цепочек или кластеров.
+ * При вставке в две полные корзины один из элементов вытесняется в свою
+ * вторую корзину, тот - вытесняет следующего и т.д. (не дольше MAX_KICKS
+ * шагов). Не уместившийся элемент уходит в тайник, а при полном тайнике
+ * таблица расширяется вдвое с новыми хэш-функциями.
+ *
+ * В отличие от HTableChain повтор ключей не поддерживается: add с уже
+ * имеющимся ключем заменяет его значение (иначе один ключ, добавленный
+ * много раз, не уместился бы в двух корзинах).
+ *
+ * Минимум и максимум запоминаются: add их обновляет, а обход таблицы нужен
+ * лишь после удаления самого элемента-минимума (максимума).
+ *
+ * @author Akropon
+ */
+public class HTableCuckoo implements Struct{
+
+    protected int[] keys; // ключи, корзина b занимает ячейки [b*SLOTS, (b+1)*SLOTS)
+    protected int[] values; // значения
+    protected boolean[] used; // занята ли ячейка
+    protected int num_of_buckets; // кол-во корзин (степень двойки)
+    protected int num_of_items; // кол-во элементов в таблице (в т.ч. в тайнике)
+    protected int seed1; // параметр первой хэш-функции
+    protected int seed2; // параметр второй хэш-функции
+
+    protected int[] stash_keys; // ключи тайника
+    protected int[] stash_values; // значения тайника
+    protected int stash_count; // кол-во элементов в тайнике
+
+    protected int random; // состояние генератора выбора вытесняемой ячейки
+    protected int rehashes; // кол-во перестроений таблицы
+    protected int homeless_key; // ключ элемента, не размещенного place()
+    protected int homeless_value; // значение элемента, не размещенного place()
+
+    protected boolean extrema_valid; // верны ли запомненные мин. и макс.
+    protected int min_key, min_value; // элемент с мин. ключем
+    protected int max_key, max_value; // элемент с макс. ключем
+
+    // кол-во ячеек в корзине
+    protected static final int SLOTS = 4;
+    // размер тайника
+    protected static final int STASH_SIZE = 4;
+    // макс. длина цепочки вытеснений при вставке
+    protected static final int MAX_KICKS = 256;
+    // коэффициент заполнения, при превышении которого таблица расширяется заранее
+    protected static final float MAX_LOAD_FACTOR = 0.9f;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Конструктор
+     *
+     * Создает пустую хэш-таблицу, вмещающую не менее заданного кол-ва
+     * элементов до первого расширения.
+     *
+     * @param capacity - ожидаемое кол-во элементов
+     */
+    public HTableCuckoo(int capacity) {
+        if ( capacity < 1 ) capacity = 1;
+        int buckets = 2;
+        while ( buckets * SLOTS * MAX_LOAD_FACTOR < capacity && buckets < (1 << 28) )
+            buckets *= 2;
+        this.random = 0x2545F491;
+        this.seed1 = next_random();
+        this.seed2 = next_random();
+        this.rehashes = 0;
+        this.num_of_items = 0;
+        this.stash_keys = new int[STASH_SIZE];
+        this.stash_values = new int[STASH_SIZE];
+        this.stash_count = 0;
+        this.extrema_valid = true;
+        allocate(buckets);
+    }
+
+    /** Выделение пустых массивов на заданное кол-во корзин
+     *
+     * @param buckets - кол-во корзин (степень двойки)
+     */
+    protected void allocate(int buckets) {
+        this.num_of_buckets = buckets;
+        this.keys = new int[buckets * SLOTS];
+        this.values = new int[buckets * SLOTS];
+        this.used = new boolean[buckets * SLOTS];
+    }
+
+    /** Генератор псевдослучайных чисел (xorshift32)
+     *
+     * @return очередное число
+     */
+    protected int next_random() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random;
+    }
+
+    /** Хэш-функция
+     *
+     * Финализатор MurmurHash3 от ключа, смешанного с параметром.
+     *
+     * @param key - ключ
+     * @param seed - параметр хэш-функции
+     * @return номер корзины
+     */
+    protected int hFunc(int key, int seed) {
+        int h = key ^ seed;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & (num_of_buckets - 1);
+    }
+
+    /** Поиск ячейки с ключем в корзине
+     *
+     * @param bucket - номер корзины
+     * @param key - ключ
+     * @return индекс ячейки или -1, если не найден
+     */
+    protected int find_in_bucket(int bucket, int key) {
+        int base = bucket * SLOTS;
+        for ( int i=base; i<base+SLOTS; i++ )
+            if ( used[i] && keys[i] == key ) return i;
+        return -1;
+    }
+
+    /** Поиск ячейки с ключем в основной таблице
+     *
+     * @param key - ключ
+     * @return индекс ячейки или -1, если не найден
+     */
+    protected int find_pos(int key) {
+        int pos = find_in_bucket(hFunc(key, seed1), key);
+        if ( pos < 0 ) pos = find_in_bucket(hFunc(key, seed2), key);
+        return pos;
+    }
+
+    /** Поиск ключа в тайнике
+     *
+     * @param key - ключ
+     * @return индекс в тайнике или -1, если не найден
+     */
+    protected int find_in_stash(int key) {
+        for ( int i=0; i<stash_count; i++ )
+            if ( stash_keys[i] == key ) return i;
+        return -1;
+    }
+
+    /** Добавление элемента в хэш-таблицу
+     *
+     * Если ключ уже есть, заменяется его значение.
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        update_extrema(key, value);
+        int pos = find_pos(key);
+        if ( pos >= 0 ) {
+            values[pos] = value;
+            return;
+        }
+        pos = find_in_stash(key);
+        if ( pos >= 0 ) {
+            stash_values[pos] = value;
+            return;
+        }
+        if ( num_of_items+1 > num_of_buckets * SLOTS * MAX_LOAD_FACTOR && num_of_buckets < (1 << 28) )
+            rehash(num_of_buckets * 2);
+        num_of_items++;
+        insert(key, value);
+    }
+
+    /** Вставка элемента, которого заведомо нет в таблице
+     *
+     * Элемент, не уместившийся после MAX_KICKS вытеснений, уходит в тайник,
+     * а при полном тайнике таблица расширяется и вставка повторяется.
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    protected void insert(int key, int value) {
+        while ( true ) {
+            if ( place(key, value) ) return;
+            // элемент, которому не нашлось места (им может быть и вытесненный)
+            key = homeless_key;
+            value = homeless_value;
+            if ( stash_count < STASH_SIZE ) {
+                stash_keys[stash_count] = key;
+                stash_values[stash_count] = value;
+                stash_count++;
+                return;
+            }
+            rehash(num_of_buckets * 2);
+        }
+    }
+
+    /** Размещение элемента в основной таблице вытеснениями
+     *
+     * @param key - ключ
+     * @param value - значение
+     * @return true - размещен, false - элемент, оставшийся без места 
+     *         (им может быть и другой, вытесненный элемент), записан в 
+     *         homeless_key и homeless_value
+     */
+    protected boolean place(int key, int value) {
+        if ( put_in_bucket(hFunc(key, seed1), key, value) ) return true;
+        int bucket = hFunc(key, seed2);
+        for ( int kick=0; kick<MAX_KICKS; kick++ ) {
+            if ( put_in_bucket(bucket, key, value) ) return true;
+            // корзина полна - вытесняем из нее случайный элемент
+            int victim = bucket * SLOTS + ((next_random() >>> 1) % SLOTS);
+            int tmp_key = keys[victim];
+            int tmp_value = values[victim];
+            keys[victim] = key;
+            values[victim] = value;
+            key = tmp_key;
+            value = tmp_value;
+            // вытесненный переходит в свою другую корзину
+            int bucket1 = hFunc(key, seed1);
+            bucket = bucket1 == bucket ? hFunc(key, seed2) : bucket1;
+        }
+        homeless_key = key;
+        homeless_value = value;
+        return false;
+    }
+
+    /** Размещение элемента в свободной ячейке корзины
+     *
+     * @param bucket - номер корзины
+     * @param key - ключ
+     * @param value - значение
+     * @return true - размещен, false - корзина полна
+     */
+    protected boolean put_in_bucket(int bucket, int key, int value) {
+        int base = bucket * SLOTS;
+        for ( int i=base; i<base+SLOTS; i++ )
+            if ( !used[i] ) {
+                keys[i] = key;
+                values[i] = value;
+                used[i] = true;
+                return true;
+            }
+        return false;
+    }
+
+    /** Перестроение таблицы с новыми хэш-функциями
+     *
+     * @param new_buckets - новое кол-во корзин (степень двойки)
+     */
+    protected void rehash(int new_buckets) {
+        int[] old_keys = keys;
+        int[] old_values = values;
+        boolean[] old_used = used;
+        int old_stash_count = stash_count;
+        int[] old_stash_keys = stash_keys.clone();
+        int[] old_stash_values = stash_values.clone();
+        rehashes++;
+        seed1 = next_random();
+        seed2 = next_random();
+        stash_count = 0;
+        allocate(new_buckets);
+        for ( int i=0; i<old_keys.length; i++ )
+            if ( old_used[i] )
+                insert(old_keys[i], old_values[i]);
+        for ( int i=0; i<old_stash_count; i++ )
+            insert(old_stash_keys[i], old_stash_values[i]);
+    }
+
+    /** Удаление элемента из хэш-таблицы по ключу
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int key) {
+        if ( extrema_valid && num_of_items > 0 && (key == min_key || key == max_key) )
+            extrema_valid = false;
+        int pos = find_pos(key);
+        if ( pos >= 0 ) {
+            used[pos] = false;
+            num_of_items--;
+            return "SUCCESS";
+        }
+        pos = find_in_stash(key);
+        if ( pos < 0 ) return "FAIL";
+        stash_count--;
+        stash_keys[pos] = stash_keys[stash_count];
+        stash_values[pos] = stash_values[stash_count];
+        num_of_items--;
+        return "SUCCESS";
+    }
+
+    /** Поиск элемента в хэш-таблице по ключу
+     *
+     * @param key - ключ
+     * @return "key: X, value: Y" - найден,
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int key) {
+        int pos = find_pos(key);
+        if ( pos >= 0 ) return "key: "+keys[pos]+", value: "+values[pos];
+        pos = find_in_stash(key);
+        if ( pos >= 0 ) return "key: "+stash_keys[pos]+", value: "+stash_values[pos];
+        return "NOT FOUND";
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        return get_extremum(true);
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        return get_extremum(false);
+    }
+
+    /** Получить элемент с мин. или макс. ключем
+     *
+     * @param max - true - максимум, false - минимум
+     * @return "NOT EXISTS" или "key: X, value: Y"
+     */
+    protected String get_extremum(boolean max) {
+        if ( num_of_items == 0 ) return "NOT EXISTS";
+        if ( !extrema_valid ) refill_extrema();
+        if ( max ) return "key: "+max_key+", value: "+max_value;
+        return "key: "+min_key+", value: "+min_value;
+    }
+
+    /** Обновление запомненных мин. и макс. при добавлении элемента
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    protected void update_extrema(int key, int value) {
+        if ( !extrema_valid ) return;
+        if ( num_of_items == 0 ) {
+            min_key = max_key = key;
+            min_value = max_value = value;
+            return;
+        }
+        if ( key <= min_key ) {
+            min_key = key;
+            min_value = value;
+        }
+        if ( key >= max_key ) {
+            max_key = key;
+            max_value = value;
+        }
+    }
+
+    /** Поиск мин. и макс. обходом таблицы и тайника
+     */
+    protected void refill_extrema() {
+        boolean found = false;
+        for ( int i=0; i<keys.length; i++ )
+            if ( used[i] ) {
+                offer_extremum(keys[i], values[i], !found);
+                found = true;
+            }
+        for ( int i=0; i<stash_count; i++ ) {
+            offer_extremum(stash_keys[i], stash_values[i], !found);
+            found = true;
+        }
+        extrema_valid = true;
+    }
+
+    /** Учет элемента при поиске мин. и макс.
+     *
+     * @param key - ключ
+     * @param value - значение
+     * @param first - true - первый учитываемый элемент
+     */
+    protected void offer_extremum(int key, int value, boolean first) {
+        if ( first || key < min_key ) {
+            min_key = key;
+            min_value = value;
+        }
+        if ( first || key > max_key ) {
+            max_key = key;
+            max_value = value;
+        }
+    }
+
+    /** Получить тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data() {
+        StringBuilder stringB = new StringBuilder();
+        for ( int b=0; b<num_of_buckets; b++ ) {
+            stringB.append("  [");
+            stringB.append(b);
+            stringB.append("]");
+            for ( int i=b*SLOTS; i<(b+1)*SLOTS; i++ ) {
+                stringB.append(" | ");
+                if ( used[i] ) stringB.append(keys[i]);
+                else stringB.append("EMPTY");
+            }
+            stringB.append(NL);
+        }
+        stringB.append("  [stash]");
+        for ( int i=0; i<stash_count; i++ ) {
+            stringB.append(" | ");
+            stringB.append(stash_keys[i]);
+        }
+        stringB.append(NL);
+        return stringB.toString();
+    }
+
+    /** Получить упрощенное тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data_simple() {
+        StringBuilder stringB = new StringBuilder();
+        for ( int b=0; b<num_of_buckets; b++ ) {
+            stringB.append("[");
+            stringB.append(b);
+            stringB.append("]");
+            for ( int i=b*SLOTS; i<(b+1)*SLOTS; i++ ) {
+                if ( used[i] ) stringB.append(keys[i]);
+                else stringB.append("E");
+                stringB.append(i+1 < (b+1)*SLOTS ? "," : " ");
+            }
+        }
+        stringB.append("[S]");
+        for ( int i=0; i<stash_count; i++ ) {
+            stringB.append(stash_keys[i]);
+            stringB.append(" ");
+        }
+        return stringB.toString();
+    }
+
+    /**Получить основные параметры хэш-таблицы без данных в виде строки
+     *
+     * @return строка
+     */
+    @Override
+    public String get_state() {
+        return "num_of_items = "+num_of_items+" || buckets = "+num_of_buckets
+                + " || slots_per_bucket = "+SLOTS
+                + " || load_factor = "+(float)num_of_items/(num_of_buckets*SLOTS)
+                + " || stash = "+stash_count+" of "+STASH_SIZE
+                + " || max_probes = "+(2*SLOTS+STASH_SIZE)
+                + " || rehashes = "+rehashes;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "hash-table (cuckoo)";
+    }
+
+    /** Заглушка для неподдерживаемого метода
+     *
+     * @return сообщение об ошибке
+     */
+    @Override
+    public String get_at(int index) {
+        return "Command is not supported for this structure";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в упрощенном текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+}
@@ -0,0 +1,349 @@
+package javarealization;
+
+import java.util.Arrays;
+
+/** Структура - Замороженная хэш-таблица (минимальное совершенное хэширование)
+ *
+ * Неизменяемая таблица, получаемая из HTableChain.freeze(). Ключи и
+ * значения лежат в плоских массивах keys[] и values[] длиной ровно в кол-во
+ * различных ключей, а номер ячейки ключа вычисляется без коллизий по схеме
+ * BBHash:
+ *   - на уровне 0 каждый ключ хэшируется в битовый массив длиной
+ *     GAMMA * (кол-во ключей); бит ставится для ключей, попавших в позицию
+ *     в одиночку;
+ *   - столкнувшиеся ключи переходят на следующий уровень с новой
+ *     хэш-функцией и массивом поменьше, и так далее;
+ *   - номер ячейки ключа - кол-во единичных битов до его бита во всех
+ *     уровнях (ранг), для скорости ранги начал слов посчитаны заранее;
+ *   - немногие ключи, не разошедшиеся за MAX_LEVELS уровней, лежат в конце
+ *     массивов по возрастанию и ищутся двоичным поиском.
+ * Постройка - несколько линейных проходов по ключам. find проверяет биты
+ * уровней (в среднем меньше двух) и сравнивает ровно один ключ, а на ключ 
+ * приходится 8 байт данных и около 5 бит индекса.
+ *
+ * add и delete не поддерживаются. Повторы ключей при заморозке схлопываются:
+ * остается последнее добавленное значение - только его и мог вернуть find,
+ * раз удалять элементы больше нельзя.
+ *
+ * @author Akropon
+ */
+public class HTableFrozen implements Struct{
+
+    protected int[] keys; // ключи, по ячейке на ключ
+    protected int[] values; // значения
+    protected long[] bits; // битовые массивы всех уровней подряд
+    protected int[] ranks; // кол-во единичных битов до начала каждого слова bits[]
+    protected int[] level_start; // номер первого бита уровня ( + конец последнего )
+    protected int[] level_seeds; // параметры хэш-функций уровней
+    protected int num_of_levels; // кол-во уровней
+    protected int num_of_items; // кол-во ключей
+    protected int fallback_start; // ячейка первого ключа, не разошедшегося по уровням
+    protected long build_time; // время постройки, нс
+    protected int min_index; // ячейка минимального ключа ( -1 - таблица пуста )
+    protected int max_index; // ячейка максимального ключа
+
+    // во сколько раз битовый массив уровня длиннее кол-ва его ключей
+    protected static final int GAMMA = 2;
+    // макс. кол-во уровней
+    protected static final int MAX_LEVELS = 24;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Конструктор
+     *
+     * Строит таблицу по элементам, перечисленным в порядке поиска: из
+     * нескольких элементов с одинаковым ключем остается первый.
+     *
+     * @param src_keys - ключи
+     * @param src_values - значения
+     * @param count - кол-во элементов
+     */
+    public HTableFrozen(int[] src_keys, int[] src_values, int count) {
+        long start = System.nanoTime();
+        // сортировка пар (ключ, порядковый номер) - одинаковые ключи
+        // оказываются рядом, первым идет элемент с меньшим номером
+        long[] order = new long[count];
+        for ( int i=0; i<count; i++ )
+            order[i] = ((long)src_keys[i] << 32) | i;
+        Arrays.sort(order);
+        int[] distinct_keys = new int[count];
+        int[] distinct_values = new int[count];
+        int n = 0;
+        for ( int i=0; i<count; i++ ) {
+            int key = (int)(order[i] >> 32);
+            if ( n > 0 && distinct_keys[n-1] == key ) continue;
+            distinct_keys[n] = key;
+            distinct_values[n] = src_values[(int)order[i]];
+            n++;
+        }
+        order = null;
+        this.num_of_items = n;
+        build(distinct_keys, distinct_values);
+        // ключи были отсортированы - крайние известны сразу
+        this.min_index = n == 0 ? -1 : slot_of(distinct_keys[0]);
+        this.max_index = n == 0 ? -1 : slot_of(distinct_keys[n-1]);
+        this.build_time = System.nanoTime() - start;
+    }
+
+    /** Финализатор MurmurHash3
+     *
+     * @param h - аргумент
+     * @return перемешанное значение
+     */
+    protected static int fmix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /** Позиция ключа в битовом массиве уровня
+     *
+     * @param key - ключ
+     * @param level - уровень
+     * @return номер бита среди битов всех уровней
+     */
+    protected int position(int key, int level) {
+        int h = fmix(key ^ level_seeds[level]);
+        int size = level_start[level+1] - level_start[level];
+        return level_start[level] + (int)(((h & 0xFFFFFFFFL) * size) >>> 32);
+    }
+
+    /** Постройка уровней и раскладка ключей по ячейкам
+     *
+     * @param src_keys - различные ключи (по возрастанию)
+     * @param src_values - их значения
+     */
+    protected void build(int[] src_keys, int[] src_values) {
+        int n = num_of_items;
+        level_start = new int[MAX_LEVELS+1];
+        level_seeds = new int[MAX_LEVELS];
+        // уровни строятся по очереди, биты копятся в растущем массиве
+        long[] all_bits = new long[Math.max(1, (int)(((long)GAMMA * n + 63) >>> 6) + 1)];
+        int[] rest = new int[n]; // номера еще не разошедшихся ключей
+        for ( int i=0; i<n; i++ ) rest[i] = i;
+        int rest_count = n;
+        int level = 0;
+        while ( rest_count > 0 && level < MAX_LEVELS ) {
+            // уровень выравнивается по слову, чтобы его биты не делили слово с соседом
+            int size = (int)Math.min(((long)GAMMA * rest_count + 63) & ~63L, Integer.MAX_VALUE - 64);
+            long end = (long)level_start[level] + size;
+            if ( end > Integer.MAX_VALUE - 64 ) break;
+            level_start[level+1] = (int)end;
+            level_seeds[level] = fmix(0x3C6EF372 + level * 0x6A09E667);
+            int words = (int)(end >>> 6);
+            if ( words > all_bits.length )
+                all_bits = Arrays.copyOf(all_bits, Math.max(words, all_bits.length * 2));
+            long[] collide = new long[size >>> 6];
+            int base = level_start[level];
+            for ( int i=0; i<rest_count; i++ ) {
+                int pos = position(src_keys[rest[i]], level);
+                long mask = 1L << pos;
+                if ( (all_bits[pos >>> 6] & mask) != 0 )
+                    collide[(pos - base) >>> 6] |= mask;
+                else
+                    all_bits[pos >>> 6] |= mask;
+            }
+            for ( int w=0; w<collide.length; w++ )
+                all_bits[(base >>> 6) + w] &= ~collide[w];
+            int next_count = 0;
+            for ( int i=0; i<rest_count; i++ ) {
+                int pos = position(src_keys[rest[i]], level);
+                if ( (collide[(pos - base) >>> 6] & (1L << pos)) != 0 )
+                    rest[next_count++] = rest[i];
+            }
+            rest_count = next_count;
+            level++;
+        }
+        num_of_levels = level;
+        bits = Arrays.copyOf(all_bits, Math.max(1, level_start[level] >>> 6));
+        ranks = new int[bits.length];
+        int rank = 0;
+        for ( int w=0; w<bits.length; w++ ) {
+            ranks[w] = rank;
+            rank += Long.bitCount(bits[w]);
+        }
+        fallback_start = rank;
+        keys = new int[n];
+        values = new int[n];
+        boolean[] in_fallback = new boolean[n];
+        for ( int i=0; i<rest_count; i++ ) in_fallback[rest[i]] = true;
+        int fallback_pos = fallback_start;
+        // ключи идут по возрастанию - хвост тоже получается отсортированным
+        for ( int i=0; i<n; i++ ) {
+            int slot = in_fallback[i] ? fallback_pos++ : slot_of(src_keys[i]);
+            keys[slot] = src_keys[i];
+            values[slot] = src_values[i];
+        }
+    }
+
+    /** Номер ячейки ключа
+     *
+     * @param key - ключ
+     * @return номер ячейки (ключ в ней совпадает с искомым, только если он
+     *         есть) или -1
+     */
+    protected int slot_of(int key) {
+        for ( int level=0; level<num_of_levels; level++ ) {
+            int pos = position(key, level);
+            long word = bits[pos >>> 6];
+            if ( (word & (1L << pos)) != 0 )
+                return ranks[pos >>> 6] + Long.bitCount(word & ((1L << pos) - 1));
+        }
+        int slot = Arrays.binarySearch(keys, fallback_start, num_of_items, key);
+        return slot < 0 ? -1 : slot;
+    }
+
+    /** Заглушка для неподдерживаемого метода
+     *
+     * @param key - ключ
+     * @param value - значение
+     * @throws UnsupportedOperationException всегда - таблица неизменяема
+     */
+    @Override
+    public void add(int key, int value) {
+        throw new UnsupportedOperationException("frozen hash-table is read-only");
+    }
+
+    /** Заглушка для неподдерживаемого метода
+     *
+     * @param key - ключ
+     * @return сообщение об ошибке
+     */
+    @Override
+    public String delete(int key) {
+        return "Command is not supported for this structure";
+    }
+
+    /** Поиск элемента в хэш-таблице по ключу
+     *
+     * @param key - ключ
+     * @return "key: X, value: Y" - найден,
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int key) {
+        int slot = slot_of(key);
+        if ( slot < 0 || keys[slot] != key ) return "NOT FOUND";
+        return "key: "+keys[slot]+", value: "+values[slot];
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        if ( max_index < 0 ) return "NOT EXISTS";
+        return "key: "+keys[max_index]+", value: "+values[max_index];
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        if ( min_index < 0 ) return "NOT EXISTS";
+        return "key: "+keys[min_index]+", value: "+values[min_index];
+    }
+
+    /** Получить тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data() {
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<num_of_items; i++ ) {
+            stringB.append("  [");
+            stringB.append(i);
+            stringB.append("] ");
+            stringB.append(keys[i]);
+            stringB.append(" : ");
+            stringB.append(values[i]);
+            stringB.append(NL);
+        }
+        return stringB.toString();
+    }
+
+    /** Получить упрощенное тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data_simple() {
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<num_of_items; i++ ) {
+            stringB.append("[");
+            stringB.append(i);
+            stringB.append("]");
+            stringB.append(keys[i]);
+            stringB.append(" ");
+        }
+        return stringB.toString();
+    }
+
+    /** Получить объем массивов таблицы
+     *
+     * @return байт
+     */
+    public long get_memory_bytes() {
+        return 4L * (keys.length + values.length + ranks.length + level_start.length
+                     + level_seeds.length) + 8L * bits.length;
+    }
+
+    /**Получить основные параметры хэш-таблицы без данных в виде строки
+     *
+     * @return строка
+     */
+    @Override
+    public String get_state() {
+        long index_bits = 8L * (get_memory_bytes() - 4L * (keys.length + values.length));
+        return "num_of_items = "+num_of_items+" || levels = "+num_of_levels
+                + " || fallback_keys = "+(num_of_items - fallback_start)
+                + " || memory_bytes = "+get_memory_bytes()
+                + " || index_bits_per_key = "+(num_of_items == 0 ? 0 : (float)index_bits/num_of_items)
+                + " || build_time_ms = "+build_time/1000000;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "hash-table (frozen, minimal perfect hash)";
+    }
+
+    /** Заглушка для неподдерживаемого метода
+     *
+     * @return сообщение об ошибке
+     */
+    @Override
+    public String get_at(int index) {
+        return "Command is not supported for this structure";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в упрощенном текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+}
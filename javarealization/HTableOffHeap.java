@@ -0,0 +1,435 @@
+package javarealization;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** Структура - Хэш-таблица вне кучи
+ *
+ * Адресация - цепочная, как в HTableChain, но массив начальных указателей
+ * и все звенья лежат в прямых (direct) буферах ByteBuffer вне кучи Java.
+ * Звено - 12 байт: ключ, значение и индекс следующего звена (-1 - нет).
+ * Освобожденные при удалении звенья собираются в список свободных звеньев
+ * и используются повторно. Поэтому в куче всегда лишь несколько объектов,
+ * сколько бы элементов ни было в таблице, и сборщику мусора нечего обходить.
+ *
+ * Повтор ключей поддерживается так же, как в HTableChain: новое звено
+ * ставится в начало цепочки, find и delete находят последнее добавленное.
+ *
+ * При заполнении буфера звеньев он расширяется вдвое, при превышении
+ * коэффициента заполнения MAX_LOAD_FACTOR массив начальных указателей
+ * расширяется вдвое и звенья перецепляются.
+ *
+ * Память вне кучи освобождается явно методом close(). После close()
+ * любые операции со структурой бросают IllegalStateException.
+ *
+ * @author Akropon
+ */
+public class HTableOffHeap implements Struct, AutoCloseable{
+
+    protected ByteBuffer buckets; // массив начальных указателей (int на ячейку)
+    protected ByteBuffer entries; // звенья (ENTRY_BYTES байт на звено)
+    protected int table_size; // размер массива начальных указателей
+    protected int entries_capacity; // кол-во звеньев, помещающихся в entries
+    protected int entries_used; // кол-во когда-либо занятых звеньев в entries
+    protected int free_head; // первое звено списка свободных звеньев (-1 - пуст)
+    protected int num_of_items; // кол-во звеньев в таблице
+
+    // размер звена: ключ, значение, индекс следующего звена
+    protected static final int ENTRY_BYTES = 12;
+    protected static final int KEY_OFFSET = 0;
+    protected static final int VALUE_OFFSET = 4;
+    protected static final int NEXT_OFFSET = 8;
+    // признак отсутствия звена
+    protected static final int NIL = -1;
+    // коэффициент заполнения, при превышении которого массив нач. указателей расширяется
+    protected static final float MAX_LOAD_FACTOR = 1.0f;
+    // предельное кол-во звеньев: буфер не может быть больше Integer.MAX_VALUE байт
+    protected static final int MAX_ENTRIES = Integer.MAX_VALUE / ENTRY_BYTES;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Конструктор
+     *
+     * Создает пустую хэш-таблицу с заданной длиной массива начальных указателей.
+     * Буфер звеньев изначально рассчитан на то же кол-во звеньев.
+     *
+     * @param table_size - длина массива нач. указаелей
+     * @throws IllegalArgumentException, если буфер звеньев на table_size
+     * звеньев больше Integer.MAX_VALUE байт (table_size > MAX_ENTRIES)
+     */
+    public HTableOffHeap(int table_size) {
+        if ( table_size < 1 ) table_size = 1;
+        long entries_bytes = (long)table_size * ENTRY_BYTES;
+        if ( entries_bytes > Integer.MAX_VALUE )
+            throw new IllegalArgumentException("off-heap table size is too large: "+table_size
+                    +" (at most "+MAX_ENTRIES+")");
+        this.table_size = table_size;
+        this.buckets = new_buckets(table_size);
+        this.entries_capacity = table_size;
+        this.entries = allocate((int)entries_bytes);
+        this.entries_used = 0;
+        this.free_head = NIL;
+        this.num_of_items = 0;
+    }
+
+    /** Хэш-фукнция
+     *
+     * Возвращает остаток от деления аргумента на размер массива начальных указателей
+     *   по модулю этого размера.
+     *
+     * @param argument - аргумент
+     * @return - остаток
+     */
+    protected int hFunc(int argument) {
+        int res = argument % table_size;
+        return res < 0 ? res+table_size : res;
+    }
+
+    /** Выделение прямого буфера заданного размера
+     *
+     * @param bytes - размер в байтах
+     * @return буфер с порядком байт платформы
+     */
+    protected static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /** Создание пустого массива начальных указателей
+     *
+     * @param size - кол-во ячеек
+     * @return буфер, заполненный NIL
+     */
+    protected static ByteBuffer new_buckets(int size) {
+        ByteBuffer res = allocate(size * 4);
+        for ( int i=0; i<size; i++ )
+            res.putInt(i * 4, NIL);
+        return res;
+    }
+
+    // Метод Unsafe.invokeCleaner - явное освобождение прямого буфера.
+    // null, если недоступен (тогда буфер освободит сборщик мусора).
+    protected static final Object UNSAFE;
+    protected static final Method INVOKE_CLEANER;
+    static {
+        Object unsafe = null;
+        Method invoke_cleaner = null;
+        try {
+            Class<?> unsafe_class = Class.forName("sun.misc.Unsafe");
+            Field field = unsafe_class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invoke_cleaner = unsafe_class.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception exc) {
+            unsafe = null;
+            invoke_cleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invoke_cleaner;
+    }
+
+    /** Явное освобождение памяти прямого буфера
+     *
+     * @param buffer - буфер (после вызова использовать нельзя)
+     */
+    protected static void free(ByteBuffer buffer) {
+        if ( buffer == null || INVOKE_CLEANER == null ) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception exc) {
+            // не удалось - буфер освободит сборщик мусора
+        }
+    }
+
+    /** Освобождение всей памяти вне кучи
+     *
+     * Повторный вызов ничего не делает.
+     */
+    @Override
+    public void close() {
+        if ( entries == null ) return;
+        free(buckets);
+        free(entries);
+        buckets = null;
+        entries = null;
+        num_of_items = 0;
+    }
+
+    /** Проверка, что память еще не освобождена
+     */
+    protected void check_open() {
+        if ( entries == null )
+            throw new IllegalStateException("off-heap table is closed");
+    }
+
+    // Доступ к полям звеньев и ячейкам массива начальных указателей
+    protected int get_head(int index) { return buckets.getInt(index * 4); }
+    protected void set_head(int index, int entry) { buckets.putInt(index * 4, entry); }
+    protected int get_key(int entry) { return entries.getInt(entry * ENTRY_BYTES + KEY_OFFSET); }
+    protected int get_value(int entry) { return entries.getInt(entry * ENTRY_BYTES + VALUE_OFFSET); }
+    protected int get_next(int entry) { return entries.getInt(entry * ENTRY_BYTES + NEXT_OFFSET); }
+    protected void set_next(int entry, int next) { entries.putInt(entry * ENTRY_BYTES + NEXT_OFFSET, next); }
+
+    /** Получение свободного звена
+     *
+     * Берется из списка свободных звеньев, иначе - следующее незанятое,
+     * при необходимости буфер звеньев расширяется вдвое.
+     *
+     * @return индекс звена
+     */
+    protected int alloc_entry() {
+        if ( free_head != NIL ) {
+            int entry = free_head;
+            free_head = get_next(entry);
+            return entry;
+        }
+        if ( entries_used >= entries_capacity ) {
+            if ( entries_capacity >= MAX_ENTRIES )
+                throw new IllegalStateException("off-heap table is full");
+            int new_capacity = (int)Math.min((long)entries_capacity * 2, MAX_ENTRIES);
+            ByteBuffer new_entries = allocate(new_capacity * ENTRY_BYTES);
+            ByteBuffer old_entries = entries.duplicate();
+            old_entries.clear();
+            new_entries.put(old_entries);
+            free(entries);
+            entries = new_entries;
+            entries_capacity = new_capacity;
+        }
+        return entries_used++;
+    }
+
+    /** Расширение массива начальных указателей вдвое
+     *
+     * Звенья не копируются, а перецепляются в конец новых цепочек,
+     * чтобы сохранить порядок звеньев с совпадающими ключами. Концы
+     * цепочек запоминаются во временном буфере.
+     */
+    protected void rehash() {
+        int new_size = table_size * 2;
+        if ( new_size < 0 || (long)new_size * 4 > Integer.MAX_VALUE ) return;
+        ByteBuffer old_buckets = buckets;
+        int old_size = table_size;
+        ByteBuffer tails = new_buckets(new_size);
+        buckets = new_buckets(new_size);
+        table_size = new_size;
+        for ( int i=0; i<old_size; i++ ) {
+            int entry = old_buckets.getInt(i * 4);
+            while ( entry != NIL ) {
+                int next = get_next(entry);
+                int target_index = hFunc(get_key(entry));
+                int tail = tails.getInt(target_index * 4);
+                set_next(entry, NIL);
+                if ( tail == NIL )
+                    set_head(target_index, entry);
+                else
+                    set_next(tail, entry);
+                tails.putInt(target_index * 4, entry);
+                entry = next;
+            }
+        }
+        free(old_buckets);
+        free(tails);
+    }
+
+    /** Добавление звена в хэш-таблицу по ключу
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        check_open();
+        if ( num_of_items+1 > MAX_LOAD_FACTOR * table_size )
+            rehash();
+        int entry = alloc_entry();
+        int target_index = hFunc(key);
+        entries.putInt(entry * ENTRY_BYTES + KEY_OFFSET, key);
+        entries.putInt(entry * ENTRY_BYTES + VALUE_OFFSET, value);
+        set_next(entry, get_head(target_index));
+        set_head(target_index, entry);
+        num_of_items++;
+    }
+
+    /** Удаление звена из хэш-таблицы по ключу
+     *
+     * Освобожденное звено попадает в список свободных звеньев.
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int key) {
+        check_open();
+        int target_index = hFunc(key);
+        int prev = NIL;
+        int entry = get_head(target_index);
+        while ( entry != NIL ) {
+            if ( get_key(entry) == key ) {
+                if ( prev == NIL )
+                    set_head(target_index, get_next(entry));
+                else
+                    set_next(prev, get_next(entry));
+                set_next(entry, free_head);
+                free_head = entry;
+                num_of_items--;
+                return "SUCCESS";
+            }
+            prev = entry;
+            entry = get_next(entry);
+        }
+        return "FAIL";
+    }
+
+    /** Поиск элемента в хэш-таблице по ключу
+     *
+     * @param key - ключ
+     * @return "key: X, value: Y" - найден,
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int key) {
+        check_open();
+        int entry = get_head(hFunc(key));
+        while ( entry != NIL ) {
+            if ( get_key(entry) == key )
+                return "key: "+key+", value: "+get_value(entry);
+            entry = get_next(entry);
+        }
+        return "NOT FOUND";
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        check_open();
+        int max_entry = NIL;
+        for ( int i=0; i<table_size; i++ )
+            for ( int entry = get_head(i); entry != NIL; entry = get_next(entry) )
+                if ( max_entry == NIL || get_key(entry) > get_key(max_entry) )
+                    max_entry = entry;
+        if ( max_entry == NIL ) return "NOT EXISTS";
+        return "key: "+get_key(max_entry)+", value: "+get_value(max_entry);
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        check_open();
+        int min_entry = NIL;
+        for ( int i=0; i<table_size; i++ )
+            for ( int entry = get_head(i); entry != NIL; entry = get_next(entry) )
+                if ( min_entry == NIL || get_key(entry) < get_key(min_entry) )
+                    min_entry = entry;
+        if ( min_entry == NIL ) return "NOT EXISTS";
+        return "key: "+get_key(min_entry)+", value: "+get_value(min_entry);
+    }
+
+    /** Получить тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data() {
+        check_open();
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<table_size; i++ ) {
+            stringB.append("  [");
+            stringB.append(i);
+            stringB.append("] -> ");
+            for ( int entry = get_head(i); entry != NIL; entry = get_next(entry) ) {
+                stringB.append(get_key(entry));
+                stringB.append(" -> ");
+            }
+            stringB.append("NULL"+NL);
+        }
+        return stringB.toString();
+    }
+
+    /** Получить упрощенное тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data_simple() {
+        check_open();
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<table_size; i++ ) {
+            stringB.append("[");
+            stringB.append(i);
+            stringB.append("]-");
+            for ( int entry = get_head(i); entry != NIL; entry = get_next(entry) ) {
+                stringB.append(get_key(entry));
+                stringB.append("-");
+            }
+            stringB.append("N ");
+        }
+        return stringB.toString();
+    }
+
+    /** Получить кол-во занятой памяти вне кучи
+     *
+     * @return размер буферов в байтах
+     */
+    public long get_off_heap_bytes() {
+        if ( entries == null ) return 0;
+        return (long)buckets.capacity() + entries.capacity();
+    }
+
+    /**Получить основные параметры хэш-таблицы без данных в виде строки
+     *
+     * @return строка
+     */
+    @Override
+    public String get_state() {
+        if ( entries == null ) return "closed";
+        return "num_of_items = "+num_of_items+" || table_size = "+table_size
+                + " || entries_capacity = "+entries_capacity
+                + " || off_heap_bytes = "+get_off_heap_bytes()
+                + " (buckets "+buckets.capacity()+" + entries "+entries.capacity()+")";
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "hash-table (off-heap)";
+    }
+
+    /** Заглушка для неподдерживаемого метода
+     *
+     * @return сообщение об ошибке
+     */
+    @Override
+    public String get_at(int index) {
+        return "Command is not supported for this structure";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в упрощенном текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+}
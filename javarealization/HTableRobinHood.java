@@ -0,0 +1,351 @@
+package javarealization;
+
+/** Структура - Хэш-таблица с открытой адресацией
+ *
+ * Адресация - открытая, линейное пробирование по схеме Robin Hood:
+ * при вставке элемент, ушедший от своей "домашней" ячейки дальше,
+ * вытесняет элемент, ушедший ближе. Удаление - обратным сдвигом
+ * (backward-shift), без пометок "удалено".
+ * Элементы содержат ключи и значения типа int и хранятся в параллельных
+ * массивах keys[], values[], dists[] - никаких объектов на каждый элемент.
+ *
+ * Повтор ключей поддерживается так же, как в HTableChain: add всегда
+ * добавляет новый элемент, find и delete находят последний добавленный
+ * элемент с заданным ключем. Элементы с одинаковым ключем лежат подряд,
+ * поэтому большое кол-во повторов удлиняет пробирование.
+ *
+ * Размер массивов - степень двойки. При превышении коэффициента заполнения
+ * MAX_LOAD_FACTOR массивы расширяются вдвое, но не больше MAX_CAPACITY;
+ * таблица наибольшего размера заполняется до конца, после чего add
+ * бросает IllegalStateException.
+ *
+ * @author Akropon
+ */
+public class HTableRobinHood implements Struct{
+
+    protected int[] keys; // ключи
+    protected int[] values; // значения
+    protected int[] dists; // расстояние от домашней ячейки + 1 ( 0 - ячейка пуста )
+    protected int num_of_items; // кол-во элементов в таблице
+    protected int capacity; // размер массивов (степень двойки)
+    protected int shift; // сдвиг для хэш-функции: 32 - log2(capacity)
+
+    // коэффициент заполнения, при превышении которого таблица расширяется
+    protected static final float MAX_LOAD_FACTOR = 0.875f;
+    // наибольший размер массивов (наибольшая степень двойки типа int)
+    protected static final int MAX_CAPACITY = 1 << 30;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Хэш-фукнция
+     *
+     * Мультипликативное (фибоначчиево) хэширование: старшие биты
+     * произведения ключа на 2^32/phi.
+     *
+     * @param key - ключ
+     * @return - индекс домашней ячейки
+     */
+    protected int hFunc(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    /** Конструктор
+     *
+     * Создает пустую хэш-таблицу, вмещающую не менее заданного кол-ва
+     * элементов до первого расширения.
+     *
+     * @param capacity - ожидаемое кол-во элементов
+     */
+    public HTableRobinHood(int capacity) {
+        if ( capacity < 1 ) capacity = 1;
+        int size = 2;
+        while ( size * MAX_LOAD_FACTOR < capacity && size < MAX_CAPACITY )
+            size *= 2;
+        allocate(size);
+        this.num_of_items = 0;
+    }
+
+    /** Выделение пустых массивов заданного размера
+     *
+     * @param size - размер (степень двойки)
+     */
+    protected void allocate(int size) {
+        this.capacity = size;
+        this.shift = 32 - Integer.numberOfTrailingZeros(size);
+        this.keys = new int[size];
+        this.values = new int[size];
+        this.dists = new int[size];
+    }
+
+    /** Добавление элемента в хэш-таблицу
+     *
+     * @param key - ключ
+     * @param value - значение
+     * @throws IllegalStateException, если таблица наибольшего размера заполнена
+     */
+    @Override
+    public void add(int key, int value) {
+        if ( num_of_items+1 > capacity * MAX_LOAD_FACTOR ) {
+            if ( capacity < MAX_CAPACITY )
+                resize(capacity * 2);
+            else if ( num_of_items == capacity )
+                // insert() не нашел бы пустой ячейки и не завершился бы
+                throw new IllegalStateException("robin hood table is full");
+        }
+        insert(key, value);
+        num_of_items++;
+    }
+
+    /** Вставка элемента без проверки заполнения
+     *
+     * Идем от домашней ячейки, пока не встретим пустую ячейку или
+     * элемент, который ближе к своему дому, чем вставляемый (его вытесняем
+     * и продолжаем вставку уже вытесненного). Элемент с тем же ключем и тем
+     * же расстоянием тоже вытесняется, чтобы последний добавленный шел
+     * первым.
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    protected void insert(int key, int value) {
+        int mask = capacity - 1;
+        int pos = hFunc(key);
+        int dist = 1;
+        while ( true ) {
+            if ( dists[pos] == 0 ) {
+                keys[pos] = key;
+                values[pos] = value;
+                dists[pos] = dist;
+                return;
+            }
+            if ( dists[pos] < dist || (dists[pos] == dist && keys[pos] == key) ) {
+                int tmp_key = keys[pos];
+                int tmp_value = values[pos];
+                int tmp_dist = dists[pos];
+                keys[pos] = key;
+                values[pos] = value;
+                dists[pos] = dist;
+                key = tmp_key;
+                value = tmp_value;
+                dist = tmp_dist;
+            }
+            pos = (pos + 1) & mask;
+            dist++;
+        }
+    }
+
+    /** Перестроение таблицы в массивы нового размера
+     *
+     * Старый массив обходится в обратном порядке, начиная с пустой ячейки,
+     * т.е. каждый кластер - от конца к началу. Так элементы с одинаковым
+     * ключем вставляются от первого добавленного к последнему, и insert()
+     * сохраняет их порядок.
+     *
+     * @param new_capacity - новый размер (степень двойки)
+     */
+    protected void resize(int new_capacity) {
+        int[] old_keys = keys;
+        int[] old_values = values;
+        int[] old_dists = dists;
+        int old_mask = old_dists.length - 1;
+        int empty_pos = 0;
+        while ( old_dists[empty_pos] != 0 )
+            empty_pos++;
+        allocate(new_capacity);
+        for ( int i=1; i<=old_dists.length; i++ ) {
+            int pos = (empty_pos - i) & old_mask;
+            if ( old_dists[pos] != 0 )
+                insert(old_keys[pos], old_values[pos]);
+        }
+    }
+
+    /** Поиск позиции элемента по ключу
+     *
+     * Поиск прекращается, как только встречена пустая ячейка или элемент,
+     * который ближе к своему дому, чем был бы искомый на этом месте.
+     *
+     * @param key - ключ
+     * @return индекс ячейки или -1, если не найден
+     */
+    protected int find_pos(int key) {
+        int mask = capacity - 1;
+        int pos = hFunc(key);
+        int dist = 1;
+        while ( true ) {
+            if ( dists[pos] < dist ) return -1; // в т.ч. пустая ячейка
+            if ( keys[pos] == key ) return pos;
+            pos = (pos + 1) & mask;
+            dist++;
+        }
+    }
+
+    /** Удаление элемента из хэш-таблицы по ключу
+     *
+     * После удаления следующие элементы кластера сдвигаются на одну ячейку
+     * назад, пока не встретится пустая ячейка или элемент в своем доме.
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int key) {
+        int pos = find_pos(key);
+        if ( pos < 0 ) return "FAIL";
+        int mask = capacity - 1;
+        int next = (pos + 1) & mask;
+        while ( dists[next] > 1 ) {
+            keys[pos] = keys[next];
+            values[pos] = values[next];
+            dists[pos] = dists[next] - 1;
+            pos = next;
+            next = (next + 1) & mask;
+        }
+        dists[pos] = 0;
+        num_of_items--;
+        return "SUCCESS";
+    }
+
+    /** Поиск элемента в хэш-таблице по ключу
+     *
+     * @param key - ключ
+     * @return "key: X, value: Y" - найден,
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int key) {
+        int pos = find_pos(key);
+        if ( pos < 0 ) return "NOT FOUND";
+        return "key: "+keys[pos]+", value: "+values[pos];
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        int max_pos = -1;
+        for ( int i=0; i<capacity; i++ )
+            if ( dists[i] != 0 && (max_pos < 0 || keys[i] > keys[max_pos]) )
+                max_pos = i;
+        if ( max_pos < 0 ) return "NOT EXISTS";
+        return "key: "+keys[max_pos]+", value: "+values[max_pos];
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        int min_pos = -1;
+        for ( int i=0; i<capacity; i++ )
+            if ( dists[i] != 0 && (min_pos < 0 || keys[i] < keys[min_pos]) )
+                min_pos = i;
+        if ( min_pos < 0 ) return "NOT EXISTS";
+        return "key: "+keys[min_pos]+", value: "+values[min_pos];
+    }
+
+    /** Получить тектовое изображение таблицы
+     *
+     * Для каждой ячейки выводится ключ и расстояние от домашней ячейки.
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data() {
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<capacity; i++ ) {
+            stringB.append("  [");
+            stringB.append(i);
+            stringB.append("] ");
+            if ( dists[i] == 0 )
+                stringB.append("EMPTY");
+            else {
+                stringB.append(keys[i]);
+                stringB.append(" (+");
+                stringB.append(dists[i]-1);
+                stringB.append(")");
+            }
+            stringB.append(NL);
+        }
+        return stringB.toString();
+    }
+
+    /** Получить упрощенное тектовое изображение таблицы
+     *
+     * @return изображение
+     */
+    @Override
+    public String get_data_simple() {
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<capacity; i++ ) {
+            stringB.append("[");
+            stringB.append(i);
+            stringB.append("]");
+            if ( dists[i] == 0 )
+                stringB.append("E ");
+            else {
+                stringB.append(keys[i]);
+                stringB.append(" ");
+            }
+        }
+        return stringB.toString();
+    }
+
+    /**Получить основные параметры хэш-таблицы без данных в виде строки
+     *
+     * @return строка
+     */
+    @Override
+    public String get_state() {
+        int max_dist = 0;
+        long sum_dist = 0;
+        for ( int i=0; i<capacity; i++ ) {
+            if ( dists[i] > max_dist ) max_dist = dists[i];
+            sum_dist += dists[i];
+        }
+        float avg_probe = num_of_items == 0 ? 0 : (float)sum_dist / num_of_items;
+        return "num_of_items = "+num_of_items+" || capacity = "+capacity
+                + " || load_factor = "+(float)num_of_items/capacity
+                + " || max_probe = "+max_dist+" || avg_probe = "+avg_probe;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "hash-table (open addressing, robin hood)";
+    }
+
+    /** Заглушка для неподдерживаемого метода
+     *
+     * @return сообщение об ошибке
+     */
+    @Override
+    public String get_at(int index) {
+        return "Command is not supported for this structure";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в упрощенном текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+}
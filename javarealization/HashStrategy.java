@@ -0,0 +1,111 @@
+package javarealization;
+
+/** Интерфейс хэш-стратегий
+ *
+ * Хэш-стратегия превращает ключ в 32-битный хэш. Номер ячейки из хэша
+ * получает сама хэш-таблица: остатком от деления на размер таблицы или,
+ * если размер - степень двойки, маской младших битов. Поэтому стратегии,
+ * кроме IDENTITY, перемешивают биты так, чтобы младшие биты хэша зависели
+ * от всех битов ключа.
+ *
+ * Готовые стратегии:
+ *   IDENTITY  - "mod"    - хэш равен ключу (классическое key % size);
+ *   FIBONACCI - "fib"    - умножение на 2^32/phi со сворачиванием старших
+ *                          битов произведения в младшие;
+ *   MURMUR    - "murmur" - финализатор fmix32 из MurmurHash3.
+ *
+ * @author Akropon
+ */
+public interface HashStrategy {
+
+    /** Метод вычисления хэша
+     *
+     * @param key - ключ
+     * @return хэш
+     */
+    public int hash(int key);
+
+    /** Метод возвращения имени стратегии
+     *
+     * @return имя, по которому стратегию можно выбрать в by_name()
+     */
+    public String get_name();
+
+    public static final HashStrategy IDENTITY = new IdentityMod();
+    public static final HashStrategy FIBONACCI = new Fibonacci();
+    public static final HashStrategy MURMUR = new Murmur();
+
+    /** Получить готовую стратегию по имени
+     *
+     * @param name - имя ("mod", "fib", "murmur")
+     * @return стратегия или null, если имя неизвестно
+     */
+    public static HashStrategy by_name(String name) {
+        if ( IDENTITY.get_name().equals(name) ) return IDENTITY;
+        if ( FIBONACCI.get_name().equals(name) ) return FIBONACCI;
+        if ( MURMUR.get_name().equals(name) ) return MURMUR;
+        return null;
+    }
+
+    /** Тождественная стратегия
+     *
+     * Хэш равен ключу. Ключи, кратные размеру таблицы, попадают в одну ячейку.
+     *
+     * @author Akropon
+     */
+    public static class IdentityMod implements HashStrategy {
+        @Override
+        public int hash(int key) {
+            return key;
+        }
+
+        @Override
+        public String get_name() {
+            return "mod";
+        }
+    }
+
+    /** Мультипликативная (фибоначчиева) стратегия
+     *
+     * Ключ умножается на 2^32/phi, затем старшие, лучше всего перемешанные
+     * биты произведения подмешиваются в младшие.
+     *
+     * @author Akropon
+     */
+    public static class Fibonacci implements HashStrategy {
+        @Override
+        public int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 15);
+        }
+
+        @Override
+        public String get_name() {
+            return "fib";
+        }
+    }
+
+    /** Стратегия на финализаторе MurmurHash3
+     *
+     * fmix32: каждый бит ключа влияет на каждый бит хэша.
+     *
+     * @author Akropon
+     */
+    public static class Murmur implements HashStrategy {
+        @Override
+        public int hash(int key) {
+            int h = key;
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            h ^= h >>> 16;
+            return h;
+        }
+
+        @Override
+        public String get_name() {
+            return "murmur";
+        }
+    }
+}
@@ -0,0 +1,594 @@
+package javarealization;
+
+import java.util.Arrays;
+
+/** Структура - LSM-дерево (log-structured merge)
+ *
+ * Оптимизированная под запись упорядоченная структура. Записи (add и
+ * удаления) попадают в небольшой изменяемый отсортированный массив -
+ * memtable. Заполненный memtable замораживается в неизменяемый
+ * отсортированный прогон (Run: параллельные массивы ключей, значений и
+ * признаков удаления) и ставится в начало списка прогонов. Поэтому
+ * вставка стоит сдвига внутри memtable, а не всего массива, как в
+ * SortedArray.
+ *
+ * Прогоны уплотняются по ярусам (tiered): прогон размером до
+ * memtable_capacity * FANIN^t относится к ярусу t, и как только подряд
+ * набирается FANIN прогонов одного яруса, фоновый поток сливает их в один
+ * прогон следующего яруса. Если прогонов стало MAX_RUNS, запись ждет
+ * уплотнения. Список прогонов заменяется целиком под замком, сами
+ * прогоны не изменяются, поэтому чтение идет без блокировок.
+ *
+ * Ключи не повторяются: add заменяет значение существующего ключа
+ * (upsert). Удаление записывает в memtable метку удаления (tombstone),
+ * которая скрывает старые версии ключа в прогонах. Метки удаляются при
+ * слиянии, в которое попал самый старый прогон.
+ *
+ * find проверяет memtable, затем прогоны от новых к старым - первая
+ * найденная версия ключа верна. get_min, get_max, get_at и get_data
+ * сливают все уровни курсором (Cursor), пропуская скрытые версии и
+ * удаленные ключи.
+ *
+ * Фоновый поток уплотнения останавливается методом close(); после этого
+ * уплотнение выполняется в потоке записи. Кроме фонового уплотнения,
+ * структура не потокобезопасна.
+ *
+ * @author Akropon
+ */
+public class LSMTree implements Struct, AutoCloseable{
+    protected int[] mem_keys;           // ключи memtable по возрастанию
+    protected int[] mem_values;         // значения memtable
+    protected boolean[] mem_tomb;       // метки удаления memtable
+    protected int mem_size;             // кол-во записей в memtable
+    protected final int memtable_capacity; // размер memtable
+    protected volatile Run[] runs;      // прогоны, от новых к старым
+    protected final Object lock;        // замок списка прогонов
+    protected final Thread compactor;   // поток фонового уплотнения
+    protected boolean closed;           // поток уплотнения остановлен
+    protected int flushes;              // кол-во заморозок memtable
+    protected int compactions;          // кол-во слияний прогонов
+    protected int write_stalls;         // кол-во ожиданий записи из-за уплотнения
+
+    // размер memtable по-умолчанию
+    protected static final int DEFAULT_MEMTABLE_SIZE = 4096;
+    // кол-во прогонов одного яруса, которые сливаются в один
+    protected static final int FANIN = 4;
+    // кол-во прогонов, при котором запись ждет уплотнения
+    protected static final int MAX_RUNS = 24;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Конструктор
+     *
+     * Создает пустую структуру с memtable по-умолчанию.
+     */
+    public LSMTree() {
+        this(DEFAULT_MEMTABLE_SIZE);
+    }
+
+    /** Конструктор
+     *
+     * Создает пустую структуру и запускает поток уплотнения.
+     *
+     * @param memtable_capacity - размер memtable (>= 1)
+     */
+    public LSMTree(int memtable_capacity) {
+        if ( memtable_capacity < 1 ) memtable_capacity = 1;
+        this.memtable_capacity = memtable_capacity;
+        this.mem_keys = new int[memtable_capacity];
+        this.mem_values = new int[memtable_capacity];
+        this.mem_tomb = new boolean[memtable_capacity];
+        this.mem_size = 0;
+        this.runs = new Run[0];
+        this.lock = new Object();
+        this.compactor = new Thread(this::compact_loop, "lsm-compactor");
+        this.compactor.setDaemon(true);
+        this.compactor.start();
+    }
+
+    /** Остановка потока уплотнения
+     *
+     * Структура остается рабочей, уплотнение выполняется при записи.
+     * Повторный вызов ничего не делает.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if ( closed ) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            compactor.join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Позиция ключа в memtable
+     *
+     * @param key - ключ
+     * @return индекс записи с ключем или (-(точка вставки) - 1)
+     */
+    protected int mem_search(int key) {
+        return Arrays.binarySearch(mem_keys, 0, mem_size, key);
+    }
+
+    /** Запись версии ключа в memtable
+     *
+     * @param key - ключ
+     * @param value - значение
+     * @param tomb - true - метка удаления
+     */
+    protected void mem_put(int key, int value, boolean tomb) {
+        int pos = mem_search(key);
+        if ( pos >= 0 ) {
+            mem_values[pos] = value;
+            mem_tomb[pos] = tomb;
+            return;
+        }
+        if ( mem_size == memtable_capacity ) {
+            flush();
+            pos = -1;
+        }
+        pos = -pos - 1;
+        System.arraycopy(mem_keys, pos, mem_keys, pos+1, mem_size-pos);
+        System.arraycopy(mem_values, pos, mem_values, pos+1, mem_size-pos);
+        System.arraycopy(mem_tomb, pos, mem_tomb, pos+1, mem_size-pos);
+        mem_keys[pos] = key;
+        mem_values[pos] = value;
+        mem_tomb[pos] = tomb;
+        mem_size++;
+    }
+
+    /** Заморозка memtable в новый прогон
+     *
+     * Если прогонов слишком много, ждет фоновое уплотнение (или, если поток
+     * уплотнения остановлен, уплотняет сам).
+     */
+    protected void flush() {
+        Run run = new Run(Arrays.copyOf(mem_keys, mem_size), Arrays.copyOf(mem_values, mem_size),
+                          Arrays.copyOf(mem_tomb, mem_size), mem_size);
+        mem_size = 0;
+        synchronized (lock) {
+            while ( !closed && runs.length >= MAX_RUNS ) {
+                write_stalls++;
+                try {
+                    lock.wait();
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            Run[] new_runs = new Run[runs.length+1];
+            new_runs[0] = run;
+            System.arraycopy(runs, 0, new_runs, 1, runs.length);
+            runs = new_runs;
+            flushes++;
+            lock.notifyAll();
+            if ( !closed ) return;
+        }
+        // потока уплотнения нет - уплотняем сами
+        Run[] group;
+        while ( (group = pick_group(runs)) != null )
+            merge_group(group);
+    }
+
+    /** Ярус прогона
+     *
+     * @param run - прогон
+     * @return t - наименьшее, при котором size <= memtable_capacity * FANIN^t
+     */
+    protected int tier(Run run) {
+        int t = 0;
+        long capacity = memtable_capacity;
+        while ( run.size > capacity ) {
+            capacity *= FANIN;
+            t++;
+        }
+        return t;
+    }
+
+    /** Выбор прогонов для слияния
+     *
+     * Ищет FANIN или больше подряд идущих прогонов одного яруса. Если
+     * таких нет, но прогонов уже MAX_RUNS / 2, выбирает FANIN подряд
+     * идущих прогонов с наименьшим общим размером.
+     *
+     * @param cur_runs - список прогонов
+     * @return подряд идущие прогоны или null, если сливать нечего
+     */
+    protected Run[] pick_group(Run[] cur_runs) {
+        int i = 0;
+        while ( i < cur_runs.length ) {
+            int t = tier(cur_runs[i]);
+            int j = i + 1;
+            while ( j < cur_runs.length && tier(cur_runs[j]) == t ) j++;
+            if ( j - i >= FANIN ) return Arrays.copyOfRange(cur_runs, i, j);
+            i = j;
+        }
+        if ( cur_runs.length < MAX_RUNS / 2 ) return null;
+        // ярусы перемешались (слияния сократили прогоны) - сливаем
+        // FANIN подряд идущих прогонов с наименьшим общим размером
+        long best_total = Long.MAX_VALUE;
+        int best = 0;
+        for ( i=0; i+FANIN<=cur_runs.length; i++ ) {
+            long total = 0;
+            for ( int j=i; j<i+FANIN; j++ ) total += cur_runs[j].size;
+            if ( total < best_total ) {
+                best_total = total;
+                best = i;
+            }
+        }
+        return Arrays.copyOfRange(cur_runs, best, best + FANIN);
+    }
+
+    /** Цикл потока уплотнения
+     */
+    protected void compact_loop() {
+        while ( true ) {
+            Run[] group = null;
+            synchronized (lock) {
+                while ( !closed && (group = pick_group(runs)) == null ) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException exc) {
+                        return;
+                    }
+                }
+                if ( closed ) return;
+            }
+            merge_group(group);
+        }
+    }
+
+    /** Слияние подряд идущих прогонов в один
+     *
+     * Из версий одного ключа остается самая новая. Если в группу попал
+     * самый старый прогон, метки удаления больше ничего не скрывают и
+     * отбрасываются. Слияние идет без замка, список прогонов заменяется
+     * под замком: с тех пор в его начало могли добавиться только новые
+     * прогоны, поэтому группа ищется по первому прогону.
+     *
+     * @param group - прогоны от новых к старым
+     */
+    protected void merge_group(Run[] group) {
+        boolean drop_tombs = group[group.length-1] == runs[runs.length-1];
+        int total = 0;
+        for ( Run run : group ) total += run.size;
+        int[] keys = new int[total];
+        int[] values = new int[total];
+        boolean[] tomb = new boolean[total];
+        int[] pos = new int[group.length];
+        int size = 0;
+        while ( true ) {
+            // наименьший ключ среди голов, при равенстве - из более нового прогона
+            int best = -1;
+            for ( int r=0; r<group.length; r++ )
+                if ( pos[r] < group[r].size
+                     && ( best < 0 || group[r].keys[pos[r]] < group[best].keys[pos[best]] ) )
+                    best = r;
+            if ( best < 0 ) break;
+            int key = group[best].keys[pos[best]];
+            if ( !drop_tombs || !group[best].tomb[pos[best]] ) {
+                keys[size] = key;
+                values[size] = group[best].values[pos[best]];
+                tomb[size] = group[best].tomb[pos[best]];
+                size++;
+            }
+            for ( int r=0; r<group.length; r++ )
+                if ( pos[r] < group[r].size && group[r].keys[pos[r]] == key ) pos[r]++;
+        }
+        Run merged = new Run(keys, values, tomb, size);
+        synchronized (lock) {
+            Run[] cur_runs = runs;
+            int first = 0;
+            while ( cur_runs[first] != group[0] ) first++;
+            Run[] new_runs = new Run[cur_runs.length - group.length + 1];
+            System.arraycopy(cur_runs, 0, new_runs, 0, first);
+            new_runs[first] = merged;
+            System.arraycopy(cur_runs, first + group.length, new_runs, first + 1,
+                             cur_runs.length - first - group.length);
+            runs = new_runs;
+            compactions++;
+            lock.notifyAll();
+        }
+    }
+
+    /** Добавляет элемент
+     *
+     * Если ключ уже есть, его значение заменяется.
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        mem_put(key, value, false);
+    }
+
+    /** Удаляет элемент по ключу
+     *
+     * Записывает в memtable метку удаления.
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - ключа нет
+     */
+    @Override
+    public String delete(int key) {
+        if ( lookup(key) == null ) return "FAIL";
+        mem_put(key, 0, true);
+        return "SUCCESS";
+    }
+
+    /** Поиск самой новой версии ключа
+     *
+     * @param key - ключ
+     * @return {значение} или null, если ключа нет или он удален
+     */
+    protected int[] lookup(int key) {
+        int pos = mem_search(key);
+        if ( pos >= 0 ) return mem_tomb[pos] ? null : new int[] {mem_values[pos]};
+        for ( Run run : runs ) {
+            pos = Arrays.binarySearch(run.keys, 0, run.size, key);
+            if ( pos >= 0 ) return run.tomb[pos] ? null : new int[] {run.values[pos]};
+        }
+        return null;
+    }
+
+    /** Поиск элемента по ключу
+     *
+     * @param key - ключ
+     * @return "NOT FOUND" - элемент не найден
+     *         "key: X, value: Y", где X - ключ, Y - значение
+     */
+    @Override
+    public String find(int key) {
+        int[] value = lookup(key);
+        if ( value == null ) return "NOT FOUND";
+        return "key: "+key+", value: "+value[0];
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        Cursor cursor = new Cursor(true);
+        if ( !cursor.next() ) return "NOT EXISTS";
+        return "key: "+cursor.key+", value: "+cursor.value;
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        Cursor cursor = new Cursor(false);
+        if ( !cursor.next() ) return "NOT EXISTS";
+        return "key: "+cursor.key+", value: "+cursor.value;
+    }
+
+    /** Возвращает элемент по заданному индексу в порядке возрастания ключей
+     *
+     * @param index - индекс
+     * @return "FAIL" - если был введен недопустимый индекс
+     *         "key: X, value: Y", где X - ключ элемента, Y - соотв. значение
+     */
+    @Override
+    public String get_at(int index) {
+        if ( index < 0 ) return "FAIL";
+        Cursor cursor = new Cursor(true);
+        for ( int i=0; i<=index; i++ )
+            if ( !cursor.next() ) return "FAIL";
+        return "key: "+cursor.key+", value: "+cursor.value;
+    }
+
+    /** Получить текстовое изображение структуры.
+     *
+     * @return ключи в порядке возрастания
+     */
+    @Override
+    public String get_data() {
+        StringBuilder stringB = new StringBuilder();
+        Cursor cursor = new Cursor(true);
+        while ( cursor.next() ) {
+            stringB.append(cursor.key);
+            stringB.append(' ');
+        }
+        if ( stringB.length() == 0 ) return "structure is empty";
+        return stringB.toString();
+    }
+
+    /** Получить упрощенное текстовое изображение структуры.
+     *
+     * Уровни по порядку: [M] - memtable, [R0], [R1], ... - прогоны от
+     * новых к старым. Метка удаления обозначается "~ключ".
+     *
+     * @return строка уровней
+     */
+    @Override
+    public String get_data_simple() {
+        StringBuilder stringB = new StringBuilder();
+        stringB.append("[M]");
+        append_level(stringB, mem_keys, mem_tomb, mem_size);
+        Run[] cur_runs = runs;
+        for ( int r=0; r<cur_runs.length; r++ ) {
+            stringB.append(" [R");
+            stringB.append(r);
+            stringB.append("]");
+            append_level(stringB, cur_runs[r].keys, cur_runs[r].tomb, cur_runs[r].size);
+        }
+        return stringB.toString();
+    }
+
+    /** Добавить ключи уровня к текстовому изображению
+     *
+     * @param stringB - куда добавлять
+     * @param keys - ключи
+     * @param tomb - метки удаления
+     * @param size - кол-во записей
+     */
+    protected void append_level(StringBuilder stringB, int[] keys, boolean[] tomb, int size) {
+        for ( int i=0; i<size; i++ ) {
+            stringB.append(' ');
+            if ( tomb[i] ) stringB.append('~');
+            stringB.append(keys[i]);
+        }
+    }
+
+    /** Получить текущее состояние структуры.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        Run[] cur_runs = runs;
+        StringBuilder sizes = new StringBuilder();
+        long entries = mem_size;
+        long tombs = 0;
+        for ( int i=0; i<mem_size; i++ ) if ( mem_tomb[i] ) tombs++;
+        for ( Run run : cur_runs ) {
+            if ( sizes.length() > 0 ) sizes.append(',');
+            sizes.append(run.size);
+            entries += run.size;
+            for ( int i=0; i<run.size; i++ ) if ( run.tomb[i] ) tombs++;
+        }
+        synchronized (lock) {
+            return "memtable = "+mem_size+" of "+memtable_capacity
+                    + " || runs = "+cur_runs.length+" ["+sizes+"]"
+                    + " || entries = "+entries+" || tombstones = "+tombs
+                    + " || flushes = "+flushes+" || compactions = "+compactions
+                    + " || write_stalls = "+write_stalls
+                    + " || compactor = "+(closed ? "stopped" : "running");
+        }
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "log-structured merge tree";
+    }
+
+    /** Метод получения полной информации по структуре.
+     *
+     * Выводит тип структуры, параметры и содержимое структуры
+     * в упрощенном текстовом виде.
+     *
+     * @return ответ метода
+     */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+
+
+    /** Неизменяемый отсортированный прогон
+     *
+     * Ключи строго возрастают, для каждого ключа хранится одна версия.
+     *
+     * @author Akropon
+     */
+    protected static class Run {
+        protected final int[] keys; // ключи по возрастанию
+        protected final int[] values; // значения
+        protected final boolean[] tomb; // метки удаления
+        protected final int size; // кол-во записей
+
+        protected Run(int[] keys, int[] values, boolean[] tomb, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.tomb = tomb;
+            this.size = size;
+        }
+    }
+
+
+    /** Курсор упорядоченного обхода всех уровней
+     *
+     * Сливает memtable и снимок списка прогонов: на каждом шаге берется
+     * наименьший (наибольший) ключ среди голов уровней, из его версий -
+     * самая новая, остальные пропускаются. Удаленные ключи пропускаются.
+     * Курсор действителен до следующей записи в структуру.
+     *
+     * @author Akropon
+     */
+    protected class Cursor {
+        protected final boolean ascending; // направление обхода
+        protected final int[][] level_keys; // ключи уровней, от новых к старым
+        protected final int[][] level_values; // значения уровней
+        protected final boolean[][] level_tomb; // метки удаления уровней
+        protected final int[] pos; // текущие позиции уровней
+        protected final int[] end; // границы уровней
+        public int key; // ключ текущего элемента
+        public int value; // значение текущего элемента
+
+        /** Конструктор
+         *
+         * @param ascending - true - по возрастанию, false - по убыванию
+         */
+        protected Cursor(boolean ascending) {
+            this.ascending = ascending;
+            Run[] cur_runs = runs;
+            int levels = cur_runs.length + 1;
+            level_keys = new int[levels][];
+            level_values = new int[levels][];
+            level_tomb = new boolean[levels][];
+            pos = new int[levels];
+            end = new int[levels];
+            level_keys[0] = mem_keys;
+            level_values[0] = mem_values;
+            level_tomb[0] = mem_tomb;
+            end[0] = mem_size;
+            for ( int r=0; r<cur_runs.length; r++ ) {
+                level_keys[r+1] = cur_runs[r].keys;
+                level_values[r+1] = cur_runs[r].values;
+                level_tomb[r+1] = cur_runs[r].tomb;
+                end[r+1] = cur_runs[r].size;
+            }
+            if ( !ascending )
+                for ( int l=0; l<levels; l++ ) {
+                    pos[l] = end[l] - 1;
+                    end[l] = -1;
+                }
+        }
+
+        /** Переход к следующему элементу
+         *
+         * @return true - элемент есть (key, value), false - обход закончен
+         */
+        public boolean next() {
+            int step = ascending ? 1 : -1;
+            while ( true ) {
+                int best = -1;
+                for ( int l=0; l<pos.length; l++ ) {
+                    if ( pos[l] == end[l] ) continue;
+                    if ( best < 0 ) { best = l; continue; }
+                    int cur = level_keys[l][pos[l]];
+                    int top = level_keys[best][pos[best]];
+                    if ( ascending ? cur < top : cur > top ) best = l;
+                }
+                if ( best < 0 ) return false;
+                key = level_keys[best][pos[best]];
+                value = level_values[best][pos[best]];
+                boolean deleted = level_tomb[best][pos[best]];
+                for ( int l=0; l<pos.length; l++ )
+                    if ( pos[l] != end[l] && level_keys[l][pos[l]] == key ) pos[l] += step;
+                if ( !deleted ) return true;
+            }
+        }
+    }
+}
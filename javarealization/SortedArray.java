@@ -1,5 +1,9 @@
 package javarealization;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /** Отсортированный массив.
  * 
  * Структура, содержащая в себе элементы с ключами и значениями типа int.
@@ -7,18 +11,55 @@ package javarealization;
  * Поддерживает возможность динамического расширения при переполнении.
  * Поддерживает возможность повтора элементов (т.е. в структуре могут 
  * одновременно присутствовать элементы с совпадающими значениями и/или ключами).
- * Присутствует внутреклассовая реализация элемента массива "Element".
+ * Ключи и значения хранятся в двух параллельных массивах keys[] и values[]
+ * (элемент с индексом i - это пара keys[i], values[i]), без объекта на 
+ * каждый элемент. Сдвиги и расширение выполняются через System.arraycopy.
+ * 
+ * Для больших массивов, которые в основном читаются, можно включить 
+ * вторичный поисковый индекс в раскладке Эйтцингера (set_search_index):
+ * копия ключей, уложенная в порядке обхода в ширину неявного дерева 
+ * поиска (потомки узла k - узлы 2k и 2k+1). Первые уровни спуска лежат в
+ * нескольких соседних строках кэша, а спуск без ветвлений не зависит от
+ * предсказателя переходов. Индекс устаревает при любой записи и 
+ * перестраивается лениво: после size >> EYTZINGER_READ_SHIFT поисков без 
+ * записей, т.е. когда поисков достаточно, чтобы окупить O(n) перестройку.
+ * Индекс используется для массивов от EYTZINGER_MIN_SIZE до 
+ * EYTZINGER_MAX_SIZE элементов: на больших массивах последние уровни 
+ * спуска попадают на разные страницы памяти, и выигрыш пропадает
+ * (см. TimeTester.timetest_sa_search_layout).
+ * 
+ * Кроме того, можно включить блочный поиск (set_vector_search): find и 
+ * поиск позиции вставки в add сужают диапазон бинарным поиском до блока 
+ * ключей и досматривают его векторными сравнениями (см. VectorSearch).
  *
  * @author Akropon
  */
 public class SortedArray implements Struct{
-    protected Element [] data;              // массив с элементами
+    protected int [] keys;              // ключи элементов
+    protected int [] values;            // значения элементов
     protected int size;                 // текущее кол-во элементов 
-    protected int max_available_size;   // текущий размер массива ´data´
+    protected int max_available_size;   // текущий размер массивов ´keys´ и ´values´
     protected float extention_multiplier; // множитель динамического расширения массива
+    protected boolean search_index;     // включен ли индекс Эйтцингера
+    protected int search_index_min_size; // размер, начиная с которого find использует индекс
+    protected int search_index_max_size; // размер, после которого find не использует индекс
+    protected int [] eytz_keys;         // ключи в раскладке Эйтцингера (с единицы)
+    protected int [] eytz_pos;          // соотв. индексы в keys[]
+    protected boolean eytz_valid;       // индекс соответствует массиву
+    protected int finds_since_write;    // кол-во поисков после последней записи
+    protected boolean vector_search;    // включен ли блочный (векторный) поиск
     
     // перенос строк. Так как он зависит от системы, определяем его во время запуска.
     protected static final String NL = System.getProperty("line.separator");
+    // размер пакета, начиная с которого add_batch сортирует и сливает параллельно
+    protected static final int PARALLEL_BATCH_SIZE = 1 << 17;
+    // кол-во элементов результата, сливаемых одной задачей fork/join
+    protected static final int MERGE_CHUNK = 1 << 16;
+    // размеры массива, на которых find использует индекс Эйтцингера
+    protected static final int EYTZINGER_MIN_SIZE = 1 << 10;
+    protected static final int EYTZINGER_MAX_SIZE = 1 << 23;
+    // индекс перестраивается после (size >> EYTZINGER_READ_SHIFT) поисков без записей
+    protected static final int EYTZINGER_READ_SHIFT = 8;
     
     /** Конструктор нового Отсортированного Массива
      * 
@@ -28,7 +69,7 @@ public class SortedArray implements Struct{
      * @param max_available_size > 0 - максимальное кол-во элементов в массиве до 
      * первого расширения
      * @param extention_multiplier > 1 (целочисленный) - множитель динамического расширения (при 
-     * переполнении массива data[] выделяется новая память под этот массив, с 
+     * переполнении массивов выделяется новая память под эти массивы, с 
      * размером в 'extention_multiplier' раз больше предыдущего).
      */
     public SortedArray(int max_available_size, float extention_multiplier){
@@ -37,7 +78,8 @@ public class SortedArray implements Struct{
         
         
         this.max_available_size = max_available_size;
-        this.data = new Element[max_available_size];
+        this.keys = new int[max_available_size];
+        this.values = new int[max_available_size];
         this.size = 0;
         this.extention_multiplier = extention_multiplier;
     }
@@ -51,7 +93,7 @@ public class SortedArray implements Struct{
     @Override
     public String get_at(int index) {
         if ( index < 0 || index >= size ) return "FAIL";
-        return "key: "+data[index].key+", value: "+data[index].value;
+        return "key: "+keys[index]+", value: "+values[index];
     }
     
     
@@ -69,37 +111,233 @@ public class SortedArray implements Struct{
         // Найдем индекс позиции для нового элемента
         int left_index = 0;
         int right_index = size;
-        while ( left_index < right_index ) {
-          if ( key<data[(right_index+left_index)/2].key) 
-            right_index = (right_index+left_index)/2;  // ищем в левой половине
+        if ( vector_search ) 
+            left_index = VectorSearch.upper_bound(keys, size, key);
+        else while ( left_index < right_index ) {
+          int mid = (right_index+left_index) >>> 1;
+          if ( key<keys[mid] ) 
+            right_index = mid;  // ищем в левой половине
           else 
-            left_index = (right_index+left_index)/2+1;  // ищем в правой половине
+            left_index = mid+1;  // ищем в правой половине
         }
         // left_index – индекс позиции для нового элемента
         // Теперь проверим массив на переполнение
         if ( size >= max_available_size) {
-            // Переполнение есть. Выделяем место под расширенный массив.
-            // Копируем данные из старого массива в новый с учетом добавления
+            // Переполнение есть. Выделяем место под расширенные массивы.
+            // Копируем данные из старых массивов в новые с учетом добавления
             // нового элемента.
-            Element[] old_data = data;
+            int[] old_keys = keys;
+            int[] old_values = values;
             int new_size = Math.round(max_available_size * extention_multiplier);
             if (new_size <= max_available_size ) new_size = max_available_size+1;
-            data = new Element[new_size];
-            for ( int i=0; i<left_index; i++) 
-                data[i] = old_data[i];
-            data[left_index] = new Element(key,value);
-            for ( int i=left_index; i<size; i++) 
-                data[i+1] = old_data[i];
-            // обновляем параметры структуры
-            size++;
+            keys = new int[new_size];
+            values = new int[new_size];
+            System.arraycopy(old_keys, 0, keys, 0, left_index);
+            System.arraycopy(old_values, 0, values, 0, left_index);
+            System.arraycopy(old_keys, left_index, keys, left_index+1, size-left_index);
+            System.arraycopy(old_values, left_index, values, left_index+1, size-left_index);
             max_available_size = new_size;
         } else {
-            // Переполнения нет. Просто вставляем элемент.
-            for ( int i=size; i>left_index; i--) 
-                data[i] = data[i-1];
-            data[left_index] = new Element(key, value);
-            // обновляем параметры структуры
-            size++;
+            // Переполнения нет. Сдвигаем хвост на одну позицию вправо.
+            System.arraycopy(keys, left_index, keys, left_index+1, size-left_index);
+            System.arraycopy(values, left_index, values, left_index+1, size-left_index);
+        }
+        keys[left_index] = key;
+        values[left_index] = value;
+        // обновляем параметры структуры
+        size++;
+        on_write();
+    }
+    
+    /** Добавляет пакет элементов в массив.
+     * 
+     * Пакет сортируется по упакованным парам (ключ << 32 | номер в пакете),
+     * т.е. устойчиво, и за один проход сливается с массивом: O(n + m log m)
+     * вместо m бинарных поисков и m сдвигов. Массивы расширяются не больше
+     * одного раза. Элементы пакета встают после элементов массива с тем же
+     * ключем, а между собой сохраняют порядок пакета - как при поочередном
+     * add. Пакеты от PARALLEL_BATCH_SIZE элементов сортируются и сливаются
+     * параллельно.
+     * 
+     * @param batch_keys - ключи пакета
+     * @param batch_values - соотв. значения
+     * @return "SUCCESS" - добавлен, "FAIL" - длины массивов не совпадают
+     */
+    public String add_batch(int[] batch_keys, int[] batch_values) {
+        return add_batch(batch_keys, batch_values, 
+                         batch_keys.length >= PARALLEL_BATCH_SIZE);
+    }
+    
+    /** Добавляет пакет элементов в массив.
+     * 
+     * @param batch_keys - ключи пакета
+     * @param batch_values - соотв. значения
+     * @param parallel - true - сортировать и сливать параллельно
+     * @return "SUCCESS" - добавлен, "FAIL" - длины массивов не совпадают
+     */
+    public String add_batch(int[] batch_keys, int[] batch_values, boolean parallel) {
+        if ( batch_keys.length != batch_values.length ) return "FAIL";
+        int m = batch_keys.length;
+        if ( m == 0 ) return "SUCCESS";
+        long[] order = sort_batch(batch_keys, parallel);
+        int total = size + m;
+        int new_size = max_available_size;
+        if ( total > max_available_size ) 
+            new_size = Math.max(total, Math.round(max_available_size * extention_multiplier));
+        if ( parallel ) {
+            // сливаем в новые массивы (параллельно писать на место нельзя)
+            int[] new_keys = new int[new_size];
+            int[] new_values = new int[new_size];
+            merge_batch(keys, values, size, order, batch_values, new_keys, new_values, true);
+            keys = new_keys;
+            values = new_values;
+        } else {
+            if ( new_size != max_available_size ) {
+                keys = Arrays.copyOf(keys, new_size);
+                values = Arrays.copyOf(values, new_size);
+            }
+            // сливаем с конца на место: запись не обгоняет чтение
+            int i = size - 1;
+            int j = m - 1;
+            for ( int w = total-1; j >= 0; w-- ) {
+                int key = (int)(order[j] >> 32);
+                if ( i >= 0 && keys[i] > key ) {
+                    keys[w] = keys[i];
+                    values[w] = values[i];
+                    i--;
+                } else {
+                    keys[w] = key;
+                    values[w] = batch_values[(int)order[j]];
+                    j--;
+                }
+            }
+        }
+        max_available_size = new_size;
+        size = total;
+        on_write();
+        return "SUCCESS";
+    }
+    
+    /** Устойчивая сортировка пакета
+     * 
+     * @param batch_keys - ключи пакета
+     * @param parallel - true - сортировать параллельно
+     * @return пары (ключ << 32 | номер в пакете) по неубыванию
+     */
+    protected static long[] sort_batch(int[] batch_keys, boolean parallel) {
+        long[] order = new long[batch_keys.length];
+        for ( int i=0; i<batch_keys.length; i++ )
+            order[i] = ((long)batch_keys[i] << 32) | i;
+        if ( parallel ) Arrays.parallelSort(order);
+        else Arrays.sort(order);
+        return order;
+    }
+    
+    /** Слияние массива с отсортированным пакетом в новые массивы
+     * 
+     * При равных ключах элементы массива идут раньше элементов пакета.
+     * 
+     * @param a_keys - ключи массива
+     * @param a_values - значения массива
+     * @param n - кол-во элементов массива
+     * @param order - отсортированный пакет (см. sort_batch)
+     * @param batch_values - значения пакета
+     * @param out_keys - ключи результата (не меньше n + order.length)
+     * @param out_values - значения результата
+     * @param parallel - true - сливать задачами fork/join
+     */
+    protected static void merge_batch(int[] a_keys, int[] a_values, int n, 
+                                      long[] order, int[] batch_values,
+                                      int[] out_keys, int[] out_values, 
+                                      boolean parallel) {
+        MergeTask task = new MergeTask(a_keys, a_values, n, order, batch_values,
+                                       out_keys, out_values, 0, n + order.length);
+        if ( parallel ) ForkJoinPool.commonPool().invoke(task);
+        else task.merge(0, n + order.length);
+    }
+    
+    /** Задача слияния диапазона результата
+     * 
+     * Диапазон [from, to) результата больше MERGE_CHUNK делится пополам,
+     * половины сливаются параллельно. Начало диапазона в каждом из
+     * входов находится бинарным поиском (co-rank), поэтому задачи 
+     * независимы.
+     * 
+     * @author Akropon
+     */
+    protected static class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        protected final int[] a_keys, a_values, batch_values, out_keys, out_values;
+        protected final long[] order;
+        protected final int n; // кол-во элементов массива
+        protected final int from; // первый элемент результата
+        protected final int to; // элемент за последним элементом результата
+        
+        protected MergeTask(int[] a_keys, int[] a_values, int n, long[] order,
+                            int[] batch_values, int[] out_keys, int[] out_values,
+                            int from, int to) {
+            this.a_keys = a_keys;
+            this.a_values = a_values;
+            this.n = n;
+            this.order = order;
+            this.batch_values = batch_values;
+            this.out_keys = out_keys;
+            this.out_values = out_values;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if ( to - from <= MERGE_CHUNK ) {
+                merge(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MergeTask(a_keys, a_values, n, order, batch_values,
+                                    out_keys, out_values, from, mid),
+                      new MergeTask(a_keys, a_values, n, order, batch_values,
+                                    out_keys, out_values, mid, to));
+        }
+        
+        /** Кол-во элементов массива среди первых k элементов результата
+         * 
+         * @param k - кол-во элементов результата
+         * @return кол-во элементов массива
+         */
+        protected int co_rank(int k) {
+            int lo = Math.max(0, k - order.length);
+            int hi = Math.min(k, n);
+            while ( lo < hi ) {
+                int i = (lo + hi) >>> 1;
+                // элемент массива i идет раньше элемента пакета k-i-1?
+                if ( a_keys[i] <= (int)(order[k-i-1] >> 32) )
+                    lo = i + 1;
+                else
+                    hi = i;
+            }
+            return lo;
+        }
+        
+        /** Последовательное слияние диапазона результата
+         * 
+         * @param from - первый элемент результата
+         * @param to - элемент за последним элементом результата
+         */
+        protected void merge(int from, int to) {
+            int i = co_rank(from);
+            int j = from - i;
+            for ( int w=from; w<to; w++ ) {
+                if ( j >= order.length || ( i < n && a_keys[i] <= (int)(order[j] >> 32) ) ) {
+                    out_keys[w] = a_keys[i];
+                    out_values[w] = a_values[i];
+                    i++;
+                } else {
+                    out_keys[w] = (int)(order[j] >> 32);
+                    out_values[w] = batch_values[(int)order[j]];
+                    j++;
+                }
+            }
         }
     }
     
@@ -111,12 +349,206 @@ public class SortedArray implements Struct{
     @Override
     public String delete(int index) {
         if (index < 0 || index >= size) return "FAIL";
-        for ( int i=index; i<size-1; i++) {
-            data[i] = data[i+1];
-        }
+        System.arraycopy(keys, index+1, keys, index, size-index-1);
+        System.arraycopy(values, index+1, values, index, size-index-1);
         size--;
+        on_write();
         return "SUCCESS";
     }
+
+    /** Удаляет один элемент с заданным ключем.
+     *
+     * Бинарный поиск первого элемента с ключем и один сдвиг хвоста.
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - элемента с таким ключем нет
+     */
+    public String delete_key(int key) {
+        int index = lower_bound(key);
+        if ( index == size || keys[index] != key ) return "FAIL";
+        return delete(index);
+    }
+
+    /** Удаляет все элементы с ключами из отрезка [lo, hi].
+     *
+     * Границы отрезка ищутся бинарным поиском, затем хвост массива
+     * сдвигается одним переносом.
+     *
+     * @param lo - нижняя граница ключей (включительно)
+     * @param hi - верхняя граница ключей (включительно)
+     * @return "FAIL" - если lo > hi
+     *         "deleted: N", где N - кол-во удаленных элементов
+     */
+    public String delete_range(int lo, int hi) {
+        if ( lo > hi ) return "FAIL";
+        int from = lower_bound(lo);
+        int to = upper_bound(hi);
+        int count = to - from;
+        if ( count > 0 ) {
+            System.arraycopy(keys, to, keys, from, size-to);
+            System.arraycopy(values, to, values, from, size-to);
+            size -= count;
+            on_write();
+        }
+        return "deleted: "+count;
+    }
+
+    /** Индекс первого элемента с ключем не меньше заданного
+     *
+     * @param key - ключ
+     * @return индекс (size, если такого нет)
+     */
+    protected int lower_bound(int key) {
+        if ( vector_search ) return VectorSearch.lower_bound(keys, size, key);
+        int left_index = 0;
+        int right_index = size;
+        while ( left_index < right_index ) {
+          int mid = (right_index+left_index) >>> 1;
+          if ( keys[mid] < key )
+            left_index = mid+1;
+          else
+            right_index = mid;
+        }
+        return left_index;
+    }
+
+    /** Индекс первого элемента с ключем больше заданного
+     *
+     * @param key - ключ
+     * @return индекс (size, если такого нет)
+     */
+    protected int upper_bound(int key) {
+        if ( vector_search ) return VectorSearch.upper_bound(keys, size, key);
+        int left_index = 0;
+        int right_index = size;
+        while ( left_index < right_index ) {
+          int mid = (right_index+left_index) >>> 1;
+          if ( key < keys[mid] )
+            right_index = mid;
+          else
+            left_index = mid+1;
+        }
+        return left_index;
+    }
+
+    /** Включение или выключение индекса Эйтцингера
+     * 
+     * @param enabled - true - find использует индекс на больших массивах
+     */
+    public void set_search_index(boolean enabled) {
+        set_search_index(enabled, EYTZINGER_MIN_SIZE, EYTZINGER_MAX_SIZE);
+    }
+    
+    /** Включение или выключение индекса Эйтцингера
+     * 
+     * @param enabled - true - find использует индекс
+     * @param min_size - размер массива, начиная с которого find использует
+     * индекс (по-умолчанию EYTZINGER_MIN_SIZE)
+     * @param max_size - размер массива, после которого find не использует
+     * индекс (по-умолчанию EYTZINGER_MAX_SIZE)
+     */
+    public void set_search_index(boolean enabled, int min_size, int max_size) {
+        search_index = enabled;
+        search_index_min_size = min_size;
+        search_index_max_size = max_size;
+        eytz_keys = null;
+        eytz_pos = null;
+        on_write();
+    }
+    
+    /** Включение или выключение блочного (векторного) поиска
+     * 
+     * @param enabled - true - find и add досматривают последний блок 
+     * ключей векторными сравнениями (см. VectorSearch)
+     */
+    public void set_vector_search(boolean enabled) {
+        vector_search = enabled;
+    }
+    
+    /** Отметка записи в массив
+     * 
+     * Вызывается после каждого изменения содержимого массива.
+     */
+    protected void on_write() {
+        eytz_valid = false;
+        finds_since_write = 0;
+    }
+    
+    /** Использовать ли индекс Эйтцингера в очередном поиске
+     * 
+     * Перестраивает устаревший индекс, если после последней записи было
+     * достаточно поисков.
+     * 
+     * @return true - использовать
+     */
+    protected boolean use_search_index() {
+        if ( !search_index || size < search_index_min_size 
+             || size > search_index_max_size ) return false;
+        if ( eytz_valid ) return true;
+        if ( ++finds_since_write < (size >> EYTZINGER_READ_SHIFT) ) return false;
+        build_eytzinger();
+        return true;
+    }
+    
+    /** Построение индекса Эйтцингера
+     * 
+     * Ключи раскладываются симметричным обходом неявного дерева, поэтому
+     * его узлы получают ключи по неубыванию.
+     */
+    protected void build_eytzinger() {
+        if ( eytz_keys == null || eytz_keys.length < size+1 ) {
+            eytz_keys = new int[max_available_size+1];
+            eytz_pos = new int[max_available_size+1];
+        }
+        fill_eytzinger(0, 1);
+        eytz_valid = true;
+    }
+    
+    /** Заполнение поддерева индекса Эйтцингера
+     * 
+     * @param index - индекс первого еще не уложенного элемента keys[]
+     * @param node - корень поддерева
+     * @return индекс первого не уложенного элемента после поддерева
+     */
+    protected int fill_eytzinger(int index, int node) {
+        if ( node > size ) return index;
+        index = fill_eytzinger(index, 2*node);
+        eytz_keys[node] = keys[index];
+        eytz_pos[node] = index;
+        return fill_eytzinger(index+1, 2*node+1);
+    }
+    
+    /** Поиск по индексу Эйтцингера
+     * 
+     * Спуск без ветвлений: на каждом уровне номер узла удваивается и к нему
+     * прибавляется результат сравнения. После выхода за дерево отбрасываются
+     * последние шаги вправо (хвостовые единицы номера) и шаг влево - 
+     * остается узел с первым ключем не меньше заданного.
+     * 
+     * На каждом шаге заранее читается узел на 4 уровня ниже (16*node): 
+     * в Java нет явной предвыборки, а независимая загрузка позволяет 
+     * процессору ждать промахи нескольких уровней одновременно. Чтобы
+     * загрузки не были выброшены компилятором, их сумма участвует в 
+     * ответе при неудачном поиске.
+     * 
+     * @param key - ключ
+     * @return индекс первого элемента с ключем key или отрицательное 
+     * число, если такого нет
+     */
+    protected int find_eytzinger(int key) {
+        int[] tree = eytz_keys;
+        int n = size;
+        int node = 1;
+        int prefetched = 0;
+        while ( node <= n ) {
+            prefetched += tree[node <= (n >>> 4) ? 16*node : 0];
+            node = 2*node + (tree[node] < key ? 1 : 0);
+        }
+        node >>>= Integer.numberOfTrailingZeros(~node) + 1;
+        if ( node == 0 || tree[node] != key ) 
+            return prefetched == Integer.MIN_VALUE ? -2 : -1;
+        return eytz_pos[node];
+    }
     
     /** Поиск элемента по значению
      * 
@@ -130,15 +562,24 @@ public class SortedArray implements Struct{
      */
     @Override
     public String find(int key) {
+        if ( use_search_index() ) {
+            int index = find_eytzinger(key);
+            return index < 0 ? "NOT FOUND" : String.valueOf(index);
+        }
+        if ( vector_search ) {
+            int index = VectorSearch.lower_bound(keys, size, key);
+            return index < size && keys[index] == key ? String.valueOf(index) : "NOT FOUND";
+        }
         int left_index = 0;
         int right_index = size-1;
         while ( left_index <= right_index ) {
-          if ( key==data[(right_index+left_index)/2].key ) 
-            return String.valueOf((right_index+left_index)/2);
-          if ( key< data[(right_index+left_index)/2].key) 
-            right_index = (right_index+left_index)/2-1;  // ищем в левой половине
+          int mid = (right_index+left_index) >>> 1;
+          if ( key==keys[mid] ) 
+            return String.valueOf(mid);
+          if ( key< keys[mid]) 
+            right_index = mid-1;  // ищем в левой половине
           else 
-            left_index = (right_index+left_index)/2+1;  // ищем в правой половине
+            left_index = mid+1;  // ищем в правой половине
         }
         return  "NOT FOUND"; // элемент не найден
     }
@@ -151,7 +592,7 @@ public class SortedArray implements Struct{
     @Override
     public String get_max() {
         if ( size > 0 )
-            return "key: "+data[size-1].key+", value: "+data[size-1].value;
+            return "key: "+keys[size-1]+", value: "+values[size-1];
         else 
             return "NOT EXISTS";
     }
@@ -164,7 +605,7 @@ public class SortedArray implements Struct{
     @Override
     public String get_min() {
         if ( size > 0 )
-            return "key: "+data[0].key+", value: "+data[0].value;
+            return "key: "+keys[0]+", value: "+values[0];
         else 
             return "NOT EXISTS";
     }
@@ -181,7 +622,7 @@ public class SortedArray implements Struct{
         if ( size == 0 ) return "array is empty";
         StringBuilder stringB = new StringBuilder();
         for ( int i=0; i<size; i++) {
-            stringB.append(data[i].key);
+            stringB.append(keys[i]);
             stringB.append(' ');
         }
         return stringB.toString();
@@ -203,14 +644,17 @@ public class SortedArray implements Struct{
     /** Получить текущее состояние массива.
      * 
      * Возвращает строку, в которой записаны значения всех параметров структуры.
-     * В строке не записано содержимое массива data[].
+     * В строке не записано содержимое массивов keys[] и values[].
      * 
      * @return строка состояния структуры
      */
     @Override
     public String get_state() {
         return "size = "+size+"  max_available_size = "+max_available_size
-                + "  extention_multiplier = "+extention_multiplier;
+                + "  extention_multiplier = "+extention_multiplier
+                + ( search_index ? "  search_index = eytzinger ("
+                                   +(eytz_valid ? "built" : "stale")+")" : "" )
+                + ( vector_search ? "  vector_search = "+VectorSearch.get_scan_type() : "" );
     }
     
     
@@ -240,34 +684,4 @@ public class SortedArray implements Struct{
                 "DATA:" + NL +
                 get_data();
     }
-    
-    /** Элемент для отсортированного массива SortedArray
-     * 
-     * @author Akropon
-     */
-    public static class Element {
-        public int key;  // ключ
-        public int value;  // значение
-        
-        /** Конструктор
-         * 
-         * Создает узел со всеми нулевыми полями.
-         */
-        public Element() {
-            key = 0;  // нулевой ключ
-            value = 0;  // нулевое значение
-        }
-        
-        /** Конструктор
-         * 
-         * Создает узел с заданными ключем, значением
-         * 
-         * @param key - ключ
-         * @param value - значение
-         */
-        public Element(int key, int value) {
-            this.key = key;  
-            this.value = value;
-        }
-    }
 }
@@ -0,0 +1,279 @@
+package javarealization;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/** Потокобезопасный отсортированный массив.
+ *
+ * Тот же отсортированный массив, рассчитанный на много читателей и
+ * редких писателей. Все записи (add, add_batch, delete, delete_key,
+ * delete_range, в т.ч. расширение массивов) идут под исключающим замком
+ * записи StampedLock.
+ *
+ * find, get_at, get_min и get_max замков не берут: они получают отметку
+ * оптимистичного чтения, копируют ссылки на массивы и size в локальные
+ * переменные, ищут по копиям и в конце проверяют отметку (validate).
+ * Если за это время была запись, результат отбрасывается и чтение
+ * повторяется под замком чтения. Пока писателей нет, читатели ничего не
+ * пишут в общую память и не мешают друг другу. Во время записи копии
+ * могут оказаться несогласованными (старый массив и новый size), поэтому
+ * поиск не выходит за длину скопированных массивов.
+ *
+ * Индекс Эйтцингера не поддерживается: он перестраивается лениво внутри
+ * find, т.е. поиск стал бы записью. Блочный поиск (set_vector_search)
+ * поддерживается.
+ *
+ * get_data, get_data_simple и get_state выполняются под замком чтения,
+ * print - согласован по частям (состояние и данные читаются отдельно).
+ *
+ * @author Akropon
+ */
+public class SortedArrayConcurrent extends SortedArray{
+    protected final StampedLock lock;       // замок массива
+    protected final LongAdder read_fallbacks; // кол-во чтений, повторенных под замком
+
+    /** Конструктор
+     *
+     * @param max_available_size > 0 - максимальное кол-во элементов в массиве до
+     * первого расширения
+     * @param extention_multiplier > 1 - множитель динамического расширения
+     */
+    public SortedArrayConcurrent(int max_available_size, float extention_multiplier) {
+        super(max_available_size, extention_multiplier);
+        this.lock = new StampedLock();
+        this.read_fallbacks = new LongAdder();
+    }
+
+    /** Индекс Эйтцингера не поддерживается
+     *
+     * @throws UnsupportedOperationException при включении индекса
+     */
+    @Override
+    public void set_search_index(boolean enabled, int min_size, int max_size) {
+        if ( enabled )
+            throw new UnsupportedOperationException("concurrent sorted array has no search index");
+    }
+
+    @Override
+    public void set_vector_search(boolean enabled) {
+        long stamp = lock.writeLock();
+        try {
+            super.set_vector_search(enabled);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void add(int key, int value) {
+        long stamp = lock.writeLock();
+        try {
+            super.add(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public String add_batch(int[] batch_keys, int[] batch_values, boolean parallel) {
+        long stamp = lock.writeLock();
+        try {
+            return super.add_batch(batch_keys, batch_values, parallel);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public String delete(int index) {
+        long stamp = lock.writeLock();
+        try {
+            return super.delete(index);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public String delete_key(int key) {
+        long stamp = lock.writeLock();
+        try {
+            int index = lower_bound(key);
+            if ( index == size || keys[index] != key ) return "FAIL";
+            // super.delete - замок уже взят
+            return super.delete(index);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public String delete_range(int lo, int hi) {
+        long stamp = lock.writeLock();
+        try {
+            return super.delete_range(lo, hi);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Поиск по копиям ссылок на массивы
+     *
+     * @param keys_copy - копия ссылки на ключи
+     * @param n - кол-во элементов (не больше длины keys_copy)
+     * @param key - ключ
+     * @return индекс элемента с ключем key, -1 - не найден
+     */
+    protected int find_in(int[] keys_copy, int n, int key) {
+        if ( vector_search ) {
+            int index = VectorSearch.lower_bound(keys_copy, n, key);
+            return index < n && keys_copy[index] == key ? index : -1;
+        }
+        int left_index = 0;
+        int right_index = n-1;
+        while ( left_index <= right_index ) {
+          int mid = (right_index+left_index) >>> 1;
+          if ( key==keys_copy[mid] )
+            return mid;
+          if ( key< keys_copy[mid])
+            right_index = mid-1;  // ищем в левой половине
+          else
+            left_index = mid+1;  // ищем в правой половине
+        }
+        return -1;
+    }
+
+    /** Поиск элемента по значению (оптимистичное чтение)
+     *
+     * @param key - ключ
+     * @return : "NOT_FOUND" - искомый элемент отсутствует
+     *           "X", X - индекс первого найденного элемента с ключем key
+     */
+    @Override
+    public String find(int key) {
+        long stamp = lock.tryOptimisticRead();
+        if ( stamp != 0 ) {
+            int[] keys_copy = keys;
+            int n = Math.min(size, keys_copy.length);
+            int index = find_in(keys_copy, n, key);
+            if ( lock.validate(stamp) )
+                return index < 0 ? "NOT FOUND" : String.valueOf(index);
+            read_fallbacks.increment();
+        }
+        stamp = lock.readLock();
+        try {
+            int index = find_in(keys, size, key);
+            return index < 0 ? "NOT FOUND" : String.valueOf(index);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Возвращает элемент по заданному индексу (оптимистичное чтение)
+     *
+     * @param index - индекс
+     * @return "FAIL" - если был введен недопустимый индекс
+     *         "key: X, value: Y", где X - ключ элемента, Y - соотв. значение
+     */
+    @Override
+    public String get_at(int index) {
+        long stamp = lock.tryOptimisticRead();
+        if ( stamp != 0 ) {
+            int[] keys_copy = keys;
+            int[] values_copy = values;
+            int n = Math.min(size, Math.min(keys_copy.length, values_copy.length));
+            boolean exists = index >= 0 && index < n;
+            int key = exists ? keys_copy[index] : 0;
+            int value = exists ? values_copy[index] : 0;
+            if ( lock.validate(stamp) )
+                return exists ? "key: "+key+", value: "+value : "FAIL";
+            read_fallbacks.increment();
+        }
+        stamp = lock.readLock();
+        try {
+            return super.get_at(index);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Получить элемент с минимальным ключем (оптимистичное чтение)
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        return get_edge(false);
+    }
+
+    /** Получить элемент с максимальным ключем (оптимистичное чтение)
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        return get_edge(true);
+    }
+
+    /** Первый или последний элемент (оптимистичное чтение)
+     *
+     * @param last - true - последний, false - первый
+     * @return "NOT EXISTS" - массив пуст
+     *         "key: X, value: Y" - элемент
+     */
+    protected String get_edge(boolean last) {
+        long stamp = lock.tryOptimisticRead();
+        if ( stamp != 0 ) {
+            int[] keys_copy = keys;
+            int[] values_copy = values;
+            int n = Math.min(size, Math.min(keys_copy.length, values_copy.length));
+            int index = last ? n-1 : 0;
+            int key = n > 0 ? keys_copy[index] : 0;
+            int value = n > 0 ? values_copy[index] : 0;
+            if ( lock.validate(stamp) )
+                return n > 0 ? "key: "+key+", value: "+value : "NOT EXISTS";
+            read_fallbacks.increment();
+        }
+        stamp = lock.readLock();
+        try {
+            return last ? super.get_max() : super.get_min();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String get_data() {
+        long stamp = lock.readLock();
+        try {
+            return super.get_data();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Получить текущее состояние массива.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        long stamp = lock.readLock();
+        try {
+            return super.get_state() + "  read_fallbacks = "+read_fallbacks.sum();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "sorted array (concurrent, optimistic reads)";
+    }
+}
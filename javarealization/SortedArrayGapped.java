@@ -0,0 +1,605 @@
+package javarealization;
+
+/** Отсортированный массив с промежутками (packed memory array).
+ *
+ * Тот же отсортированный по неубыванию ключей массив с повтором элементов,
+ * но физический массив разбит на сегменты по segment_size ячеек, и в
+ * каждом сегменте оставлены свободные ячейки. Элементы сегмента прижаты к
+ * его началу, кол-во элементов сегмента хранится в seg_count[].
+ * Вставка и удаление сдвигают элементы только внутри сегмента. Если сегмент
+ * переполнен (или почти опустел), перераспределяется наименьшее
+ * выровненное окно из 2^l сегментов, плотность которого укладывается в
+ * пороги уровня l: верхний порог убывает от 1 у сегмента до
+ * UPPER_DENSITY_ROOT у всего массива, нижний растет от LOWER_DENSITY_LEAF
+ * до LOWER_DENSITY_ROOT. Если не укладывается и весь массив, он
+ * расширяется (или сжимается) вдвое. Так вставка и удаление перемещают
+ * амортизированно O(log^2 n) элементов вместо O(n).
+ *
+ * Индексы в get_at, delete и find - логические, т.е. без учета промежутков;
+ * кол-во элементов до сегмента считается деревом Фенвика по seg_count[].
+ * get_data выводит элементы в логическом порядке, get_data_simple -
+ * физическое размещение с промежутками.
+ *
+ * Вместимость и размер сегмента - степени двойки, множитель расширения
+ * всегда равен 2.
+ *
+ * @author Akropon
+ */
+public class SortedArrayGapped extends SortedArray{
+    protected int segment_size;         // кол-во ячеек в сегменте (степень двойки)
+    protected int segment_shift;        // log2(segment_size)
+    protected int num_of_segments;      // кол-во сегментов (степень двойки)
+    protected int[] seg_count;          // кол-во элементов в каждом сегменте
+    protected int[] fenwick;            // дерево Фенвика по seg_count[] (с единицы)
+
+    // наименьший размер сегмента
+    protected static final int MIN_SEGMENT_SIZE = 8;
+    // верхний порог плотности всего массива (у сегмента - 1)
+    protected static final float UPPER_DENSITY_ROOT = 0.75f;
+    // нижний порог плотности сегмента
+    protected static final float LOWER_DENSITY_LEAF = 0.125f;
+    // нижний порог плотности всего массива
+    protected static final float LOWER_DENSITY_ROOT = 0.25f;
+
+    /** Конструктор
+     *
+     * Создает новый пустой массив с промежутками.
+     *
+     * @param max_available_size > 0 - начальная вместимость (округляется
+     * вверх до степени двойки)
+     */
+    public SortedArrayGapped(int max_available_size) {
+        super(1, 2);
+        allocate(capacity_for(max_available_size));
+        this.extention_multiplier = 2;
+    }
+
+    /** Вместимость-степень двойки не меньше заданной
+     *
+     * @param size - заданная вместимость
+     * @return вместимость
+     */
+    protected static int capacity_for(int size) {
+        int capacity = MIN_SEGMENT_SIZE;
+        while ( capacity < size && capacity < (1 << 30) )
+            capacity *= 2;
+        return capacity;
+    }
+
+    /** Выделение пустых массивов заданной вместимости
+     *
+     * Размер сегмента - степень двойки около log2(capacity), но не меньше
+     * MIN_SEGMENT_SIZE.
+     *
+     * @param capacity - вместимость (степень двойки)
+     */
+    protected void allocate(int capacity) {
+        int log = Integer.numberOfTrailingZeros(capacity);
+        segment_size = Math.min(capacity, Math.max(MIN_SEGMENT_SIZE, Integer.highestOneBit(log)));
+        segment_shift = Integer.numberOfTrailingZeros(segment_size);
+        num_of_segments = capacity / segment_size;
+        max_available_size = capacity;
+        keys = new int[capacity];
+        values = new int[capacity];
+        seg_count = new int[num_of_segments];
+        fenwick = new int[num_of_segments+1];
+    }
+
+    /** Изменение кол-ва элементов сегмента (с деревом Фенвика)
+     *
+     * @param seg - номер сегмента
+     * @param delta - изменение
+     */
+    protected void change_count(int seg, int delta) {
+        seg_count[seg] += delta;
+        for ( int i=seg+1; i<=num_of_segments; i += i & -i )
+            fenwick[i] += delta;
+    }
+
+    /** Кол-во элементов в сегментах до заданного
+     *
+     * @param seg - номер сегмента
+     * @return кол-во элементов в сегментах 0..seg-1
+     */
+    protected int count_before(int seg) {
+        int res = 0;
+        for ( int i=seg; i>0; i -= i & -i )
+            res += fenwick[i];
+        return res;
+    }
+
+    /** Физическая ячейка элемента с заданным логическим индексом
+     *
+     * Спуск по дереву Фенвика.
+     *
+     * @param index - логический индекс (0 <= index < size)
+     * @return номер ячейки массивов keys[] и values[]
+     */
+    protected int cell_of(int index) {
+        int seg = 0;
+        for ( int step = num_of_segments; step > 0; step >>>= 1 )
+            if ( seg + step <= num_of_segments && fenwick[seg+step] <= index ) {
+                seg += step;
+                index -= fenwick[seg];
+            }
+        return (seg << segment_shift) + index;
+    }
+
+    /** Первый непустой сегмент, начиная с заданного
+     *
+     * Спуск по дереву Фенвика к ячейке элемента с логическим индексом
+     * count_before(seg).
+     *
+     * @param seg - номер сегмента
+     * @return номер сегмента (num_of_segments, если непустых нет)
+     */
+    protected int nonempty_from(int seg) {
+        int index = count_before(seg);
+        if ( index == size ) return num_of_segments;
+        return cell_of(index) >>> segment_shift;
+    }
+
+    /** Поиск сегмента по первым ключам непустых сегментов
+     *
+     * Сегменты могут быть пустыми: новый массив пуст целиком, а после
+     * сжатия немногие элементы раскладываются по многим сегментам. Первая
+     * ячейка пустого сегмента хранит старый ключ (или 0), поэтому, если
+     * средний сегмент двоичного поиска пуст, сравнивается первый ключ
+     * ближайшего непустого сегмента справа (спуск по дереву Фенвика).
+     *
+     * @param key - ключ
+     * @param or_equal - true - последний непустой сегмент, первый ключ
+     * которого не больше заданного; false - меньше заданного
+     * @return номер сегмента (первый непустой, если такого нет;
+     *         0, если массив пуст)
+     */
+    protected int segment_of(int key, boolean or_equal) {
+        if ( size == 0 ) return 0;
+        int found = -1;
+        int left = 0;
+        int right = num_of_segments - 1;
+        while ( left <= right ) {
+            int mid = (left + right) >>> 1;
+            int seg = seg_count[mid] > 0 ? mid : nonempty_from(mid);
+            if ( seg > right ) {
+                // сегменты mid..right пусты
+                right = mid - 1;
+                continue;
+            }
+            int first = keys[seg << segment_shift];
+            if ( first < key || (or_equal && first == key) ) {
+                found = seg;
+                left = seg + 1;
+            }
+            else
+                right = mid - 1;
+        }
+        return found >= 0 ? found : nonempty_from(0);
+    }
+
+    /** Возвращает элемент по заданному логическому индексу
+     *
+     * @param index - индекс
+     * @return "FAIL" - если был введен недопустимый индекс
+     *         "key: X, value: Y", где X - ключ элемента, Y - соотв. значение
+     */
+    @Override
+    public String get_at(int index) {
+        if ( index < 0 || index >= size ) return "FAIL";
+        int cell = cell_of(index);
+        return "key: "+keys[cell]+", value: "+values[cell];
+    }
+
+    /** Добавляет элемент в массив.
+     *
+     * Элемент вставляется после всех элементов с таким же ключем.
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        int seg = segment_of(key, true);
+        if ( seg_count[seg] == segment_size ) {
+            rebalance_insert(seg, key, value);
+            size++;
+            return;
+        }
+        // позиция внутри сегмента - после равных ключей
+        int base = seg << segment_shift;
+        int left_index = base;
+        int right_index = base + seg_count[seg];
+        while ( left_index < right_index ) {
+            int mid = (left_index + right_index) >>> 1;
+            if ( key < keys[mid] )
+                right_index = mid;
+            else
+                left_index = mid + 1;
+        }
+        int tail = base + seg_count[seg] - left_index;
+        System.arraycopy(keys, left_index, keys, left_index+1, tail);
+        System.arraycopy(values, left_index, values, left_index+1, tail);
+        keys[left_index] = key;
+        values[left_index] = value;
+        change_count(seg, 1);
+        size++;
+    }
+
+    /** Вставка в переполненный сегмент с перераспределением окна
+     *
+     * Ищется наименьшее окно, плотность которого после вставки не выше
+     * порога его уровня. Элементы окна вместе с новым равномерно
+     * раскладываются по сегментам окна. Если подходящего окна нет,
+     * массив расширяется вдвое.
+     *
+     * @param seg - переполненный сегмент
+     * @param key - ключ
+     * @param value - значение
+     */
+    protected void rebalance_insert(int seg, int key, int value) {
+        int height = Integer.numberOfTrailingZeros(num_of_segments);
+        for ( int level=1; level<=height; level++ ) {
+            int window = 1 << level;
+            int first = seg & ~(window - 1);
+            int count = count_before(first + window) - count_before(first);
+            float upper = 1 - (1 - UPPER_DENSITY_ROOT) * level / height;
+            if ( count + 1 <= upper * window * segment_size ) {
+                spread(first, window, count, true, key, value);
+                return;
+            }
+        }
+        // весь массив слишком плотный - расширяем
+        resize(max_available_size * 2, true, key, value);
+    }
+
+    /** Сбор элементов сегментов во временные массивы
+     *
+     * @param first - первый сегмент
+     * @param window - кол-во сегментов
+     * @param count - кол-во элементов в них
+     * @param with_new - true - добавить новый элемент на его место
+     * @param key - ключ нового элемента
+     * @param value - значение нового элемента
+     * @return {ключи, значения} по неубыванию ключей
+     */
+    protected int[][] gather(int first, int window, int count,
+                             boolean with_new, int key, int value) {
+        int total = with_new ? count + 1 : count;
+        int[] tmp_keys = new int[total];
+        int[] tmp_values = new int[total];
+        int pos = 0;
+        boolean placed = !with_new;
+        for ( int seg=first; seg<first+window; seg++ ) {
+            int base = seg << segment_shift;
+            for ( int i=base; i<base+seg_count[seg]; i++ ) {
+                if ( !placed && key < keys[i] ) {
+                    tmp_keys[pos] = key;
+                    tmp_values[pos] = value;
+                    pos++;
+                    placed = true;
+                }
+                tmp_keys[pos] = keys[i];
+                tmp_values[pos] = values[i];
+                pos++;
+            }
+        }
+        if ( !placed ) {
+            tmp_keys[pos] = key;
+            tmp_values[pos] = value;
+        }
+        return new int[][] {tmp_keys, tmp_values};
+    }
+
+    /** Равномерное перераспределение элементов окна
+     *
+     * @param first - первый сегмент окна
+     * @param window - кол-во сегментов окна
+     * @param count - кол-во элементов окна (без нового)
+     * @param with_new - true - вставить новый элемент
+     * @param key - ключ нового элемента
+     * @param value - значение нового элемента
+     */
+    protected void spread(int first, int window, int count,
+                          boolean with_new, int key, int value) {
+        int[][] tmp = gather(first, window, count, with_new, key, value);
+        int total = tmp[0].length;
+        int pos = 0;
+        for ( int i=0; i<window; i++ ) {
+            int seg = first + i;
+            int seg_items = total / window + (i < total % window ? 1 : 0);
+            System.arraycopy(tmp[0], pos, keys, seg << segment_shift, seg_items);
+            System.arraycopy(tmp[1], pos, values, seg << segment_shift, seg_items);
+            change_count(seg, seg_items - seg_count[seg]);
+            pos += seg_items;
+        }
+    }
+
+    /** Перестроение массива с новой вместимостью
+     *
+     * @param capacity - новая вместимость (степень двойки)
+     * @param with_new - true - вставить новый элемент
+     * @param key - ключ нового элемента
+     * @param value - значение нового элемента
+     */
+    protected void resize(int capacity, boolean with_new, int key, int value) {
+        int[][] tmp = gather(0, num_of_segments, size, with_new, key, value);
+        rebuild(capacity, tmp[0], tmp[1], tmp[0].length);
+    }
+
+    /** Заполнение новых массивов заданной вместимости
+     *
+     * Элементы равномерно раскладываются по всем сегментам.
+     *
+     * @param capacity - вместимость (степень двойки)
+     * @param tmp_keys - ключи по неубыванию
+     * @param tmp_values - соотв. значения
+     * @param total - кол-во элементов
+     */
+    protected void rebuild(int capacity, int[] tmp_keys, int[] tmp_values, int total) {
+        allocate(capacity);
+        int pos = 0;
+        for ( int seg=0; seg<num_of_segments; seg++ ) {
+            int seg_items = total / num_of_segments + (seg < total % num_of_segments ? 1 : 0);
+            System.arraycopy(tmp_keys, pos, keys, seg << segment_shift, seg_items);
+            System.arraycopy(tmp_values, pos, values, seg << segment_shift, seg_items);
+            change_count(seg, seg_items);
+            pos += seg_items;
+        }
+    }
+
+    /** Добавляет пакет элементов в массив.
+     *
+     * Пакет сортируется и сливается с содержимым массива за один проход,
+     * результат заново раскладывается по массиву с плотностью около 1/2.
+     *
+     * @param batch_keys - ключи пакета
+     * @param batch_values - соотв. значения
+     * @param parallel - true - сортировать и сливать параллельно
+     * @return "SUCCESS" - добавлен, "FAIL" - длины массивов не совпадают
+     */
+    @Override
+    public String add_batch(int[] batch_keys, int[] batch_values, boolean parallel) {
+        if ( batch_keys.length != batch_values.length ) return "FAIL";
+        if ( batch_keys.length == 0 ) return "SUCCESS";
+        long[] order = sort_batch(batch_keys, parallel);
+        int[][] tmp = gather(0, num_of_segments, size, false, 0, 0);
+        int total = size + batch_keys.length;
+        int[] new_keys = new int[total];
+        int[] new_values = new int[total];
+        merge_batch(tmp[0], tmp[1], size, order, batch_values, new_keys, new_values, parallel);
+        rebuild(capacity_for(2 * total), new_keys, new_values, total);
+        size = total;
+        return "SUCCESS";
+    }
+
+    /** Удаляет элемент по заданному логическому индексу.
+     *
+     * Если сегмент стал слишком разреженным, перераспределяется окно, а
+     * при слишком разреженном массиве - массив сжимается вдвое.
+     *
+     * @param index - индекс
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int index) {
+        if (index < 0 || index >= size) return "FAIL";
+        remove_cell(cell_of(index));
+        return "SUCCESS";
+    }
+
+    /** Удаление элемента из заданной ячейки
+     *
+     * @param cell - номер ячейки
+     */
+    protected void remove_cell(int cell) {
+        int seg = cell >>> segment_shift;
+        int tail = (seg << segment_shift) + seg_count[seg] - cell - 1;
+        System.arraycopy(keys, cell+1, keys, cell, tail);
+        System.arraycopy(values, cell+1, values, cell, tail);
+        change_count(seg, -1);
+        size--;
+        if ( num_of_segments > 1 && seg_count[seg] < LOWER_DENSITY_LEAF * segment_size )
+            rebalance_delete(seg);
+    }
+
+    /** Перераспределение окна вокруг слишком разреженного сегмента
+     *
+     * @param seg - разреженный сегмент
+     */
+    protected void rebalance_delete(int seg) {
+        int height = Integer.numberOfTrailingZeros(num_of_segments);
+        for ( int level=1; level<=height; level++ ) {
+            int window = 1 << level;
+            int first = seg & ~(window - 1);
+            int count = count_before(first + window) - count_before(first);
+            float lower = LOWER_DENSITY_LEAF
+                    + (LOWER_DENSITY_ROOT - LOWER_DENSITY_LEAF) * level / height;
+            if ( count >= lower * window * segment_size ) {
+                spread(first, window, count, false, 0, 0);
+                return;
+            }
+        }
+        // весь массив слишком разреженный - сжимаем
+        resize(max_available_size / 2, false, 0, 0);
+    }
+
+    /** Удаляет первый элемент с заданным ключем (как SortedArray).
+     *
+     * Равные ключи могут занимать несколько сегментов подряд, поэтому
+     * ищется последний непустой сегмент, первый ключ которого меньше
+     * заданного: первый элемент с ключем не меньше заданного лежит в нем
+     * или в начале следующего непустого сегмента.
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - элемента с таким ключем нет
+     */
+    @Override
+    public String delete_key(int key) {
+        if ( size == 0 ) return "FAIL";
+        int seg = segment_of(key, false);
+        int base = seg << segment_shift;
+        int left_index = base;
+        int right_index = base + seg_count[seg];
+        while ( left_index < right_index ) {
+            int mid = (left_index + right_index) >>> 1;
+            if ( keys[mid] < key )
+                left_index = mid + 1;
+            else
+                right_index = mid;
+        }
+        if ( left_index == base + seg_count[seg] ) {
+            // все ключи сегмента меньше - первый не меньший в следующем
+            // непустом сегменте
+            int index = count_before(seg + 1);
+            if ( index == size ) return "FAIL";
+            left_index = cell_of(index);
+        }
+        if ( keys[left_index] != key )
+            return "FAIL";
+        remove_cell(left_index);
+        return "SUCCESS";
+    }
+
+    /** Удаляет все элементы с ключами из отрезка [lo, hi].
+     *
+     * Оставшиеся элементы за один проход собираются и заново
+     * раскладываются по массиву с плотностью около 1/2.
+     *
+     * @param lo - нижняя граница ключей (включительно)
+     * @param hi - верхняя граница ключей (включительно)
+     * @return "FAIL" - если lo > hi
+     *         "deleted: N", где N - кол-во удаленных элементов
+     */
+    @Override
+    public String delete_range(int lo, int hi) {
+        if ( lo > hi ) return "FAIL";
+        int[] tmp_keys = new int[size];
+        int[] tmp_values = new int[size];
+        int kept = 0;
+        for ( int seg=0; seg<num_of_segments; seg++ ) {
+            int base = seg << segment_shift;
+            for ( int i=base; i<base+seg_count[seg]; i++ )
+                if ( keys[i] < lo || keys[i] > hi ) {
+                    tmp_keys[kept] = keys[i];
+                    tmp_values[kept] = values[i];
+                    kept++;
+                }
+        }
+        int count = size - kept;
+        if ( count > 0 ) {
+            rebuild(capacity_for(2 * kept), tmp_keys, tmp_values, kept);
+            size = kept;
+        }
+        return "deleted: "+count;
+    }
+
+    /** Поиск элемента по ключу
+     *
+     * @param key - ключ
+     * @return : "NOT_FOUND" - искомый элемент отсутствует
+     *           "X", X - логический индекс найденного элемента с ключем key
+     */
+    @Override
+    public String find(int key) {
+        if ( size == 0 ) return "NOT FOUND";
+        int seg = segment_of(key, true);
+        int base = seg << segment_shift;
+        int left_index = base;
+        int right_index = base + seg_count[seg] - 1;
+        while ( left_index <= right_index ) {
+            int mid = (left_index + right_index) >>> 1;
+            if ( key == keys[mid] )
+                return String.valueOf(count_before(seg) + mid - base);
+            if ( key < keys[mid] )
+                right_index = mid - 1;
+            else
+                left_index = mid + 1;
+        }
+        return "NOT FOUND";
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        if ( size == 0 ) return "NOT EXISTS";
+        return get_at(size-1);
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        if ( size == 0 ) return "NOT EXISTS";
+        return get_at(0);
+    }
+
+    /** Получить текстовое изображение массива.
+     *
+     * Элементы выводятся в логическом порядке, без промежутков.
+     *
+     * @return строка содержимого массива
+     */
+    @Override
+    public String get_data() {
+        if ( size == 0 ) return "array is empty";
+        StringBuilder stringB = new StringBuilder();
+        for ( int seg=0; seg<num_of_segments; seg++ ) {
+            int base = seg << segment_shift;
+            for ( int i=base; i<base+seg_count[seg]; i++ ) {
+                stringB.append(keys[i]);
+                stringB.append(' ');
+            }
+        }
+        return stringB.toString();
+    }
+
+    /** Получить физическое размещение элементов.
+     *
+     * Сегменты разделяются "|", свободные ячейки обозначаются "_".
+     *
+     * @return строка размещения
+     */
+    @Override
+    public String get_data_simple() {
+        StringBuilder stringB = new StringBuilder();
+        for ( int seg=0; seg<num_of_segments; seg++ ) {
+            stringB.append("| ");
+            int base = seg << segment_shift;
+            for ( int i=base; i<base+segment_size; i++ ) {
+                if ( i < base + seg_count[seg] ) stringB.append(keys[i]);
+                else stringB.append('_');
+                stringB.append(' ');
+            }
+        }
+        stringB.append('|');
+        return stringB.toString();
+    }
+
+    /** Получить текущее состояние массива.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        return "size = "+size+"  max_available_size = "+max_available_size
+                + "  segment_size = "+segment_size
+                + "  num_of_segments = "+num_of_segments
+                + "  density = "+(float)size/max_available_size;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "sorted array (gapped, packed memory array)";
+    }
+}
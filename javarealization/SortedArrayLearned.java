@@ -0,0 +1,211 @@
+package javarealization;
+
+import java.util.Arrays;
+
+/** Отсортированный массив с обученным индексом.
+ *
+ * Тот же отсортированный массив, но find сначала предсказывает позицию
+ * ключа кусочно-линейной моделью, а затем ищет бинарным поиском только в
+ * окне [позиция - max_error, позиция + max_error]. Для ключей вида
+ * "почти монотонные id с регулярными промежутками" модель состоит из
+ * нескольких отрезков и помещается в кэш, а окно - в пару строк кэша.
+ *
+ * Модель строится жадно, "сужающимся конусом" (как в FITing-tree/PGM):
+ * отрезок начинается в первом различном ключе, каждый следующий ключ
+ * сужает допустимый диапазон наклонов так, чтобы его позиция (индекс
+ * первого элемента с этим ключем) предсказывалась с ошибкой не больше
+ * error_bound. Когда диапазон становится пустым, начинается новый
+ * отрезок. Фактическая наибольшая ошибка (max_error) считается после
+ * построения и используется как размер окна.
+ *
+ * Модель устаревает при любой записи и перестраивается лениво: после
+ * size >> MODEL_READ_SHIFT поисков без записей. До этого find -
+ * обычный бинарный поиск.
+ *
+ * @author Akropon
+ */
+public class SortedArrayLearned extends SortedArray{
+    protected int error_bound;          // допустимая ошибка предсказания при построении
+    protected int[] seg_keys;           // первый ключ каждого отрезка модели
+    protected int[] seg_pos;            // позиция первого ключа отрезка
+    protected double[] seg_slope;       // наклон отрезка (позиций на единицу ключа)
+    protected int num_of_segments;      // кол-во отрезков модели
+    protected int max_error;            // фактическая наибольшая ошибка предсказания
+    protected boolean model_valid;      // модель соответствует массиву
+    protected long build_time;          // время последнего построения модели (нс)
+
+    // допустимая ошибка по-умолчанию
+    protected static final int DEFAULT_ERROR_BOUND = 16;
+    // размер отрезка модели в памяти (ключ, позиция, наклон)
+    protected static final int SEGMENT_BYTES = 4 + 4 + 8;
+    // модель перестраивается после (size >> MODEL_READ_SHIFT) поисков без записей:
+    // построение - проход по всему массиву, поэтому при частых записях модель не строится
+    protected static final int MODEL_READ_SHIFT = 8;
+
+    /** Конструктор
+     *
+     * @param max_available_size > 0 - максимальное кол-во элементов в массиве до
+     * первого расширения
+     * @param extention_multiplier > 1 - множитель динамического расширения
+     */
+    public SortedArrayLearned(int max_available_size, float extention_multiplier) {
+        this(max_available_size, extention_multiplier, DEFAULT_ERROR_BOUND);
+    }
+
+    /** Конструктор
+     *
+     * @param max_available_size > 0 - максимальное кол-во элементов в массиве до
+     * первого расширения
+     * @param extention_multiplier > 1 - множитель динамического расширения
+     * @param error_bound >= 0 - допустимая ошибка предсказания позиции
+     */
+    public SortedArrayLearned(int max_available_size, float extention_multiplier,
+                              int error_bound) {
+        super(max_available_size, extention_multiplier);
+        this.error_bound = Math.max(0, error_bound);
+    }
+
+    /** Отметка записи в массив
+     *
+     * Модель устаревает.
+     */
+    @Override
+    protected void on_write() {
+        super.on_write();
+        model_valid = false;
+    }
+
+    /** Построение модели
+     *
+     * Один проход сужающимся конусом по различным ключам и второй проход
+     * для подсчета фактической ошибки.
+     */
+    protected void build_model() {
+        long start = System.nanoTime();
+        int capacity = 16;
+        seg_keys = new int[capacity];
+        seg_pos = new int[capacity];
+        seg_slope = new double[capacity];
+        num_of_segments = 0;
+        int first = 0;      // позиция первого ключа текущего отрезка
+        double slope_low = 0;
+        double slope_high = Double.POSITIVE_INFINITY;
+        for ( int i=1; i<=size; i++ ) {
+            if ( i < size ) {
+                if ( keys[i] == keys[i-1] ) continue;
+                double dx = (double)keys[i] - keys[first];
+                double low = (i - error_bound - first) / dx;
+                double high = (i + error_bound - first) / dx;
+                if ( low <= slope_high && high >= slope_low ) {
+                    // ключ укладывается в конус - сужаем его
+                    slope_low = Math.max(slope_low, low);
+                    slope_high = Math.min(slope_high, high);
+                    continue;
+                }
+            }
+            // конус пуст (или ключи кончились) - закрываем отрезок
+            if ( num_of_segments == capacity ) {
+                capacity *= 2;
+                seg_keys = Arrays.copyOf(seg_keys, capacity);
+                seg_pos = Arrays.copyOf(seg_pos, capacity);
+                seg_slope = Arrays.copyOf(seg_slope, capacity);
+            }
+            seg_keys[num_of_segments] = keys[first];
+            seg_pos[num_of_segments] = first;
+            seg_slope[num_of_segments] = slope_high == Double.POSITIVE_INFINITY
+                    ? slope_low : (slope_low + slope_high) / 2;
+            num_of_segments++;
+            first = i;
+            slope_low = 0;
+            slope_high = Double.POSITIVE_INFINITY;
+        }
+        // фактическая ошибка
+        max_error = 0;
+        int seg = 0;
+        for ( int i=0; i<size; i++ ) {
+            if ( i > 0 && keys[i] == keys[i-1] ) continue;
+            while ( seg+1 < num_of_segments && seg_pos[seg+1] <= i ) seg++;
+            max_error = Math.max(max_error, Math.abs(predict(seg, keys[i]) - i));
+        }
+        model_valid = true;
+        build_time = System.nanoTime() - start;
+    }
+
+    /** Предсказание позиции ключа отрезком модели
+     *
+     * @param seg - номер отрезка
+     * @param key - ключ
+     * @return предсказанная позиция (от 0 до size)
+     */
+    protected int predict(int seg, int key) {
+        double pos = seg_pos[seg] + seg_slope[seg] * ((double)key - seg_keys[seg]);
+        return (int)Math.max(0, Math.min(size, pos));
+    }
+
+    /** Поиск элемента по значению
+     *
+     * Если модель построена, ищет первый элемент с ключем в окне вокруг
+     * предсказанной позиции, иначе - бинарным поиском по всему массиву.
+     *
+     * @param key - ключ
+     * @return : "NOT_FOUND" - искомый элемент отсутствует
+     *           "X", X - индекс первого элемента с ключем key
+     */
+    @Override
+    public String find(int key) {
+        if ( !model_valid ) {
+            if ( size == 0 || ++finds_since_write < (size >> MODEL_READ_SHIFT) )
+                return super.find(key);
+            build_model();
+        }
+        if ( key < seg_keys[0] ) return "NOT FOUND";
+        // отрезок - последний с первым ключем не больше заданного
+        int left = 0;
+        int right = num_of_segments - 1;
+        while ( left < right ) {
+            int mid = (left + right + 1) >>> 1;
+            if ( seg_keys[mid] <= key )
+                left = mid;
+            else
+                right = mid - 1;
+        }
+        int pos = predict(left, key);
+        // первый элемент с ключем не меньше заданного в окне
+        int left_index = Math.max(0, pos - max_error);
+        int right_index = Math.min(size, pos + max_error + 1);
+        if ( left_index >= right_index ) return "NOT FOUND";
+        while ( left_index < right_index ) {
+            int mid = (left_index + right_index) >>> 1;
+            if ( keys[mid] < key )
+                left_index = mid + 1;
+            else
+                right_index = mid;
+        }
+        if ( left_index < size && keys[left_index] == key )
+            return String.valueOf(left_index);
+        return "NOT FOUND";
+    }
+
+    /** Получить текущее состояние массива.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        String state = super.get_state() + "  error_bound = "+error_bound;
+        if ( !model_valid ) return state + "  model = stale";
+        return state + "  model_segments = "+num_of_segments
+                + "  model_bytes = "+(long)num_of_segments*SEGMENT_BYTES
+                + "  max_error = "+max_error
+                + "  build_time_ms = "+build_time/1000000;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "sorted array (learned index)";
+    }
+}
@@ -0,0 +1,464 @@
+package javarealization;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** Отсортированный массив в отображенном в память файле.
+ *
+ * Тот же отсортированный массив (по неубыванию ключей, с повтором
+ * элементов), но ключи и значения лежат не в массивах кучи, а в файле,
+ * отображенном в память (FileChannel.map). Поэтому после перезапуска
+ * программы массив не нужно строить заново: конструктор отображает
+ * существующий файл, и структура сразу готова к поиску без чтения и
+ * разбора данных - страницы подгружаются ОС при первом обращении.
+ *
+ * Формат файла (порядок байт - little-endian):
+ *   заголовок HEADER_BYTES байт: MAGIC, размер массива, емкость;
+ *   ключи - емкость * 4 байт;
+ *   значения - емкость * 4 байт.
+ * Ключи и значения отображаются двумя буферами, так что каждая область
+ * может быть до 2 Гб (до MAX_CAPACITY элементов), а весь файл - вдвое
+ * больше. При переполнении файл удлиняется в extention_multiplier раз,
+ * а область значений переносится за новую область ключей.
+ *
+ * Записи попадают в страницы ОС и сбрасываются на диск ОС в любой момент.
+ * sync() принудительно записывает на диск сначала данные, затем
+ * заголовок (force()), после чего файл гарантированно согласован.
+ * close() только снимает отображение, не дожидаясь записи на диск.
+ * После close() любые операции со структурой бросают IllegalStateException.
+ *
+ * @author Akropon
+ */
+public class SortedArrayMapped implements Struct, AutoCloseable{
+    protected String path;              // путь к файлу
+    protected FileChannel channel;      // канал файла
+    protected MappedByteBuffer header;  // отображение заголовка
+    protected MappedByteBuffer keys_map;    // отображение области ключей
+    protected MappedByteBuffer values_map;  // отображение области значений
+    protected IntBuffer keys;           // ключи элементов
+    protected IntBuffer values;         // значения элементов
+    protected int size;                 // текущее кол-во элементов
+    protected int max_available_size;   // емкость областей ключей и значений
+    protected float extention_multiplier; // множитель расширения файла
+    protected boolean opened_existing;  // файл был открыт, а не создан
+
+    // признак файла отсортированного массива ("SAM1")
+    protected static final int MAGIC = 0x53414D31;
+    // смещения полей заголовка
+    protected static final int MAGIC_OFFSET = 0;
+    protected static final int SIZE_OFFSET = 4;
+    protected static final int CAPACITY_OFFSET = 8;
+    protected static final int HEADER_BYTES = 16;
+    // предельная емкость: область не может быть больше Integer.MAX_VALUE байт
+    protected static final int MAX_CAPACITY = Integer.MAX_VALUE / 4;
+    // кол-во элементов, переносимых за один шаг сдвига
+    protected static final int MOVE_CHUNK = 1 << 12;
+
+    // перенос строк. Так как он зависит от системы, определяем его во время запуска.
+    protected static final String NL = System.getProperty("line.separator");
+
+    /** Конструктор
+     *
+     * Если файл существует и не пуст, отображает его (размер и емкость
+     * берутся из заголовка, max_available_size игнорируется), иначе
+     * создает файл с пустым массивом заданной емкости.
+     *
+     * @param path - путь к файлу
+     * @param max_available_size > 0 - емкость нового файла
+     * @param extention_multiplier > 1 - множитель расширения файла
+     * @throws IOException, если файл не открывается или имеет чужой формат
+     */
+    public SortedArrayMapped(String path, int max_available_size,
+                             float extention_multiplier) throws IOException {
+        if ( max_available_size < 1 ) max_available_size = 1;
+        if ( max_available_size > MAX_CAPACITY ) max_available_size = MAX_CAPACITY;
+        if ( extention_multiplier <= 1 ) extention_multiplier = 1.25f;
+        this.path = path;
+        this.extention_multiplier = extention_multiplier;
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            this.channel = file.getChannel();
+            this.opened_existing = channel.size() > 0;
+            if ( opened_existing ) {
+                if ( channel.size() < HEADER_BYTES )
+                    throw new IOException("not a sorted array file: "+path);
+                this.header = map(0, HEADER_BYTES);
+                int capacity = header.getInt(CAPACITY_OFFSET);
+                int stored_size = header.getInt(SIZE_OFFSET);
+                if ( header.getInt(MAGIC_OFFSET) != MAGIC
+                     || capacity < 1 || capacity > MAX_CAPACITY
+                     || stored_size < 0 || stored_size > capacity
+                     || channel.size() < HEADER_BYTES + 8L * capacity )
+                    throw new IOException("not a sorted array file: "+path);
+                this.size = stored_size;
+                map_data(capacity);
+            }
+            else {
+                this.header = map(0, HEADER_BYTES);
+                this.size = 0;
+                map_data(max_available_size);
+                header.putInt(MAGIC_OFFSET, MAGIC);
+                header.putInt(CAPACITY_OFFSET, max_available_size);
+                header.putInt(SIZE_OFFSET, 0);
+            }
+        } catch (IOException | RuntimeException exc) {
+            close();
+            file.close();
+            throw exc;
+        }
+    }
+
+    /** Отображение участка файла
+     *
+     * Файл при необходимости удлиняется.
+     *
+     * @param position - смещение участка в файле
+     * @param bytes - размер участка
+     * @return буфер с порядком байт little-endian
+     * @throws IOException, если отобразить не удалось
+     */
+    protected MappedByteBuffer map(long position, int bytes) throws IOException {
+        MappedByteBuffer res = channel.map(FileChannel.MapMode.READ_WRITE, position, bytes);
+        res.order(ByteOrder.LITTLE_ENDIAN);
+        return res;
+    }
+
+    /** Отображение областей ключей и значений заданной емкости
+     *
+     * @param capacity - емкость
+     * @throws IOException, если отобразить не удалось
+     */
+    protected void map_data(int capacity) throws IOException {
+        keys_map = map(HEADER_BYTES, capacity * 4);
+        values_map = map(HEADER_BYTES + 4L * capacity, capacity * 4);
+        keys = keys_map.asIntBuffer();
+        values = values_map.asIntBuffer();
+        max_available_size = capacity;
+    }
+
+    /** Снятие отображения и закрытие файла
+     *
+     * Повторный вызов ничего не делает.
+     */
+    @Override
+    public void close() {
+        if ( channel == null ) return;
+        keys = null;
+        values = null;
+        HTableOffHeap.free(keys_map);
+        HTableOffHeap.free(values_map);
+        HTableOffHeap.free(header);
+        keys_map = null;
+        values_map = null;
+        header = null;
+        try {
+            channel.close();
+        } catch (IOException exc) {
+            // отображение уже снято, данные остались в страницах ОС
+        }
+        channel = null;
+    }
+
+    /** Проверка, что файл еще не закрыт
+     */
+    protected void check_open() {
+        if ( channel == null )
+            throw new IllegalStateException("mapped array is closed");
+    }
+
+    /** Принудительная запись массива на диск
+     *
+     * Сначала данные, затем заголовок. После возврата файл на диске
+     * совпадает с массивом в памяти.
+     *
+     * @return "SUCCESS"
+     */
+    public String sync() {
+        check_open();
+        keys_map.force();
+        values_map.force();
+        header.force();
+        return "SUCCESS";
+    }
+
+    /** Изменение кол-ва элементов с записью в заголовок
+     *
+     * @param new_size - новое кол-во элементов
+     */
+    protected void set_size(int new_size) {
+        size = new_size;
+        header.putInt(SIZE_OFFSET, new_size);
+    }
+
+    /** Перенос участка буфера
+     *
+     * Участки могут перекрываться: перенос идет кусками через массив
+     * кучи, в направлении, при котором куски не затирают еще не
+     * перенесенные данные.
+     *
+     * @param buffer - буфер
+     * @param from - начало исходного участка
+     * @param to - начало участка назначения
+     * @param count - кол-во элементов
+     */
+    protected static void move(IntBuffer buffer, int from, int to, int count) {
+        move(buffer, from, buffer, to, count, to > from);
+    }
+
+    /** Перенос участка одного буфера в другой
+     *
+     * Буферы могут отображать перекрывающиеся участки файла, поэтому
+     * направление переноса задается явно.
+     *
+     * @param src - исходный буфер
+     * @param from - начало исходного участка
+     * @param dst - буфер назначения
+     * @param to - начало участка назначения
+     * @param count - кол-во элементов
+     * @param backward - true - переносить с конца (участок назначения
+     * лежит в файле правее исходного)
+     */
+    protected static void move(IntBuffer src, int from, IntBuffer dst, int to, int count,
+                               boolean backward) {
+        if ( count <= 0 ) return;
+        int[] chunk = new int[Math.min(count, MOVE_CHUNK)];
+        if ( !backward ) {
+            for ( int done=0; done<count; done += chunk.length ) {
+                int length = Math.min(chunk.length, count - done);
+                src.get(from + done, chunk, 0, length);
+                dst.put(to + done, chunk, 0, length);
+            }
+        }
+        else {
+            for ( int left=count; left>0; left -= chunk.length ) {
+                int length = Math.min(chunk.length, left);
+                src.get(from + left - length, chunk, 0, length);
+                dst.put(to + left - length, chunk, 0, length);
+            }
+        }
+    }
+
+    /** Расширение файла
+     *
+     * Область ключей продлевается на месте, область значений переносится
+     * за новую область ключей. Значения переносятся с конца: новая область
+     * может перекрывать старую.
+     *
+     * @throws IOException, если отобразить не удалось
+     */
+    protected void grow() throws IOException {
+        if ( max_available_size >= MAX_CAPACITY )
+            throw new IllegalStateException("mapped array is full");
+        int new_capacity = (int)Math.min(MAX_CAPACITY,
+                Math.max(max_available_size + 1L,
+                         (long)(max_available_size * (double)extention_multiplier)));
+        MappedByteBuffer old_keys_map = keys_map;
+        MappedByteBuffer old_values_map = values_map;
+        IntBuffer old_values = values;
+        keys_map = map(HEADER_BYTES, new_capacity * 4);
+        values_map = map(HEADER_BYTES + 4L * new_capacity, new_capacity * 4);
+        keys = keys_map.asIntBuffer();
+        values = values_map.asIntBuffer();
+        // новая область значений лежит в файле правее старой
+        move(old_values, 0, values, 0, size, true);
+        max_available_size = new_capacity;
+        header.putInt(CAPACITY_OFFSET, new_capacity);
+        HTableOffHeap.free(old_keys_map);
+        HTableOffHeap.free(old_values_map);
+    }
+
+    /** Индекс первого элемента с ключем больше заданного
+     *
+     * @param key - ключ
+     * @return индекс (size, если такого нет)
+     */
+    protected int upper_bound(int key) {
+        int left_index = 0;
+        int right_index = size;
+        while ( left_index < right_index ) {
+          int mid = (right_index+left_index) >>> 1;
+          if ( key < keys.get(mid) )
+            right_index = mid;
+          else
+            left_index = mid+1;
+        }
+        return left_index;
+    }
+
+    /** Возвращает элемент по заданному индексу
+     *
+     * @param index - индекс
+     * @return "FAIL" - если был введен недопустимый индекс
+     *         "key: X, value: Y", где X - ключ элемента, Y - соотв. значение
+     */
+    @Override
+    public String get_at(int index) {
+        check_open();
+        if ( index < 0 || index >= size ) return "FAIL";
+        return "key: "+keys.get(index)+", value: "+values.get(index);
+    }
+
+    /** Добавляет элемент в массив.
+     *
+     * Элемент встает после элементов с тем же ключем. При переполнении
+     * файл расширяется.
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        check_open();
+        if ( size >= max_available_size ) {
+            try {
+                grow();
+            } catch (IOException exc) {
+                throw new IllegalStateException("mapped array can not grow: "+exc.getMessage());
+            }
+        }
+        int index = upper_bound(key);
+        move(keys, index, index+1, size-index);
+        move(values, index, index+1, size-index);
+        keys.put(index, key);
+        values.put(index, value);
+        set_size(size+1);
+    }
+
+    /** Удаляет элемент по заданному индексу.
+     *
+     * @param index - индекс
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int index) {
+        check_open();
+        if (index < 0 || index >= size) return "FAIL";
+        move(keys, index+1, index, size-index-1);
+        move(values, index+1, index, size-index-1);
+        set_size(size-1);
+        return "SUCCESS";
+    }
+
+    /** Поиск элемента по значению
+     *
+     * @param key - ключ
+     * @return : "NOT_FOUND" - искомый элемент отсутствует
+     *           "X", X - индекс первого найденного элемента с ключем key
+     */
+    @Override
+    public String find(int key) {
+        check_open();
+        int left_index = 0;
+        int right_index = size-1;
+        while ( left_index <= right_index ) {
+          int mid = (right_index+left_index) >>> 1;
+          int mid_key = keys.get(mid);
+          if ( key==mid_key )
+            return String.valueOf(mid);
+          if ( key<mid_key )
+            right_index = mid-1;  // ищем в левой половине
+          else
+            left_index = mid+1;  // ищем в правой половине
+        }
+        return  "NOT FOUND"; // элемент не найден
+    }
+
+    /** Получить элемент с максимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - макс. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_max() {
+        check_open();
+        if ( size > 0 )
+            return "key: "+keys.get(size-1)+", value: "+values.get(size-1);
+        else
+            return "NOT EXISTS";
+    }
+
+    /** Получить элемент с минимальным ключем
+     *
+     * @return "NOT EXISTS" - такого нет
+     *         "key: X, value: Y", где X - мин. ключ, Y - соотв. значение
+     */
+    @Override
+    public String get_min() {
+        check_open();
+        if ( size > 0 )
+            return "key: "+keys.get(0)+", value: "+values.get(0);
+        else
+            return "NOT EXISTS";
+    }
+
+    /** Получить текстовое изображение массива.
+     *
+     * @return строка ключей в порядке хранения
+     */
+    @Override
+    public String get_data() {
+        check_open();
+        if ( size == 0 ) return "array is empty";
+        StringBuilder stringB = new StringBuilder();
+        for ( int i=0; i<size; i++) {
+            stringB.append(keys.get(i));
+            stringB.append(' ');
+        }
+        return stringB.toString();
+    }
+
+    /** Получить упрощенное текстовое изображение массива.
+     *
+     * аналог get_data()
+     *
+     * @return get_data()
+     */
+    @Override
+    public String get_data_simple() {
+        return get_data();
+    }
+
+    /** Получить текущее состояние массива.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        check_open();
+        return "size = "+size+"  max_available_size = "+max_available_size
+                + "  extention_multiplier = "+extention_multiplier
+                + "  file = "+path
+                + "  file_bytes = "+(HEADER_BYTES + 8L * max_available_size)
+                + "  opened = "+(opened_existing ? "existing" : "new");
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "sorted array (memory-mapped file)";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data();
+    }
+}
@@ -0,0 +1,209 @@
+package javarealization;
+
+/** Расширяющееся (splay) двоичное дерево поиска.
+ *
+ * То же двоичное дерево поиска (с повтором ключей, ссылками на отцов и
+ * кол-вами узлов поддеревьев), которое перестраивается при обращениях:
+ * узел, к которому обратились, поворотами поднимается в корень (splay).
+ * Часто запрашиваемые ключи оказываются у корня, поэтому при неравномерных
+ * запросах (небольшая доля ключей получает большую часть find) поиск
+ * короче, чем в сбалансированном дереве. Амортизированная стоимость
+ * операции - O(log n) при любом порядке запросов.
+ *
+ * add и del всегда поднимают вставленный узел (отца исключенного узла).
+ * find поднимает найденный узел (при промахе - последний пройденный)
+ * только на каждом splay_period-ом поиске: поиск без подъема ничего не
+ * пишет в дерево, а при устойчивом распределении запросов частые ключи
+ * все равно быстро оказываются у корня.
+ *
+ * Элементы с равными ключами при поворотах могут оказаться по обе
+ * стороны друг от друга; find и delete находят любой из них.
+ *
+ * @author Akropon
+ */
+public class SplayBinSearchTree extends BinSearchTree{
+    protected int splay_period;     // подъем на каждом splay_period-ом поиске
+    protected int finds_to_splay;   // кол-во поисков до следующего подъема
+    protected long splays;          // кол-во выполненных подъемов
+    protected long rotations;       // кол-во выполненных поворотов
+
+    /** Конструктор.
+     *
+     * Создает пустое дерево, поднимающее узел при каждом поиске.
+     */
+    public SplayBinSearchTree() {
+        this(1);
+    }
+
+    /** Конструктор.
+     *
+     * Создает пустое дерево.
+     *
+     * @param splay_period >= 1 - find поднимает узел на каждом
+     * splay_period-ом поиске
+     */
+    public SplayBinSearchTree(int splay_period) {
+        super();
+        if ( splay_period < 1 ) splay_period = 1;
+        this.splay_period = splay_period;
+        this.finds_to_splay = splay_period;
+        this.splays = 0;
+        this.rotations = 0;
+    }
+
+    /** Поиск по ключу.
+     *
+     * На каждом splay_period-ом поиске найденный узел (при промахе -
+     * последний пройденный) поднимается в корень.
+     *
+     * @param key - ключ
+     * @return "key: X, value: Y" - найден,
+     *         "NOT FOUND" - не найден
+     */
+    @Override
+    public String find(int key) {
+        Node last = null;
+        Node node = root;
+        while ( node != null && node.key != key ) {
+            last = node;
+            if ( key > node.key )
+                node = node.right;
+            else // key < node.key
+                node = node.left;
+        }
+        String result = node == null ? "NOT FOUND"
+                                     : "key: "+node.key+", value: "+node.value;
+        if ( --finds_to_splay == 0 ) {
+            finds_to_splay = splay_period;
+            splay(node != null ? node : last);
+        }
+        return result;
+    }
+
+    /** Добавление нового элемента с заданным ключем и значением
+     *
+     * Вставленный узел поднимается в корень.
+     *
+     * @param key - ключ
+     * @param value - значение
+     */
+    @Override
+    public void add(int key, int value) {
+        splay(insert_node(key, value));
+    }
+
+    /** Удаление элемента по ключу
+     *
+     * Отец исключенного узла поднимается в корень.
+     *
+     * @param key - ключ
+     * @return "SUCCESS" - удален, "FAIL" - не удален
+     */
+    @Override
+    public String delete(int key) {
+        Node node = find_node(key);
+        if ( node == null ) return "FAIL";
+        splay(remove_node(node));
+        return "SUCCESS";
+    }
+
+    /** Подъем узла в корень
+     *
+     * Пока у узла есть дед, выполняются двойные повороты: если узел и
+     * отец - сыновья одной стороны (zig-zig), сначала поворачивается
+     * отец, иначе (zig-zag) дважды узел. Последний одиночный поворот
+     * (zig) - если отец узла - корень.
+     *
+     * @param node - узел (null - ничего не делать)
+     */
+    protected void splay(Node node) {
+        if ( node == null || node == root ) return;
+        while ( node.father != null ) {
+            Node father = node.father;
+            Node grandfather = father.father;
+            if ( grandfather == null )
+                rotate_up(node);
+            else if ( (node == father.left) == (father == grandfather.left) ) {
+                rotate_up(father);
+                rotate_up(node);
+            }
+            else {
+                rotate_up(node);
+                rotate_up(node);
+            }
+        }
+        splays++;
+    }
+
+    /** Поворот, поднимающий узел на место его отца
+     *
+     * Отец становится сыном узла с противоположной стороны, внутреннее
+     * поддерево узла переходит к отцу. Кол-ва узлов пересчитываются по
+     * старым кол-вам узла и отца и кол-ву внутреннего поддерева, без
+     * чтения другого сына отца (лишний промах кэша на каждом повороте).
+     *
+     * @param node - узел (не корень)
+     */
+    protected void rotate_up(Node node) {
+        Node father = node.father;
+        Node inner;
+        if ( node == father.left ) {
+            inner = node.right;
+            father.left = inner;
+            replace_child(father, node);
+            node.right = father;
+        }
+        else {
+            inner = node.left;
+            father.right = inner;
+            replace_child(father, node);
+            node.left = father;
+        }
+        if ( inner != null )
+            inner.father = father;
+        father.father = node;
+        int father_size = father.size;
+        father.size = father_size - node.size + size(inner);
+        node.size = father_size;
+        rotations++;
+    }
+
+    /** Получить текущее состояние дерева.
+     *
+     * Высота считается обходом всего дерева.
+     *
+     * @return строка состояния структуры
+     */
+    @Override
+    public String get_state() {
+        return "size = "+size(root)+"  height = "+get_depth()
+                + "  splay_period = "+splay_period
+                + "  splays = "+splays+"  rotations = "+rotations;
+    }
+
+    /** Получить тип структуры
+     *
+     * @return тип структуры
+     */
+    @Override
+    public String get_struct_type() {
+        return "binary search tree (splay)";
+    }
+
+    /** Метод получения полной информации по структуре.
+    *
+    * Выводит тип структуры, параметры и содержимое структуры
+    * в упрощенном текстовом виде.
+    *
+    * @return ответ метода
+    */
+    @Override
+    public String print() {
+        return  "STRUCTURE TYPE:" + NL +
+                get_struct_type() + NL +
+                "STATE:" + NL +
+                get_state() + NL +
+                "DATA:" + NL +
+                get_data_simple();
+    }
+}
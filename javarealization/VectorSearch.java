@@ -0,0 +1,144 @@
+package javarealization;
+
+/** Поиск в отсортированном массиве ключей с блочным сравнением.
+ *
+ * Бинарный поиск сужает диапазон до блока из не больше чем BLOCK_SIZE
+ * ключей, после чего блок просматривается целиком: считается кол-во
+ * ключей блока меньше (не больше) заданного. Так как ключи отсортированы,
+ * это кол-во и есть смещение искомой позиции от начала блока. Последние
+ * шаги бинарного поиска с плохо предсказуемыми ветвлениями заменяются
+ * несколькими сравнениями по 8-16 ключей за инструкцию.
+ *
+ * Векторный просмотр (VectorBlockScan) использует модуль
+ * jdk.incubator.vector, лежит в отдельном каталоге исходников vector/ и
+ * подключается через отражение: если класс не собран или модуль не
+ * добавлен при запуске (--add-modules jdk.incubator.vector), используется
+ * скалярный просмотр. Поэтому основная сборка модуля не требует.
+ *
+ * @author Akropon
+ */
+public final class VectorSearch {
+    // наибольший размер блока, просматриваемого целиком
+    public static final int BLOCK_SIZE = 128;
+    // просмотр блока: векторный, если модуль доступен, иначе скалярный
+    protected static final BlockScan SCAN = load_scan();
+
+    private VectorSearch() {}
+
+    /** Выбор просмотра блока
+     *
+     * @return векторный просмотр, если модуль jdk.incubator.vector
+     * доступен, иначе скалярный
+     */
+    protected static BlockScan load_scan() {
+        try {
+            if ( ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() )
+                return (BlockScan) Class.forName("javarealization.VectorBlockScan")
+                                        .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError exc) {
+            // модуль есть, но векторный класс не загрузился - скалярный просмотр
+        }
+        return new BlockScan();
+    }
+
+    /** Используется ли векторный просмотр
+     *
+     * @return true - векторный, false - скалярный
+     */
+    public static boolean is_vectorized() {
+        return !SCAN.getClass().equals(BlockScan.class);
+    }
+
+    /** Описание просмотра блока
+     *
+     * @return строка вида "vector (16 lanes)" или "scalar"
+     */
+    public static String get_scan_type() {
+        return SCAN.get_type();
+    }
+
+    /** Индекс первого ключа не меньше заданного
+     *
+     * @param keys - ключи по неубыванию
+     * @param size - кол-во ключей
+     * @param key - ключ
+     * @return индекс (size, если такого нет)
+     */
+    public static int lower_bound(int[] keys, int size, int key) {
+        int left_index = 0;
+        int right_index = size;
+        while ( right_index - left_index > BLOCK_SIZE ) {
+            int mid = (right_index+left_index) >>> 1;
+            if ( keys[mid] < key )
+                left_index = mid+1;
+            else
+                right_index = mid;
+        }
+        return left_index + SCAN.count_less(keys, left_index, right_index, key);
+    }
+
+    /** Индекс первого ключа больше заданного
+     *
+     * @param keys - ключи по неубыванию
+     * @param size - кол-во ключей
+     * @param key - ключ
+     * @return индекс (size, если такого нет)
+     */
+    public static int upper_bound(int[] keys, int size, int key) {
+        int left_index = 0;
+        int right_index = size;
+        while ( right_index - left_index > BLOCK_SIZE ) {
+            int mid = (right_index+left_index) >>> 1;
+            if ( key < keys[mid] )
+                right_index = mid;
+            else
+                left_index = mid+1;
+        }
+        return left_index + SCAN.count_not_greater(keys, left_index, right_index, key);
+    }
+
+    /** Скалярный просмотр блока
+     *
+     * Базовый класс для векторного просмотра.
+     *
+     * @author Akropon
+     */
+    protected static class BlockScan {
+
+        /** Кол-во ключей блока меньше заданного
+         *
+         * @param keys - ключи по неубыванию
+         * @param from - начало блока
+         * @param to - конец блока (не включительно)
+         * @param key - ключ
+         * @return кол-во ключей
+         */
+        protected int count_less(int[] keys, int from, int to, int key) {
+            int i = from;
+            while ( i < to && keys[i] < key ) i++;
+            return i - from;
+        }
+
+        /** Кол-во ключей блока не больше заданного
+         *
+         * @param keys - ключи по неубыванию
+         * @param from - начало блока
+         * @param to - конец блока (не включительно)
+         * @param key - ключ
+         * @return кол-во ключей
+         */
+        protected int count_not_greater(int[] keys, int from, int to, int key) {
+            int i = from;
+            while ( i < to && keys[i] <= key ) i++;
+            return i - from;
+        }
+
+        /** Описание просмотра
+         *
+         * @return описание
+         */
+        protected String get_type() {
+            return "scalar";
+        }
+    }
+}
@@ -1,10 +1,30 @@
 package time_testing;
 
+import java.io.File;
 import java.io.FileWriter;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import javarealization.HTableChain;
+import javarealization.HTableChainPooled;
+import javarealization.HTableConcurrent;
+import javarealization.HTableCuckoo;
+import javarealization.HTableFrozen;
+import javarealization.HTableOffHeap;
+import javarealization.HTableRobinHood;
+import javarealization.LSMTree;
+import javarealization.BalancedBinSearchTree;
 import javarealization.BinSearchTree;
+import javarealization.BinSearchTreeArena;
+import javarealization.BPlusTree;
+import javarealization.Executor;
 import javarealization.SortedArray;
+import javarealization.SortedArrayConcurrent;
+import javarealization.SortedArrayGapped;
+import javarealization.SortedArrayLearned;
+import javarealization.SortedArrayMapped;
+import javarealization.SplayBinSearchTree;
 import javarealization.Struct;
+import javarealization.VectorSearch;
 
 /** Измерятор времени выполнения основных методов структур
  * 
@@ -24,6 +44,21 @@ public class TimeTester {
             
             // Добавить сюда все необходимые тайм-тесты
             timetest_add();
+            //timetest_hash_tables();
+            //timetest_hash_memory();
+            //timetest_hash_freeze();
+            //timetest_sorted_arrays();
+            //timetest_sa_search_layout();
+            //timetest_sa_learned();
+            //timetest_sa_vector();
+            //timetest_lsm();
+            //timetest_sa_mapped();
+            //timetest_sa_concurrent();
+            //timetest_bst_balanced();
+            //timetest_bst_rank();
+            //timetest_bst_arena();
+            //timetest_bplus_tree();
+            //timetest_bst_splay();
             
             close_reporting();
             System.out.println("PRORAM WAS CORRECTLY FINISHED");
@@ -341,12 +376,12 @@ public class TimeTester {
     static void timetest_find()  throws Exception {
         int N = 1000;
         /** time_decs[x][y]
-         *  x - struct: 0 - bst, 1 - sa, 2 - ht
+         *  x - struct: 0 - bst, 1 - sa, 2 - ht, 3 - ck
          *  y - time_results: i - time for n=N*(i+1);
          * 
          */
-        long[][] time_decs = new long[3][10];
-        Struct []structs = null;       // struct: 0 - bst, 1 - sa, 2 - ht
+        long[][] time_decs = new long[4][10];
+        Struct []structs = null;       // struct: 0 - bst, 1 - sa, 2 - ht, 3 - ck
         
         out.write("\n\n");
         out.write("/===========================================/\n");
@@ -355,18 +390,20 @@ public class TimeTester {
         
         for (int rep=0; rep<2; rep++) {
             for(int i=0; i<10; i++) {
-                structs = new Struct[3];
+                structs = new Struct[4];
                 reset_structs(structs, null, N, N*(i+1));
-                for (int s=0; s<3; s++) 
+                structs[3] = new HTableCuckoo(N);
+                for (int j=0; j<N*(i+1); j++) structs[3].add(j,j);
+                for (int s=0; s<4; s++) 
                     time_decs[s][i] = timetest_find_rand_test(structs[s], N*(i+1));
             }
         }
         
         out.write("\n== RAND TEST ==\n");
-        out.write("\n  [i] [N] [result for BST] [result for SA] [result for HT]\n");
+        out.write("\n  [i] [N] [result for BST] [result for SA] [result for HT] [result for CK]\n");
         for (int i=0; i<10; i++) {
             out.write("  "+(i+1)+"  "+N*(i+1)+"  ");
-            for (int s=0; s<3; s++) 
+            for (int s=0; s<4; s++) 
                 out.write(time_decs[s][i]/1000+"u  ");  // nano to micro seconds
             out.write("\n");
         }
@@ -516,29 +553,32 @@ public class TimeTester {
     static void timetest_common()  throws Exception {
         int N = 1000;
         /** time_decs[x][y][z]
-         *  x - struct: 0 - bst, 1 - sa, 2 - ht
+         *  x - struct: 0 - bst, 1 - sa, 2 - ht, 3 - ck
          *  y - scen: 0 - dynamic, 1 - mmf, 2 - uniform
          *  z - time_results: i - time for n=N*(i+1);
          * 
          */
-        long[][][] time_decs = new long[3][3][10];
-        Struct []structs = new Struct[3];       // struct: 0 - bst, 1 - sa, 2 - ht
+        long[][][] time_decs = new long[4][3][10];
+        Struct []structs = new Struct[4];       // struct: 0 - bst, 1 - sa, 2 - ht, 3 - ck
         
         for (int i=0; i<10; i++) {
             structs[0] = new BinSearchTree();
             structs[1] = new SortedArray(N, 2);
             structs[2] = new HTableChain(N);
-            for (int s=0; s<3; s++)
+            structs[3] = new HTableCuckoo(N);
+            for (int s=0; s<4; s++)
                 time_decs[s][0][i] = timetest_common_DYNAMIC(structs[s], (i+1)*N);
             structs[0] = new BinSearchTree();
             structs[1] = new SortedArray(N, 2);
             structs[2] = new HTableChain(N);
-            for (int s=0; s<3; s++)
+            structs[3] = new HTableCuckoo(N);
+            for (int s=0; s<4; s++)
                 time_decs[s][1][i] = timetest_common_MMF(structs[s], (i+1)*N);
             structs[0] = new BinSearchTree();
             structs[1] = new SortedArray(N, 2);
             structs[2] = new HTableChain(N);
-            for (int s=0; s<3; s++)
+            structs[3] = new HTableCuckoo(N);
+            for (int s=0; s<4; s++)
                 time_decs[s][2][i] = timetest_common_UNIFORM(structs[s], (i+1)*N);
             
             
@@ -551,26 +591,26 @@ public class TimeTester {
         out.write("/===========================================/\n\n");
         
         out.write("\n\n== TEST_DYNAMIC ==\n");
-        out.write("\n  [i] [N] [result for BST] [result for SA] [result for HT]\n");
+        out.write("\n  [i] [N] [result for BST] [result for SA] [result for HT] [result for CK]\n");
         for (int i=0; i<10; i++) {
             out.write("  "+(i+1)+"  "+N*(i+1)+"  ");
-            for (int s=0; s<3; s++) 
+            for (int s=0; s<4; s++) 
                 out.write(time_decs[s][0][i]/1000+"u  ");  // in microsecs
             out.write("\n");
         }
         out.write("\n\n== TEST_MMF ==\n");
-        out.write("\n  [i] [N] [result for BST] [result for SA] [result for HT]\n");
+        out.write("\n  [i] [N] [result for BST] [result for SA] [result for HT] [result for CK]\n");
         for (int i=0; i<10; i++) {
             out.write("  "+(i+1)+"  "+N*(i+1)+"  ");
-            for (int s=0; s<3; s++) 
+            for (int s=0; s<4; s++) 
                 out.write(time_decs[s][1][i]/1000+"u  ");  // in microsecs
             out.write("\n");
         }
         out.write("\n\n== TEST_UNIFORM ==\n");
-        out.write("\n  [i] [N] [result for BST] [result for SA] [result for HT]\n");
+        out.write("\n  [i] [N] [result for BST] [result for SA] [result for HT] [result for CK]\n");
         for (int i=0; i<10; i++) {
             out.write("  "+(i+1)+"  "+N*(i+1)+"  ");
-            for (int s=0; s<3; s++) 
+            for (int s=0; s<4; s++) 
                 out.write(time_decs[s][2][i]/1000+"u  ");  // in microsecs
             out.write("\n");
         }
@@ -647,4 +687,758 @@ public class TimeTester {
         stop = System.nanoTime();
         return stop-start;
     }
+    
+    // Сравнение хэш-таблиц на ADD, FIND и DEL
+    static void timetest_hash_tables()  throws Exception {
+        int N = 10000;
+        /** time_decs[x][y][z]
+         *  x - struct: см. HASH_TABLE_NAMES
+         *  y - test:   0 - add, 1 - find, 2 - del
+         *  z - time_results: i - time for n=N*(i+1);
+         * 
+         */
+        long[][][] time_decs = new long[HASH_TABLE_NAMES.length][3][10];
+        Struct []structs = null;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/=========== TIMETEST_HASH_TABLES ==========/\n");
+        out.write("/===========================================/\n\n");
+        
+        for (int rep=0; rep<2; rep++) {
+            for(int i=0; i<10; i++) {
+                structs = new_hash_tables(N);
+                int[] keys = get_mixed_array(N*(i+1));
+                for (int s=0; s<structs.length; s++) {
+                    time_decs[s][0][i] = timetest_hash_add_test(structs[s], keys);
+                    time_decs[s][1][i] = timetest_find_rand_test(structs[s], N*(i+1));
+                    time_decs[s][2][i] = timetest_del_rand_test(structs[s], N*(i+1));
+                    close_struct(structs[s]);
+                }
+            }
+        }
+        
+        String[] test_names = {"ADD", "FIND", "DEL"};
+        for (int t=0; t<3; t++) {
+            out.write("\n== "+test_names[t]+" TEST ==\n");
+            out.write("\n  [i] [N]");
+            for (int s=0; s<HASH_TABLE_NAMES.length; s++)
+                out.write(" [result for "+HASH_TABLE_NAMES[s]+"]");
+            out.write("\n");
+            for (int i=0; i<10; i++) {
+                out.write("  "+(i+1)+"  "+N*(i+1)+"  ");
+                for (int s=0; s<HASH_TABLE_NAMES.length; s++) 
+                    out.write(time_decs[s][t][i]/1000+"u  ");  // nano to micro seconds
+                out.write("\n");
+            }
+        }
+    }
+    // имена сравниваемых хэш-таблиц, в порядке new_hash_tables()
+    static final String[] HASH_TABLE_NAMES = {"HT", "HTP", "OA", "OH", "CHT", "CK"};
+    static Struct[] new_hash_tables(int table_size) {
+        return new Struct[] {
+            new HTableChain(table_size),
+            new HTableChainPooled(table_size),
+            new HTableRobinHood(table_size),
+            new HTableOffHeap(table_size),
+            new HTableConcurrent(table_size),
+            new HTableCuckoo(table_size)
+        };
+    }
+    // освобождение ресурсов структуры вне кучи, если она их держит
+    static void close_struct(Struct struct) throws Exception {
+        if ( struct instanceof AutoCloseable )
+            ((AutoCloseable) struct).close();
+    }
+    static long timetest_hash_add_test(Struct struct, int[] keys) {
+        long start = System.nanoTime();
+        for (int i=0; i<keys.length; i++) {
+            struct.add(keys[i], keys[i]);
+        }
+        long stop = System.nanoTime();
+        return stop-start;
+    }
+    
+    // Замер занятой памяти кучи хэш-таблицами
+    static void timetest_hash_memory()  throws Exception {
+        int N = 1000000;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/=========== TIMETEST_HASH_MEMORY ==========/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("\n  // [heap] - heap growth after adding N elements\n");
+        out.write("\n  [struct] [N] [heap] [state]\n");
+        for (int s=0; s<HASH_TABLE_NAMES.length; s++) {
+            long before = used_heap();
+            Struct struct = new_hash_tables(1000)[s];
+            for (int i=0; i<N; i++) struct.add(i, i);
+            long after = used_heap();
+            out.write("  "+HASH_TABLE_NAMES[s]+"  "+N+"  "+(after-before)/1024+"K  "
+                    +struct.get_state()+"\n");
+            close_struct(struct);
+        }
+    }
+    // занятая память кучи после сборки мусора
+    static long used_heap() throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    // Замер заморозки хэш-таблицы: время постройки, поиск и память
+    static void timetest_hash_freeze()  throws Exception {
+        int N = 1000000;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/=========== TIMETEST_HASH_FREEZE ==========/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("\n  // [freeze] - build time of the frozen table\n");
+        out.write("  // [find HT], [find FZ] - time of N random finds\n");
+        out.write("  // [heap HT], [heap FZ] - heap growth of the table\n");
+        out.write("\n  [N] [freeze] [find HT] [find FZ] [heap HT] [heap FZ]\n");
+        for (int i=1; i<=8; i*=2) {
+            int n = N*i;
+            int[] keys = get_mixed_array(n);
+            long before = used_heap();
+            HTableChain table = new HTableChain(n);
+            for (int j=0; j<n; j++) table.add(keys[j], j);
+            long heap_table = used_heap() - before;
+            long start = System.nanoTime();
+            HTableFrozen frozen = table.freeze();
+            long freeze_time = System.nanoTime() - start;
+            long find_table = timetest_find_rand_test(table, n);
+            long find_frozen = timetest_find_rand_test(frozen, n);
+            long heap_frozen = frozen.get_memory_bytes();
+            out.write("  "+n+"  "+freeze_time/1000+"u  "+find_table/1000+"u  "
+                    +find_frozen/1000+"u  "+heap_table/1024+"K  "+heap_frozen/1024+"K\n");
+        }
+    }
+    
+    // Сравнение отсортированных массивов на ADD, FIND, DEL и память
+    static void timetest_sorted_arrays()  throws Exception {
+        int N = 20000;
+        /** time_decs[x][y][z]
+         *  x - struct: см. SORTED_ARRAY_NAMES
+         *  y - test:   0 - add, 1 - find, 2 - del
+         *  z - time_results: i - time for n=N*(i+1);
+         * 
+         */
+        long[][][] time_decs = new long[SORTED_ARRAY_NAMES.length][3][5];
+        Struct []structs = null;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/========= TIMETEST_SORTED_ARRAYS ==========/\n");
+        out.write("/===========================================/\n\n");
+        
+        for (int rep=0; rep<2; rep++) {
+            for(int i=0; i<5; i++) {
+                structs = new_sorted_arrays(N);
+                int[] keys = get_mixed_array(N*(i+1));
+                for (int s=0; s<structs.length; s++) {
+                    time_decs[s][0][i] = timetest_hash_add_test(structs[s], keys);
+                    time_decs[s][1][i] = timetest_find_rand_test(structs[s], N*(i+1));
+                    time_decs[s][2][i] = timetest_sa_del_rand_test(structs[s], N*(i+1));
+                }
+            }
+        }
+        
+        String[] test_names = {"ADD", "FIND", "DEL"};
+        for (int t=0; t<3; t++) {
+            out.write("\n== "+test_names[t]+" TEST ==\n");
+            out.write("\n  [i] [N]");
+            for (int s=0; s<SORTED_ARRAY_NAMES.length; s++)
+                out.write(" [result for "+SORTED_ARRAY_NAMES[s]+"]");
+            out.write("\n");
+            for (int i=0; i<5; i++) {
+                out.write("  "+(i+1)+"  "+N*(i+1)+"  ");
+                for (int s=0; s<SORTED_ARRAY_NAMES.length; s++) 
+                    out.write(time_decs[s][t][i]/1000+"u  ");  // nano to micro seconds
+                out.write("\n");
+            }
+        }
+        
+        int M = 1000000;
+        out.write("\n\n  // [heap] - heap growth after adding M elements in key order\n");
+        out.write("\n  [struct] [M] [heap] [state]\n");
+        for (int s=0; s<SORTED_ARRAY_NAMES.length; s++) {
+            long before = used_heap();
+            Struct struct = new_sorted_arrays(M)[s];
+            for (int i=0; i<M; i++) struct.add(i, i);
+            long after = used_heap();
+            out.write("  "+SORTED_ARRAY_NAMES[s]+"  "+M+"  "+(after-before)/1024+"K  "
+                    +struct.get_state()+"\n");
+        }
+    }
+    // имена сравниваемых отсортированных массивов, в порядке new_sorted_arrays()
+    static final String[] SORTED_ARRAY_NAMES = {"SA","SAG"};
+    static Struct[] new_sorted_arrays(int size) {
+        return new Struct[] {
+            new SortedArray(size, 2),
+            new SortedArrayGapped(size)
+        };
+    }
+    // удаление по случайным индексам (delete у отсортированного массива - по индексу)
+    static long timetest_sa_del_rand_test(Struct struct, int N) {
+        int[] index_arr = new int[N];
+        for (int i=0; i<N; i++)
+            index_arr[i] = (int)((N-i)*Math.random());
+        long start = System.nanoTime();
+        for (int i=0; i<N; i++) {
+            struct.delete(index_arr[i]);
+        }
+        long stop = System.nanoTime();
+        return stop-start;
+    }
+    
+    // Сравнение бинарного поиска и поиска по индексу Эйтцингера
+    // на размерах от попадающих в L1 до много больших L3
+    static void timetest_sa_search_layout()  throws Exception {
+        int Q = 2000000;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/======= TIMETEST_SA_SEARCH_LAYOUT =========/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("\n  // [binary], [eytzinger] - ns per find (Q random keys, half are missing)\n");
+        out.write("  // [build] - time of the index build\n");
+        out.write("\n  [N] [binary] [eytzinger] [ratio] [build]\n");
+        int[] queries = new int[Q];
+        for (int n=1<<10; n<=1<<24; n*=4) {
+            int[] keys = get_mixed_array(n);
+            for (int i=0; i<n; i++) keys[i] *= 2;
+            for (int i=0; i<Q; i++) queries[i] = (int)(2*n*Math.random());
+            SortedArray sa = new SortedArray(n, 2);
+            sa.add_batch(keys, keys);
+            
+            sa.set_search_index(false);
+            timetest_sa_queries(sa, queries);
+            long binary = timetest_sa_queries(sa, queries);
+            
+            sa.set_search_index(true, 0, Integer.MAX_VALUE);
+            long start = System.nanoTime();
+            for (int i=0; i<=(n>>8); i++) sa.find(0);    // лениво строит индекс
+            long build = System.nanoTime() - start;
+            timetest_sa_queries(sa, queries);
+            long eytzinger = timetest_sa_queries(sa, queries);
+            
+            out.write("  "+n+"  "+binary/Q+"ns  "+eytzinger/Q+"ns  "
+                    +String.format("%.2f", (double)binary/eytzinger)+"  "+build/1000+"u\n");
+        }
+    }
+    static long timetest_sa_queries(Struct struct, int[] queries) {
+        long start = System.nanoTime();
+        for (int i=0; i<queries.length; i++) {
+            struct.find(queries[i]);
+        }
+        long stop = System.nanoTime();
+        return stop-start;
+    }
+    
+    // Сравнение бинарного поиска и поиска по обученной модели
+    // на монотонных id с регулярными промежутками и на случайных ключах
+    static void timetest_sa_learned()  throws Exception {
+        int Q = 2000000;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/========== TIMETEST_SA_LEARNED ============/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("\n  // [keys] - ids: i*8 + random(0..3), random: random int\n");
+        out.write("  // [binary], [learned] - ns per find (Q keys, half are missing)\n");
+        out.write("\n  [keys] [N] [binary] [learned] [ratio] [state]\n");
+        int[] queries = new int[Q];
+        for (int k=0; k<2; k++) {
+            for (int n=1<<16; n<=1<<24; n*=16) {
+                int[] keys = new int[n];
+                for (int i=0; i<n; i++)
+                    keys[i] = k == 0 ? i*8 + (int)(4*Math.random()) 
+                                     : (int)((Math.random()-0.5)*2*Integer.MAX_VALUE);
+                for (int i=0; i<Q; i++)
+                    queries[i] = i%2 == 0 ? keys[(int)(n*Math.random())] 
+                                          : (int)((Math.random()-0.5)*2*Integer.MAX_VALUE);
+                SortedArray sa = new SortedArray(n, 2);
+                sa.add_batch(keys, keys);
+                SortedArrayLearned learned = new SortedArrayLearned(n, 2);
+                learned.add_batch(keys, keys);
+                
+                timetest_sa_queries(sa, queries);
+                long binary = timetest_sa_queries(sa, queries);
+                timetest_sa_queries(learned, queries);    // первые поиски строят модель
+                long model = timetest_sa_queries(learned, queries);
+                
+                out.write("  "+(k == 0 ? "ids" : "random")+"  "+n+"  "+binary/Q+"ns  "
+                        +model/Q+"ns  "+String.format("%.2f", (double)binary/model)+"  "
+                        +learned.get_state()+"\n");
+            }
+        }
+    }
+    
+    // Сравнение бинарного поиска и блочного поиска с векторным
+    // досмотром последнего блока (запуск с --add-modules jdk.incubator.vector)
+    static void timetest_sa_vector()  throws Exception {
+        int Q = 2000000;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/=========== TIMETEST_SA_VECTOR ============/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  block scan: "+VectorSearch.get_scan_type()+"\n");
+        out.write("\n  // [binary], [block] - ns per find (Q random keys, half are missing)\n");
+        out.write("\n  [N] [binary] [block] [ratio]\n");
+        int[] queries = new int[Q];
+        for (int n=1<<10; n<=1<<24; n*=4) {
+            int[] keys = get_mixed_array(n);
+            for (int i=0; i<n; i++) keys[i] *= 2;
+            for (int i=0; i<Q; i++) queries[i] = (int)(2*n*Math.random());
+            SortedArray sa = new SortedArray(n, 2);
+            sa.add_batch(keys, keys);
+            
+            timetest_sa_queries(sa, queries);
+            long binary = timetest_sa_queries(sa, queries);
+            sa.set_vector_search(true);
+            timetest_sa_queries(sa, queries);
+            long block = timetest_sa_queries(sa, queries);
+            
+            out.write("  "+n+"  "+binary/Q+"ns  "+block/Q+"ns  "
+                    +String.format("%.2f", (double)binary/block)+"\n");
+        }
+        
+        int N = 100000;
+        out.write("\n  // [binary], [block] - time of N adds of random keys into an empty array\n");
+        out.write("\n  [N] [binary] [block]\n");
+        int[] keys = get_mixed_array(N);
+        long[] time_add = new long[2];
+        for (int rep=0; rep<2; rep++) {
+            for (int v=0; v<2; v++) {
+                SortedArray sa = new SortedArray(N, 2);
+                sa.set_vector_search(v == 1);
+                time_add[v] = timetest_hash_add_test(sa, keys);
+            }
+        }
+        out.write("  "+N+"  "+time_add[0]/1000+"u  "+time_add[1]/1000+"u\n");
+    }
+    
+    // Замер времени вставки в LSM-дерево в сравнении с сортированными массивами
+    static void timetest_lsm()  throws Exception {
+        int N = 50000;
+        int iterations = 4;
+        String[] names = {"SA", "SAG", "LSM"};
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/=============== TIMETEST_LSM ==============/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  // [add] - time of N adds of random keys into an empty struct\n");
+        out.write("  // [find] - time of N finds of random keys\n");
+        out.write("\n  [N] [struct] [add] [find]\n");
+        for (int i=0, n=N; i<iterations; i++, n*=2) {
+            int[] keys = get_mixed_array(n);
+            for (int s=0; s<names.length; s++) {
+                Struct struct = s == 0 ? new SortedArray(16, 2)
+                              : s == 1 ? new SortedArrayGapped(16)
+                              : new LSMTree();
+                long time_add = timetest_hash_add_test(struct, keys);
+                long time_find = timetest_find_rand_test(struct, n);
+                out.write("  "+n+"  "+names[s]+"  "+time_add/1000000+"ms  "
+                        +time_find/1000000+"ms\n");
+                if ( s == 2 ) out.write("      "+struct.get_state()+"\n");
+                close_struct(struct);
+            }
+        }
+    }
+    
+    // Замер времени запуска: построение массива скриптом против отображения файла
+    static void timetest_sa_mapped()  throws Exception {
+        int Q = 1000000;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/=========== TIMETEST_SA_MAPPED ============/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  // [script] - Executor run of \"new sa\" and N adds (ascending keys)\n");
+        out.write("  // [map] - opening of the mapped file and the first find\n");
+        out.write("  // [find] - Q random finds right after opening\n");
+        out.write("\n  [N] [script] [map] [find]\n");
+        File script = File.createTempFile("sa_script", ".txt");
+        File script_out = File.createTempFile("sa_script", ".out");
+        File data = File.createTempFile("sa_mapped", ".bin");
+        for (int n=1<<18; n<=1<<22; n*=4) {
+            FileWriter writer = new FileWriter(script);
+            writer.write("new sa "+n+" 2\n");
+            for (int i=0; i<n; i++)
+                writer.write("add "+i+" "+i+"\n");
+            writer.close();
+            long start = System.nanoTime();
+            new Executor().exec(script.getPath(), script_out.getPath());
+            long time_script = System.nanoTime() - start;
+            
+            data.delete();
+            SortedArrayMapped sam = new SortedArrayMapped(data.getPath(), n, 2);
+            for (int i=0; i<n; i++)
+                sam.add(i, i);
+            sam.sync();
+            sam.close();
+            start = System.nanoTime();
+            sam = new SortedArrayMapped(data.getPath(), 1, 2);
+            sam.find(n/2);
+            long time_map = System.nanoTime() - start;
+            long time_find = timetest_find_rand_test(sam, Math.min(n, Q));
+            sam.close();
+            
+            out.write("  "+n+"  "+time_script/1000000+"ms  "+time_map/1000+"us  "
+                    +time_find/1000000+"ms\n");
+        }
+        script.delete();
+        script_out.delete();
+        data.delete();
+    }
+    
+    // Замер пропускной способности чтения потокобезопасного массива
+    static void timetest_sa_concurrent()  throws Exception {
+        int N = 1000000;
+        long duration = 1000; // мс на один замер
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/========= TIMETEST_SA_CONCURRENT ==========/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  cpus: "+Runtime.getRuntime().availableProcessors()+"\n");
+        out.write("\n  // [locked] - finds on SortedArray under synchronized\n");
+        out.write("  // [optimistic] - finds on SortedArrayConcurrent\n");
+        out.write("  // [writer] - one more thread doing add + delete_key every 100us\n");
+        out.write("  // values - millions of finds per second over all reader threads\n");
+        out.write("\n  [threads] [writer] [locked] [optimistic] [read_fallbacks]\n");
+        int[] keys = get_mixed_array(N);
+        SortedArray locked = new SortedArray(N, 2);
+        locked.add_batch(keys, keys);
+        SortedArrayConcurrent optimistic = new SortedArrayConcurrent(N, 2);
+        optimistic.add_batch(keys, keys);
+        for (int writer=0; writer<2; writer++) {
+            for (int threads=1; threads<=8; threads*=2) {
+                double mops_locked = timetest_sa_readers(locked, true, threads, writer == 1, duration);
+                double mops_optimistic = timetest_sa_readers(optimistic, false, threads, writer == 1, duration);
+                out.write("  "+threads+"  "+(writer == 1 ? "yes" : "no")+"  "
+                        +String.format("%.1f", mops_locked)+"  "
+                        +String.format("%.1f", mops_optimistic)+"  "
+                        +optimistic.get_state().replaceAll(".*read_fallbacks = ", "")+"\n");
+            }
+        }
+    }
+    // Млн. поисков в секунду всеми читателями; locked - каждый поиск под synchronized
+    static double timetest_sa_readers(SortedArray sa, boolean locked, int threads,
+                                      boolean with_writer, long duration) throws Exception {
+        AtomicBoolean stop = new AtomicBoolean(false);
+        LongAdder total = new LongAdder();
+        Thread[] readers = new Thread[threads];
+        for (int t=0; t<threads; t++) {
+            readers[t] = new Thread(() -> {
+                int key = (int)(Math.random() * Integer.MAX_VALUE);
+                long count = 0;
+                while ( !stop.get() ) {
+                    for (int i=0; i<256; i++) {
+                        key = key * 1103515245 + 12345;
+                        int k = (key >>> 1) % 2000000;
+                        if ( locked ) {
+                            synchronized (sa) { sa.find(k); }
+                        } else
+                            sa.find(k);
+                    }
+                    count += 256;
+                }
+                total.add(count);
+            });
+        }
+        Thread writer = new Thread(() -> {
+            int key = -1;
+            while ( !stop.get() ) {
+                if ( locked ) {
+                    synchronized (sa) { sa.add(key, key); sa.delete_key(key); }
+                } else {
+                    sa.add(key, key);
+                    sa.delete_key(key);
+                }
+                key--;
+                long until = System.nanoTime() + 100000;
+                while ( System.nanoTime() < until && !stop.get() ) Thread.onSpinWait();
+            }
+        });
+        for (Thread reader : readers) reader.start();
+        if ( with_writer ) writer.start();
+        Thread.sleep(duration);
+        stop.set(true);
+        for (Thread reader : readers) reader.join();
+        if ( with_writer ) writer.join();
+        return total.sum() / (duration * 1000.0);
+    }
+    
+    // Замер вставки и поиска в обычном и АВЛ-дереве на упорядоченных ключах
+    static void timetest_bst_balanced()  throws Exception {
+        int N = 10000;
+        int iterations = 3;
+        String[] orders = {"ASC", "DESC", "RAND"};
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/========= TIMETEST_BST_BALANCED ===========/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  // [add] - time of N adds, [find] - time of N finds of the same keys\n");
+        out.write("  // [height] - tree height after the adds\n");
+        out.write("\n  [N] [order] [BST add] [BST find] [BST height] [AVL add] [AVL find] [AVL height]\n");
+        for (int i=0, n=N; i<iterations; i++, n*=2) {
+            for (int order=0; order<orders.length; order++) {
+                int[] keys = order == 2 ? get_mixed_array(n) : new int[n];
+                if ( order == 0 ) for (int j=0; j<n; j++) keys[j] = j;
+                if ( order == 1 ) for (int j=0; j<n; j++) keys[j] = n-j;
+                out.write("  "+n+"  "+orders[order]);
+                BinSearchTree[] trees = {new BinSearchTree(), new BalancedBinSearchTree()};
+                for (BinSearchTree tree : trees) {
+                    long time_add = timetest_hash_add_test(tree, keys);
+                    long start = System.nanoTime();
+                    for (int j=0; j<n; j++)
+                        tree.find(keys[j]);
+                    long time_find = System.nanoTime() - start;
+                    out.write("  "+time_add/1000000+"ms  "+time_find/1000000+"ms  "
+                            +tree.get_state().replaceAll(".*height = (\\d+).*", "$1"));
+                }
+                out.write("\n");
+            }
+        }
+    }
+    
+    // Замер позиционного доступа: АВЛ-дерево с кол-вами узлов против сорт. массива
+    static void timetest_bst_rank()  throws Exception {
+        int N = 50000;
+        int iterations = 4;
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/============ TIMETEST_BST_RANK ============/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  // [add] - time of N adds of random keys, [at] - time of N get_at of random indices\n");
+        out.write("\n  [N] [SA add] [SA at] [AVL add] [AVL at]\n");
+        for (int i=0, n=N; i<iterations; i++, n*=2) {
+            int[] keys = get_mixed_array(n);
+            int[] indices = get_mixed_array(n);
+            Struct[] structs = {new SortedArray(16, 2), new BalancedBinSearchTree()};
+            out.write("  "+n);
+            for (Struct struct : structs) {
+                long time_add = timetest_hash_add_test(struct, keys);
+                long start = System.nanoTime();
+                for (int j=0; j<n; j++)
+                    struct.get_at(indices[j]);
+                long time_at = System.nanoTime() - start;
+                out.write("  "+time_add/1000000+"ms  "+time_at/1000000+"ms");
+            }
+            out.write("\n");
+        }
+    }
+    
+    // Замер памяти и обхода дерева из объектов-узлов и дерева в массивах
+    static void timetest_bst_arena()  throws Exception {
+        int N = 1000000;
+        String[] names = {"BST", "ARENA"};
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/=========== TIMETEST_BST_ARENA ============/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  // [heap] - heap growth after N adds of random keys\n");
+        out.write("  // [add] - time of the adds, [find] - time of N finds of random keys\n");
+        out.write("  // [walk] - time of a full preorder walk (datasimple)\n");
+        out.write("\n  [struct] [N] [heap] [add] [find] [walk] [state]\n");
+        int[] keys = get_mixed_array(N);
+        for (int s=0; s<names.length; s++) {
+            long before = used_heap();
+            Struct struct = s == 0 ? new BinSearchTree() : new BinSearchTreeArena();
+            long time_add = timetest_hash_add_test(struct, keys);
+            long after = used_heap();
+            long time_find = 0;
+            long time_walk = 0;
+            for (int rep=0; rep<2; rep++) {
+                time_find = timetest_find_rand_test(struct, N);
+                long start = System.nanoTime();
+                struct.get_data_simple();
+                time_walk = System.nanoTime() - start;
+            }
+            out.write("  "+names[s]+"  "+N+"  "+(after-before)/1024+"K  "
+                    +time_add/1000000+"ms  "+time_find/1000000+"ms  "
+                    +time_walk/1000000+"ms  "+struct.get_state()+"\n");
+        }
+    }
+    
+    // Сравнение B+деревьев разных порядков с деревьями поиска и сорт. массивом
+    static void timetest_bplus_tree()  throws Exception {
+        int N = 200000;
+        int[] scen_sizes = {10000, 20000, 40000};
+        String[] names = {"BST", "AVL", "SA", "BPT32", "BPT64", "BPT128", "BPT256"};
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/=========== TIMETEST_BPLUS_TREE ===========/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  // [heap] - heap growth after N adds of random keys, [add] - time of the adds\n");
+        out.write("  // [find] - N finds, [at] - N get_at, [del] - N deletes, all in random order\n");
+        out.write("  // (SA deletes by index)\n");
+        out.write("\n  [struct] [N] [heap] [add] [find] [at] [del]\n");
+        int[] keys = get_mixed_array(N);
+        int[] indices = get_mixed_array(N);
+        // все структуры живут до конца замеров памяти: иначе сборщик
+        // может не успеть освободить предыдущую к замеру следующей
+        Struct[] structs = new Struct[names.length];
+        long[] heap = new long[names.length];
+        long[] time_add = new long[names.length];
+        for (int s=0; s<names.length; s++) {
+            long before = used_heap();
+            structs[s] = new_ordered_struct(s);
+            time_add[s] = timetest_hash_add_test(structs[s], keys);
+            heap[s] = used_heap() - before;
+        }
+        for (int s=0; s<names.length; s++) {
+            Struct struct = structs[s];
+            long time_find = timetest_find_rand_test(struct, N);
+            long start = System.nanoTime();
+            for (int j=0; j<N; j++)
+                struct.get_at(indices[j]);
+            long time_at = System.nanoTime() - start;
+            long time_del = s == 2 ? timetest_sa_del_rand_test(struct, N)
+                                   : timetest_del_rand_test(struct, N);
+            out.write("  "+names[s]+"  "+N+"  "+heap[s]/1024+"K  "
+                    +time_add[s]/1000000+"ms  "+time_find/1000000+"ms  "
+                    +time_at/1000000+"ms  "+time_del/1000000+"ms\n");
+        }
+        
+        String[] scen_names = {"DYNAMIC", "MMF", "UNIFORM"};
+        for (int scen=0; scen<scen_names.length; scen++) {
+            out.write("\n\n== TEST_"+scen_names[scen]+" ==\n");
+            out.write("\n  [N]");
+            for (String name : names)
+                out.write(" [result for "+name+"]");
+            out.write("\n");
+            for (int n : scen_sizes) {
+                out.write("  "+n+"  ");
+                for (int s=0; s<names.length; s++) {
+                    Struct struct = new_ordered_struct(s);
+                    long time = scen == 0 ? timetest_common_DYNAMIC(struct, n)
+                              : scen == 1 ? timetest_common_MMF(struct, n)
+                                          : timetest_common_UNIFORM(struct, n);
+                    out.write(time/1000+"u  ");  // in microsecs
+                }
+                out.write("\n");
+            }
+        }
+    }
+    static Struct new_ordered_struct(int index) {
+        switch ( index ) {
+            case 0: return new BinSearchTree();
+            case 1: return new BalancedBinSearchTree();
+            case 2: return new SortedArray(16, 2);
+            default: return new BPlusTree(32 << (index-3));
+        }
+    }
+    
+    // Поиск с распределением Ципфа и с меняющимся набором частых ключей:
+    // расширяющееся дерево против АВЛ-дерева
+    static void timetest_bst_splay()  throws Exception {
+        int N = 1000000;
+        int Q = 2000000;
+        double[] exponents = {0, 0.8, 1.0, 1.2, 1.5, 2.0};
+        int[] hot_sizes = {32, 1024};
+        int hot_period = 20000;
+        int[] periods = {1, 4, 16};
+        
+        out.write("\n\n");
+        out.write("/===========================================/\n");
+        out.write("/============ TIMETEST_BST_SPLAY ============/\n");
+        out.write("/===========================================/\n\n");
+        
+        out.write("  // N random keys are added, then time of Q finds:\n");
+        out.write("  // zipf s - key of rank i drawn with probability ~ 1/i^s\n");
+        out.write("  //          (s = 0 - uniform), ranks are shuffled keys\n");
+        out.write("  // hot h  - uniform over h random keys, replaced every "+hot_period+" finds\n");
+        out.write("  // [SPLAYk] - splay on every k-th find\n");
+        out.write("\n  [queries] [AVL]");
+        for (int period : periods)
+            out.write(" [SPLAY"+period+"]");
+        out.write("\n");
+        int[] keys = get_mixed_array(N);
+        for (int row=0; row<exponents.length+hot_sizes.length; row++) {
+            int[] queries;
+            if ( row < exponents.length ) {
+                queries = get_zipf_queries(keys, Q, exponents[row]);
+                out.write("  zipf "+exponents[row]+"  ");
+            }
+            else {
+                int hot_size = hot_sizes[row-exponents.length];
+                queries = get_hot_set_queries(keys, Q, hot_size, hot_period);
+                out.write("  hot "+hot_size+"  ");
+            }
+            for (int s=0; s<=periods.length; s++) {
+                BinSearchTree tree = s == 0 ? new BalancedBinSearchTree()
+                                            : new SplayBinSearchTree(periods[s-1]);
+                timetest_hash_add_test(tree, keys);
+                long time = 0;
+                for (int rep=0; rep<2; rep++) {
+                    long start = System.nanoTime();
+                    for (int j=0; j<Q; j++)
+                        tree.find(queries[j]);
+                    time = System.nanoTime() - start;
+                }
+                out.write(time/1000000+"ms  ");
+            }
+            out.write("\n");
+        }
+    }
+    static int[] get_zipf_queries(int[] keys, int Q, double exponent) {
+        int N = keys.length;
+        double[] cdf = new double[N];
+        double sum = 0;
+        for (int i=0; i<N; i++) {
+            sum += 1 / Math.pow(i+1, exponent);
+            cdf[i] = sum;
+        }
+        int[] queries = new int[Q];
+        for (int j=0; j<Q; j++) {
+            double x = Math.random() * sum;
+            int left_index = 0;
+            int right_index = N-1;
+            while ( left_index < right_index ) {
+                int mid = (left_index + right_index) >>> 1;
+                if ( cdf[mid] < x )
+                    left_index = mid + 1;
+                else
+                    right_index = mid;
+            }
+            queries[j] = keys[left_index];
+        }
+        return queries;
+    }
+    static int[] get_hot_set_queries(int[] keys, int Q, int hot_size, int hot_period) {
+        int[] hot = new int[hot_size];
+        int[] queries = new int[Q];
+        for (int j=0; j<Q; j++) {
+            if ( j % hot_period == 0 )
+                for (int h=0; h<hot_size; h++)
+                    hot[h] = keys[(int)(keys.length*Math.random())];
+            queries[j] = hot[(int)(hot_size*Math.random())];
+        }
+        return queries;
+    }
 }
@@ -0,0 +1,57 @@
+package javarealization;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** Векторный просмотр блока ключей (jdk.incubator.vector).
+ *
+ * Ключи блока сравниваются с заданным по SPECIES.length() штук за
+ * инструкцию (8 для AVX2, 16 для AVX-512), кол-во подходящих считается
+ * по маске. Блок просматривается целиком, без ветвлений по результату
+ * сравнения: блок мал, а ранний выход стоит ошибок предсказания.
+ * Остаток блока короче вектора просматривается скалярно.
+ *
+ * Класс лежит в отдельном каталоге исходников vector/, чтобы основная
+ * сборка не зависела от модуля. Он компилируется отдельно, поверх уже
+ * собранных классов, с --add-modules jdk.incubator.vector, загружается
+ * только через VectorSearch.load_scan() и требует запуска с тем же флагом.
+ *
+ * @author Akropon
+ */
+public class VectorBlockScan extends VectorSearch.BlockScan {
+    protected static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    protected int count_less(int[] keys, int from, int to, int key) {
+        int lanes = SPECIES.length();
+        int i = from;
+        int total = 0;
+        for ( int bound = to - lanes; i <= bound; i += lanes ) {
+            int count = IntVector.fromArray(SPECIES, keys, i)
+                                 .compare(VectorOperators.LT, key).trueCount();
+            total += count;
+        }
+        for ( ; i < to; i++ ) if ( keys[i] < key ) total++;
+        return total;
+    }
+
+    @Override
+    protected int count_not_greater(int[] keys, int from, int to, int key) {
+        int lanes = SPECIES.length();
+        int i = from;
+        int total = 0;
+        for ( int bound = to - lanes; i <= bound; i += lanes ) {
+            int count = IntVector.fromArray(SPECIES, keys, i)
+                                 .compare(VectorOperators.LE, key).trueCount();
+            total += count;
+        }
+        for ( ; i < to; i++ ) if ( keys[i] <= key ) total++;
+        return total;
+    }
+
+    @Override
+    protected String get_type() {
+        return "vector ("+SPECIES.length()+" lanes)";
+    }
+}